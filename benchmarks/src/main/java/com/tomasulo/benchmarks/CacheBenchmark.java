@@ -0,0 +1,67 @@
+package com.tomasulo.benchmarks;
+
+import com.tomasulo.Cache;
+import com.tomasulo.Memory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cache.accessLoad on the hit and the miss path. The miss benchmark cycles
+ * through ways + 1 addresses one set span (cacheSize / ways) apart, which map to the same set
+ * and, under LRU, evict each other on every access.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CacheBenchmark {
+
+    @Param({ "256" })
+    public int cacheSize;
+
+    @Param({ "4", "16" })
+    public int blockSize;
+
+    @Param({ "1", "8" })
+    public int ways;
+
+    @Param({ "lru" })
+    public String replacement;
+
+    private Cache cache;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Memory memory = new Memory();
+        memory.setTrace(false);
+        memory.preloadWithTestData();
+        cache = new Cache(cacheSize, blockSize, 1, 10, ways, replacement, 1);
+        cache.setMemory(memory);
+        cache.accessLoad(64);
+    }
+
+    @Benchmark
+    public int loadHit() {
+        return cache.accessLoad(64);
+    }
+
+    @Benchmark
+    public int loadMiss() {
+        next = next == ways ? 0 : next + 1;
+        return cache.accessLoad(64 + next * (cacheSize / ways));
+    }
+}
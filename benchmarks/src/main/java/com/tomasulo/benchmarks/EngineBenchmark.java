@@ -0,0 +1,118 @@
+package com.tomasulo.benchmarks;
+
+import com.tomasulo.Config;
+import com.tomasulo.ExecutionEngine;
+import com.tomasulo.Instruction;
+import com.tomasulo.InstructionParser;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of ExecutionEngine.executeCycle().
+ *
+ * executeCycle runs exactly one simulated cycle per operation (fast-forward
+ * off), so its score is simulated cycles per second and, with -prof gc,
+ * gc.alloc.rate.norm is bytes allocated per cycle. A program that finishes is
+ * reset and started again within the measurement. runProgram runs whole
+ * programs from reset with the headless defaults (fast-forward on) and reports the
+ * simulated cycles per second in its "cycles" counter.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EngineBenchmark {
+
+    @State(Scope.Thread)
+    public static class Machine {
+        @Param({ "sample2_loop", "sample3_hazards", "fp_kernel", "memory_kernel", "straight_line" })
+        public String program;
+
+        @Param({ "0", "16" })
+        public int robSize;
+
+        List<Instruction> instructions;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            instructions = InstructionParser.parse(Programs.get(program));
+        }
+
+        ExecutionEngine create(boolean fastForward) {
+            Config config = new Config();
+            config.robSize = robSize;
+            config.fastForward = fastForward;
+            config.traceMemory = false;
+            config.recordIssueHistory = false;
+            config.eventLogMode = "off";
+            config.checkpointInterval = 0;
+            ExecutionEngine created = new ExecutionEngine(config);
+            created.loadProgram(instructions);
+            return created;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Stepped {
+        ExecutionEngine engine;
+
+        @Setup(Level.Trial)
+        public void setUp(Machine machine) {
+            engine = machine.create(false);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Whole {
+        ExecutionEngine engine;
+
+        @Setup(Level.Trial)
+        public void setUp(Machine machine) {
+            engine = machine.create(true);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class SimulatedCycles {
+        public long cycles;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            cycles = 0;
+        }
+    }
+
+    @Benchmark
+    public int executeCycle(Stepped stepped) {
+        ExecutionEngine engine = stepped.engine;
+        if (!engine.executeCycle()) {
+            engine.reset();
+        }
+        return engine.getCurrentCycle();
+    }
+
+    @Benchmark
+    public boolean runProgram(Whole whole, SimulatedCycles counter) {
+        ExecutionEngine engine = whole.engine;
+        engine.reset();
+        boolean completed = engine.runToCompletion(1_000_000L);
+        counter.cycles += engine.getCurrentCycle();
+        return completed;
+    }
+}
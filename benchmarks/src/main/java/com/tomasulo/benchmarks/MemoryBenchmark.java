@@ -0,0 +1,66 @@
+package com.tomasulo.benchmarks;
+
+import com.tomasulo.Memory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Memory load and store of doublewords and words, walking the address space.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MemoryBenchmark {
+
+    private static final int WORDS = 1024 / 8;
+
+    private Memory memory;
+    private int word;
+
+    @Setup
+    public void setUp() {
+        memory = new Memory();
+        memory.setTrace(false);
+        memory.preloadWithTestData();
+    }
+
+    private int nextAddress() {
+        word = (word + 1) % WORDS;
+        return word * 8;
+    }
+
+    @Benchmark
+    public double loadDouble() {
+        return memory.load(nextAddress());
+    }
+
+    @Benchmark
+    public double loadWord() {
+        return memory.loadWord(nextAddress());
+    }
+
+    @Benchmark
+    public void storeDouble() {
+        int address = nextAddress();
+        memory.store(address, address);
+    }
+
+    @Benchmark
+    public void storeWord() {
+        int address = nextAddress();
+        memory.storeWord(address, address);
+    }
+}
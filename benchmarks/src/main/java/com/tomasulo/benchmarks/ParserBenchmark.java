@@ -0,0 +1,45 @@
+package com.tomasulo.benchmarks;
+
+import com.tomasulo.Instruction;
+import com.tomasulo.InstructionParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InstructionParser.parse on generated sources of increasing size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class ParserBenchmark {
+
+    @Param({ "1000", "10000", "100000" })
+    public int lines;
+
+    private String source;
+
+    @Setup
+    public void setUp() {
+        source = Programs.straightLine(lines);
+    }
+
+    @Benchmark
+    public List<Instruction> parse() throws Exception {
+        return InstructionParser.parse(source);
+    }
+}
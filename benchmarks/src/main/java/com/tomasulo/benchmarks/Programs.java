@@ -0,0 +1,132 @@
+package com.tomasulo.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Benchmark inputs: the sample programs shipped in samples/ and generated
+ * kernels large enough to keep the engine busy for thousands of cycles.
+ * Every program fits in the simulator's 1 KB memory.
+ */
+public final class Programs {
+
+    private Programs() {
+    }
+
+    /**
+     * Source of a named program: a sample file name without ".asm", or one of
+     * fp_kernel, memory_kernel, straight_line.
+     */
+    public static String get(String name) throws IOException {
+        switch (name) {
+            case "fp_kernel":
+                return fpKernel(64);
+            case "memory_kernel":
+                return memoryKernel(8);
+            case "straight_line":
+                return straightLine(2000);
+            default:
+                return sample(name);
+        }
+    }
+
+    static String sample(String name) throws IOException {
+        try (InputStream in = Programs.class.getResourceAsStream("/samples/" + name + ".asm")) {
+            if (in == null) {
+                throw new IOException("No sample program " + name);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Loop of independent load / multiply / accumulate / store chains over
+     * eight elements; stresses the stations, the CDB and issue.
+     */
+    static String fpKernel(int iterations) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("DADDI R1, R0, 0\n");
+        sb.append("DADDI R5, R0, ").append(iterations).append('\n');
+        sb.append("DADDI R2, R0, 0\n");
+        sb.append("LOOP:\n");
+        for (int k = 0; k < 8; k++) {
+            sb.append("L.D F").append(k).append(", ").append(8 * k).append("(R2)\n");
+        }
+        for (int k = 0; k < 8; k++) {
+            sb.append("MUL.D F").append(k + 8).append(", F").append(k).append(", F").append(k).append('\n');
+        }
+        for (int k = 0; k < 8; k++) {
+            sb.append(k % 2 == 0 ? "ADD.D F" : "SUB.D F").append(k + 16).append(", F").append(k + 16)
+                    .append(", F").append(k + 8).append('\n');
+        }
+        for (int k = 0; k < 8; k++) {
+            sb.append("S.D F").append(k + 16).append(", ").append(256 + 8 * k).append("(R2)\n");
+        }
+        sb.append("DADDI R1, R1, 1\n");
+        sb.append("BNE R1, R5, LOOP\n");
+        return sb.toString();
+    }
+
+    /**
+     * Nested loop streaming through half of memory and storing into the other
+     * half; with the default 256-byte cache most accesses miss.
+     */
+    static String memoryKernel(int passes) {
+        return "DADDI R6, R0, 0\n"
+                + "DADDI R7, R0, " + passes + "\n"
+                + "OUTER:\n"
+                + "DADDI R2, R0, 0\n"
+                + "DADDI R1, R0, 0\n"
+                + "DADDI R5, R0, 60\n"
+                + "INNER:\n"
+                + "L.D F0, 0(R2)\n"
+                + "L.D F2, 8(R2)\n"
+                + "ADD.D F4, F0, F2\n"
+                + "S.D F4, 512(R2)\n"
+                + "DADDI R2, R2, 8\n"
+                + "DADDI R1, R1, 1\n"
+                + "BNE R1, R5, INNER\n"
+                + "DADDI R6, R6, 1\n"
+                + "BNE R6, R7, OUTER\n";
+    }
+
+    /**
+     * Branch-free mix of FP, integer and memory instructions with labels and
+     * comments, as a large parser input and a long dependence-heavy run.
+     */
+    static String straightLine(int lines) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("# Generated straight-line program\n");
+        for (int i = 0; i < lines; i++) {
+            if (i % 50 == 0) {
+                sb.append("L").append(i / 50).append(":\n");
+            }
+            int f = i % 30;
+            switch (i % 6) {
+                case 0:
+                    sb.append("L.D F").append(f).append(", ").append(8 * (i % 64)).append("(R0)");
+                    break;
+                case 1:
+                    sb.append("ADD.D F").append(f).append(", F").append((f + 1) % 30).append(", F")
+                            .append((f + 7) % 30);
+                    break;
+                case 2:
+                    sb.append("MUL.D F").append(f).append(", F").append((f + 3) % 30).append(", F")
+                            .append((f + 5) % 30);
+                    break;
+                case 3:
+                    sb.append("DADDI R").append(1 + i % 20).append(", R").append(1 + (i + 3) % 20).append(", 1");
+                    break;
+                case 4:
+                    sb.append("S.D F").append((f + 2) % 30).append(", ").append(512 + 8 * (i % 64)).append("(R0)");
+                    break;
+                default:
+                    sb.append("SUB.D F").append(f).append(", F").append((f + 11) % 30).append(", F")
+                            .append((f + 13) % 30).append("    # filler");
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
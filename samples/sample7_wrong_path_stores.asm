@@ -0,0 +1,16 @@
+# Wrong-Path Stores - run with a reorder buffer
+# Configuration -> Station Sizes: set the ROB size above 0 (or --set robSize=16)
+#
+# Address 8 holds a non-zero value, so BNE is taken. It is a forward branch,
+# predicted not taken, so the three stores issue and execute on the wrong
+# path while the load misses. They are squashed when BNE commits: memory at
+# 64, 128 and 192 is unchanged, and the cache only shows the load's block,
+# exactly as with robSize=0.
+
+LD R1, 8(R0)
+BNE R1, R0, SKIP
+S.D F0, 64(R0)
+S.D F0, 128(R0)
+S.D F0, 192(R0)
+SKIP:
+DADDI R3, R0, 5
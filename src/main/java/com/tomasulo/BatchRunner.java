@@ -0,0 +1,709 @@
+package com.tomasulo;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Headless command-line runner.
+ * Drives ExecutionEngine.executeCycle() without starting JavaFX and prints
+ * cycle count, IPC and the final register/memory state as text or JSON.
+ *
+ * Usage:
+ * java -cp target/classes com.tomasulo.BatchRunner [options] program.asm [more.asm ...]
+ */
+public class BatchRunner {
+
+    private static final long DEFAULT_MAX_CYCLES = 1_000_000L;
+
+    private final Config config = new Config();
+    private final Map<String, Double> registerInit = new LinkedHashMap<>();
+    private final Map<Integer, Double> memoryInit = new LinkedHashMap<>();
+    private final List<File> programs = new ArrayList<>();
+    private long maxCycles = DEFAULT_MAX_CYCLES;
+    private boolean json = false;
+    private boolean printEvents = false;
+    private final List<String> overrides = new ArrayList<>();
+    private File checkpointOut; // Where to save the engine when the run stops
+    private long checkpointEvery; // Also save every N cycles while running (0 = only at the end)
+    private File resume; // Checkpoint file to continue instead of a program
+
+    /**
+     * Result of running one program.
+     */
+    public static class Result {
+        public final String program;
+        public final boolean completed;
+        public final int cycles;
+        public final long instructions;
+        public final double ipc;
+        public final int issueWidth;
+        public final long[] issueHistogram; // Cycles that issued 0..issueWidth instructions
+        public final String[] cdbUnits; // Per bus: unit classes it accepts
+        public final long[] cdbWrites; // Per bus: cycles it carried a result
+        public final long[] cdbConflicts; // Per bus: busy cycles with another eligible result waiting
+        public final int robSize; // 0 without a reorder buffer
+        public final String branchPredictor;
+        public final long branches; // Resolved branches scored against their prediction
+        public final long mispredictions;
+        public final double predictionAccuracy;
+        public final long recoveryCycles; // Issue cycles lost waiting on or recovering from branches
+        public final long squashedInstructions;
+        public final List<FunctionalUnitPool> unitPools; // Shared unit pools, empty in the classic model
+        public final boolean storeForwarding;
+        public final long forwardedLoads;
+        public final int btbEntries; // 0 without a branch target buffer
+        public final int btbAssociativity;
+        public final long btbHits;
+        public final long btbMisses;
+        public final int cacheAssociativity; // Ways per set
+        public final int cacheSets;
+        public final String cacheReplacement;
+        public final boolean cacheBlockAligned;
+        public final List<Cache> lowerCaches; // L2, L3 (may be empty)
+        public final List<String> lowerInclusion;
+        public final MemoryHierarchy memoryHierarchy;
+        public final PerformanceCounters.Snapshot counters;
+        public final Map<String, Double> registers;
+        public final Map<Integer, Double> memory;
+        public final List<String> events; // Rendered event log, null unless requested
+
+        Result(String program, ExecutionEngine engine, boolean completed, Config config, boolean events) {
+            this.program = program;
+            this.completed = completed;
+            this.cycles = engine.getCurrentCycle();
+            this.instructions = engine.getCompletedInstructions();
+            this.ipc = engine.getIpc();
+            this.issueWidth = engine.getIssueWidth();
+            this.issueHistogram = engine.getIssueHistogram();
+            this.robSize = config.robSize;
+            this.branchPredictor = engine.getBranchPredictor().getName();
+            this.branches = engine.getPredictedBranches();
+            this.mispredictions = engine.getMispredictions();
+            this.predictionAccuracy = engine.getPredictionAccuracy();
+            this.recoveryCycles = engine.getRecoveryCycles();
+            this.squashedInstructions = engine.getSquashedInstructions();
+            this.unitPools = new ArrayList<>();
+            for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+                if (engine.getUnitPool(unit) != null) {
+                    unitPools.add(engine.getUnitPool(unit));
+                }
+            }
+            this.storeForwarding = config.storeForwarding;
+            this.forwardedLoads = engine.getForwardedLoads();
+            BranchTargetBuffer btb = engine.getBranchTargetBuffer();
+            this.btbEntries = btb != null ? btb.getEntries() : 0;
+            this.btbAssociativity = btb != null ? btb.getAssociativity() : 0;
+            this.btbHits = btb != null ? btb.getHits() : 0;
+            this.btbMisses = btb != null ? btb.getMisses() : 0;
+            this.cacheAssociativity = engine.getCache().getAssociativity();
+            this.cacheSets = engine.getCache().getNumSets();
+            this.cacheReplacement = engine.getCache().getReplacement();
+            this.cacheBlockAligned = engine.getCache().isBlockAligned();
+            MemoryHierarchy hierarchy = engine.getMemoryHierarchy();
+            this.memoryHierarchy = hierarchy;
+            this.lowerCaches = hierarchy.getLevels().subList(1, hierarchy.getLevels().size());
+            this.lowerInclusion = new ArrayList<>();
+            for (int level = 1; level < hierarchy.getLevels().size(); level++) {
+                lowerInclusion.add(hierarchy.getInclusion(level));
+            }
+            this.counters = engine.getPerformanceSnapshot();
+            CommonDataBus cdb = engine.getCommonDataBus();
+            this.cdbUnits = new String[cdb.getNumBuses()];
+            this.cdbWrites = new long[cdb.getNumBuses()];
+            this.cdbConflicts = new long[cdb.getNumBuses()];
+            for (int bus = 0; bus < cdb.getNumBuses(); bus++) {
+                cdbUnits[bus] = cdb.getBusUnits(bus);
+                cdbWrites[bus] = cdb.getGrants(bus);
+                cdbConflicts[bus] = cdb.getConflicts(bus);
+            }
+
+            // Keep register order stable: R0..Rn then F0..Fn
+            this.registers = new LinkedHashMap<>();
+            RegisterFile rf = engine.getRegisterFile();
+            for (int i = 0; i < config.numIntegerRegisters; i++) {
+                registers.put("R" + i, rf.getValue("R" + i));
+            }
+            for (int i = 0; i < config.numFloatRegisters; i++) {
+                registers.put("F" + i, rf.getValue("F" + i));
+            }
+            this.memory = new TreeMap<>(engine.getMemory().getSnapshot());
+            this.events = events ? engine.getCycleLog() : null;
+        }
+    }
+
+    public static void main(String[] args) {
+        BatchRunner runner = new BatchRunner();
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage(System.err);
+            System.exit(1);
+        }
+
+        PrintStream out = System.out;
+        if (runner.json && runner.programs.size() > 1) {
+            out.println("[");
+        }
+        boolean failed = false;
+        for (int i = 0; i < runner.programs.size(); i++) {
+            File file = runner.programs.get(i);
+            try {
+                Result result = runner.resume != null ? runner.resume(file) : runner.run(file);
+                if (runner.json) {
+                    out.print(toJson(result));
+                    out.println(runner.programs.size() > 1 && i < runner.programs.size() - 1 ? "," : "");
+                } else {
+                    out.print(toText(result));
+                }
+            } catch (Exception e) {
+                System.err.println("Error running " + file + ": " + e.getMessage());
+                failed = true;
+            }
+        }
+        if (runner.json && runner.programs.size() > 1) {
+            out.println("]");
+        }
+        out.flush();
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        File configFile = null;
+
+        // Headless defaults; can be changed with --set fastForward=false / eventLogMode=...
+        config.fastForward = true;
+        config.eventLogMode = "off";
+        config.checkpointInterval = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--config":
+                    configFile = new File(requireValue(args, ++i, arg));
+                    break;
+                case "--set":
+                    overrides.add(requireValue(args, ++i, arg));
+                    break;
+                case "--reg": {
+                    String[] kv = splitPair(requireValue(args, ++i, arg));
+                    registerInit.put(kv[0].toUpperCase(), parseDouble(kv[1], arg));
+                    break;
+                }
+                case "--mem": {
+                    String[] kv = splitPair(requireValue(args, ++i, arg));
+                    memoryInit.put(parseAddress(kv[0]), parseDouble(kv[1], arg));
+                    break;
+                }
+                case "--max-cycles":
+                    try {
+                        maxCycles = Long.parseLong(requireValue(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid --max-cycles value");
+                    }
+                    break;
+                case "--format": {
+                    String format = requireValue(args, ++i, arg);
+                    if (format.equalsIgnoreCase("json")) {
+                        json = true;
+                    } else if (format.equalsIgnoreCase("text")) {
+                        json = false;
+                    } else {
+                        throw new IllegalArgumentException("Unknown format: " + format);
+                    }
+                    break;
+                }
+                case "--json":
+                    json = true;
+                    break;
+                case "--events":
+                    printEvents = true;
+                    break;
+                case "--checkpoint-out":
+                    checkpointOut = new File(requireValue(args, ++i, arg));
+                    break;
+                case "--checkpoint-every":
+                    try {
+                        checkpointEvery = Long.parseLong(requireValue(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid --checkpoint-every value");
+                    }
+                    if (checkpointEvery < 1) {
+                        throw new IllegalArgumentException("--checkpoint-every must be positive");
+                    }
+                    break;
+                case "--resume":
+                    resume = new File(requireValue(args, ++i, arg));
+                    break;
+                case "-h":
+                case "--help":
+                    printUsage(System.out);
+                    System.exit(0);
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    programs.add(new File(arg));
+            }
+        }
+
+        if (resume != null) {
+            if (!programs.isEmpty() || configFile != null || !registerInit.isEmpty() || !memoryInit.isEmpty()) {
+                throw new IllegalArgumentException(
+                        "--resume takes its program, configuration and state from the checkpoint");
+            }
+            programs.add(resume);
+        }
+        if (programs.isEmpty()) {
+            throw new IllegalArgumentException("No program given");
+        }
+        if (checkpointOut != null && programs.size() > 1) {
+            throw new IllegalArgumentException("--checkpoint-out needs a single program");
+        }
+        if (checkpointEvery > 0 && checkpointOut == null) {
+            throw new IllegalArgumentException("--checkpoint-every needs --checkpoint-out");
+        }
+
+        if (configFile != null) {
+            try {
+                config.load(configFile);
+            } catch (java.io.IOException e) {
+                throw new IllegalArgumentException("Cannot read config file " + configFile + ": " + e.getMessage());
+            }
+        }
+        applyOverrides(config);
+        applyHeadless(config);
+    }
+
+    private void applyOverrides(Config target) {
+        for (String override : overrides) {
+            String[] kv = splitPair(override);
+            target.set(kv[0], kv[1]);
+        }
+    }
+
+    private void applyHeadless(Config target) {
+        // Headless defaults: no stdout tracing, no per-instance history
+        target.traceMemory = false;
+        target.recordIssueHistory = false;
+        if (printEvents && EventLog.Mode.parse(target.eventLogMode) == EventLog.Mode.OFF) {
+            target.eventLogMode = "full";
+        }
+        EventLog.Mode.parse(target.eventLogMode); // Reject unknown modes before running
+    }
+
+    /**
+     * Parse and run a single program with this runner's configuration.
+     */
+    public Result run(File file) throws Exception {
+        List<Instruction> instructions = InstructionParser.parseFile(file);
+
+        ExecutionEngine engine = new ExecutionEngine(config.copy());
+        engine.loadProgram(instructions);
+        for (Map.Entry<String, Double> entry : registerInit.entrySet()) {
+            engine.getRegisterFile().setValue(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<Integer, Double> entry : memoryInit.entrySet()) {
+            engine.getMemory().initialize(entry.getKey(), entry.getValue());
+        }
+
+        boolean completed = runAndSave(engine, file.getPath());
+        return new Result(file.getPath(), engine, completed, config, printEvents);
+    }
+
+    /**
+     * Continue a simulation saved with --checkpoint-out. The saved configuration
+     * (fast-forward included) is used with this runner's headless defaults and
+     * --set overrides on top; --max-cycles still counts from cycle 0. The report
+     * names the program the saved run was started with.
+     */
+    public Result resume(File file) throws Exception {
+        CheckpointFile saved = CheckpointFile.read(file.toPath());
+        Config resumed = saved.getConfig();
+        resumed.eventLogMode = "off";
+        resumed.checkpointInterval = 0;
+        applyOverrides(resumed);
+        applyHeadless(resumed);
+
+        ExecutionEngine engine = saved.createEngine();
+        boolean completed = runAndSave(engine, saved.getProgramName());
+        return new Result(saved.getProgramName(), engine, completed, resumed, printEvents);
+    }
+
+    private boolean runAndSave(ExecutionEngine engine, String programName) throws java.io.IOException {
+        boolean completed;
+        if (checkpointEvery > 0) {
+            do {
+                long stop = Math.min(maxCycles, engine.getCurrentCycle() + checkpointEvery);
+                completed = engine.runToCompletion(stop);
+                CheckpointFile.save(engine, programName, checkpointOut.toPath());
+            } while (!completed && engine.getCurrentCycle() < maxCycles);
+        } else {
+            completed = engine.runToCompletion(maxCycles);
+        }
+        if (checkpointOut != null && checkpointEvery == 0) {
+            CheckpointFile.save(engine, programName, checkpointOut.toPath());
+        }
+        return completed;
+    }
+
+    static String toText(Result r) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== ").append(r.program).append(" ===\n");
+        sb.append(String.format("Cycles:       %d%n", r.cycles));
+        sb.append(String.format("Instructions: %d%n", r.instructions));
+        sb.append(String.format("IPC:          %.4f%n", r.ipc));
+        sb.append(String.format("Completed:    %s%n", r.completed ? "yes" : "no (cycle limit reached)"));
+        sb.append(String.format("Issue width:  %d (cycles issuing", r.issueWidth));
+        for (int k = 0; k < r.issueHistogram.length; k++) {
+            sb.append(String.format(" %d:%d", k, r.issueHistogram[k]));
+        }
+        sb.append(")\n");
+        for (int bus = 0; bus < r.cdbWrites.length; bus++) {
+            sb.append(String.format("CDB %d (%s): %d writes, %.1f%% busy, %d conflict cycles%n", bus,
+                    r.cdbUnits[bus], r.cdbWrites[bus], r.cycles == 0 ? 0.0 : 100.0 * r.cdbWrites[bus] / r.cycles,
+                    r.cdbConflicts[bus]));
+        }
+        PerformanceCounters.Snapshot c = r.counters;
+        sb.append(String.format("CDB requests: %d, %d granted%n", c.cdbRequests, c.cdbGrants));
+        sb.append("Occupancy:   ");
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            sb.append(String.format(" %s %.1f%%", unit, 100.0 * c.getOccupancy(unit)));
+        }
+        sb.append("\n");
+        sb.append("Stalls:      ");
+        boolean stalled = false;
+        for (int reason = 0; reason < PerformanceCounters.STALL_REASONS; reason++) {
+            if (c.getStallCycles(reason) > 0) {
+                sb.append(String.format(" %s %d", PerformanceCounters.stallKey(reason), c.getStallCycles(reason)));
+                stalled = true;
+            }
+        }
+        sb.append(stalled ? " (cycles)\n" : " none\n");
+        sb.append(String.format("Cache:        %d hits, %d misses (%.1f%% hit rate), %d sets x %d ways, %s%s%n",
+                c.cacheHits, c.cacheMisses, 100.0 * c.getCacheHitRate(), r.cacheSets, r.cacheAssociativity,
+                r.cacheReplacement, r.cacheBlockAligned ? ", block-aligned" : ""));
+        for (int i = 0; i < r.lowerCaches.size(); i++) {
+            Cache level = r.lowerCaches.get(i);
+            long accesses = level.getHits() + level.getMisses();
+            sb.append(String.format("L%d:           %d hits, %d misses (%.1f%% hit rate), %d sets x %d ways, %s, %s%n",
+                    i + 2, level.getHits(), level.getMisses(),
+                    accesses == 0 ? 0.0 : 100.0 * level.getHits() / accesses, level.getNumSets(),
+                    level.getAssociativity(), level.getReplacement(), r.lowerInclusion.get(i)));
+        }
+        MemoryHierarchy mh = r.memoryHierarchy;
+        sb.append(String.format("Writes:       %s, %s, %d bytes to memory, written back:",
+                mh.isWriteBack() ? "write-back" : "write-through",
+                mh.isWriteAllocate() ? "write-allocate" : "no-write-allocate", mh.getMemoryWriteBytes()));
+        for (int level = 0; level < mh.getLevels().size(); level++) {
+            sb.append(String.format(" L%d %d", level + 1, mh.getLevels().get(level).getWriteBackBytes()));
+        }
+        sb.append(" bytes\n");
+        WriteBuffer wb = mh.getWriteBuffer();
+        if (wb != null) {
+            sb.append(String.format("Write buffer: %d entries, %d writes, %d coalesced, %d stall cycles%n",
+                    wb.getEntries(), wb.getWrites(), wb.getCoalesced(), wb.getStallCycles()));
+        }
+        if (r.branches > 0) {
+            sb.append(String.format("Branches:     %d (%s), %.1f%% correct, %d mispredicts, %d recovery cycles%n",
+                    r.branches, r.branchPredictor, 100.0 * r.predictionAccuracy, r.mispredictions,
+                    r.recoveryCycles));
+        }
+        if (r.btbEntries > 0) {
+            long lookups = r.btbHits + r.btbMisses;
+            sb.append(String.format("BTB:          %d entries, %d-way, %d hits, %d misses (%.1f%% hit rate)%n",
+                    r.btbEntries, r.btbAssociativity, r.btbHits, r.btbMisses,
+                    lookups == 0 ? 0.0 : 100.0 * r.btbHits / lookups));
+        }
+        if (r.robSize > 0) {
+            sb.append(String.format("Speculation:  ROB %d entries, %d squashed%n", r.robSize, r.squashedInstructions));
+        }
+
+        for (FunctionalUnitPool pool : r.unitPools) {
+            sb.append(String.format("Units %s: %d %s, %d ops, %.1f%% busy, %d select stalls%n",
+                    pool.getUnitClass(), pool.getCount(),
+                    pool.isPipelined() ? "pipelined (II " + pool.getInitiationInterval() + ")" : "unpipelined",
+                    pool.getOperations(), 100.0 * pool.getUtilization(r.cycles), pool.getSelectStalls()));
+        }
+        if (r.storeForwarding) {
+            sb.append(String.format("Forwarded:    %d loads from store buffers%n", r.forwardedLoads));
+        }
+
+        sb.append("Registers:\n");
+        int column = 0;
+        for (Map.Entry<String, Double> entry : r.registers.entrySet()) {
+            if (column == 0) {
+                sb.append(" ");
+            }
+            sb.append(String.format(" %-4s= %-10s", entry.getKey(), formatValue(entry.getValue())));
+            if (++column == 8) {
+                sb.append("\n");
+                column = 0;
+            }
+        }
+        if (column != 0) {
+            sb.append("\n");
+        }
+
+        sb.append("Memory (non-zero 8-byte words):\n");
+        if (r.memory.isEmpty()) {
+            sb.append("  (empty)\n");
+        }
+        for (Map.Entry<Integer, Double> entry : r.memory.entrySet()) {
+            sb.append(String.format("  0x%04X: %s%n", entry.getKey(), formatValue(entry.getValue())));
+        }
+        if (r.events != null) {
+            sb.append("Events:\n");
+            for (String line : r.events) {
+                sb.append("  ").append(line).append("\n");
+            }
+        }
+        sb.append("\n");
+        return sb.toString();
+    }
+
+    static String toJson(Result r) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{");
+        sb.append("\"program\":").append(jsonString(r.program));
+        sb.append(",\"completed\":").append(r.completed);
+        sb.append(",\"cycles\":").append(r.cycles);
+        sb.append(",\"instructions\":").append(r.instructions);
+        sb.append(",\"ipc\":").append(jsonNumber(r.ipc));
+        sb.append(",\"issueWidth\":").append(r.issueWidth);
+        sb.append(",\"issueHistogram\":[");
+        for (int k = 0; k < r.issueHistogram.length; k++) {
+            sb.append(k > 0 ? "," : "").append(r.issueHistogram[k]);
+        }
+        sb.append("]");
+        sb.append(",\"cdbs\":[");
+        for (int bus = 0; bus < r.cdbWrites.length; bus++) {
+            sb.append(bus > 0 ? "," : "").append("{\"units\":").append(jsonString(r.cdbUnits[bus]));
+            sb.append(",\"writes\":").append(r.cdbWrites[bus]);
+            sb.append(",\"utilization\":")
+                    .append(jsonNumber(r.cycles == 0 ? 0.0 : (double) r.cdbWrites[bus] / r.cycles));
+            sb.append(",\"conflicts\":").append(r.cdbConflicts[bus]).append("}");
+        }
+        sb.append("]");
+        sb.append(",\"robSize\":").append(r.robSize);
+        sb.append(",\"branchPredictor\":").append(jsonString(r.branchPredictor));
+        sb.append(",\"branches\":").append(r.branches);
+        sb.append(",\"mispredictions\":").append(r.mispredictions);
+        sb.append(",\"predictionAccuracy\":").append(jsonNumber(r.predictionAccuracy));
+        sb.append(",\"recoveryCycles\":").append(r.recoveryCycles);
+        sb.append(",\"squashedInstructions\":").append(r.squashedInstructions);
+        sb.append(",\"functionalUnits\":[");
+        for (int i = 0; i < r.unitPools.size(); i++) {
+            FunctionalUnitPool pool = r.unitPools.get(i);
+            sb.append(i > 0 ? "," : "").append("{\"unit\":").append(jsonString(pool.getUnitClass().name()));
+            sb.append(",\"count\":").append(pool.getCount());
+            sb.append(",\"pipelined\":").append(pool.isPipelined());
+            sb.append(",\"initiationInterval\":").append(pool.getInitiationInterval());
+            sb.append(",\"operations\":").append(pool.getOperations());
+            sb.append(",\"utilization\":").append(jsonNumber(pool.getUtilization(r.cycles)));
+            sb.append(",\"selectStalls\":").append(pool.getSelectStalls()).append("}");
+        }
+        sb.append("]");
+        sb.append(",\"forwardedLoads\":").append(r.forwardedLoads);
+        if (r.btbEntries > 0) {
+            sb.append(",\"btb\":{\"entries\":").append(r.btbEntries);
+            sb.append(",\"associativity\":").append(r.btbAssociativity);
+            sb.append(",\"hits\":").append(r.btbHits);
+            sb.append(",\"misses\":").append(r.btbMisses).append("}");
+        } else {
+            sb.append(",\"btb\":null");
+        }
+        sb.append(",\"cache\":{\"sets\":").append(r.cacheSets);
+        sb.append(",\"associativity\":").append(r.cacheAssociativity);
+        sb.append(",\"replacement\":").append(jsonString(r.cacheReplacement));
+        sb.append(",\"blockAligned\":").append(r.cacheBlockAligned);
+        sb.append(",\"lowerLevels\":[");
+        for (int i = 0; i < r.lowerCaches.size(); i++) {
+            Cache level = r.lowerCaches.get(i);
+            sb.append(i > 0 ? "," : "").append("{\"level\":").append(i + 2);
+            sb.append(",\"size\":").append(level.getCacheSize());
+            sb.append(",\"blockSize\":").append(level.getBlockSize());
+            sb.append(",\"sets\":").append(level.getNumSets());
+            sb.append(",\"associativity\":").append(level.getAssociativity());
+            sb.append(",\"replacement\":").append(jsonString(level.getReplacement()));
+            sb.append(",\"inclusion\":").append(jsonString(r.lowerInclusion.get(i)));
+            sb.append(",\"latency\":").append(level.getHitLatency());
+            sb.append(",\"hits\":").append(level.getHits());
+            sb.append(",\"misses\":").append(level.getMisses()).append("}");
+        }
+        sb.append("]}");
+        MemoryHierarchy mh = r.memoryHierarchy;
+        sb.append(",\"writes\":{\"writeBack\":").append(mh.isWriteBack());
+        sb.append(",\"writeAllocate\":").append(mh.isWriteAllocate());
+        sb.append(",\"memoryWriteBytes\":").append(mh.getMemoryWriteBytes());
+        sb.append(",\"writeBackBytes\":[");
+        for (int level = 0; level < mh.getLevels().size(); level++) {
+            sb.append(level > 0 ? "," : "").append(mh.getLevels().get(level).getWriteBackBytes());
+        }
+        sb.append("]");
+        WriteBuffer wb = mh.getWriteBuffer();
+        if (wb != null) {
+            sb.append(",\"writeBuffer\":{\"entries\":").append(wb.getEntries());
+            sb.append(",\"writes\":").append(wb.getWrites());
+            sb.append(",\"coalesced\":").append(wb.getCoalesced());
+            sb.append(",\"stallCycles\":").append(wb.getStallCycles()).append("}}");
+        } else {
+            sb.append(",\"writeBuffer\":null}");
+        }
+        PerformanceCounters.Snapshot c = r.counters;
+        sb.append(",\"counters\":{\"cdbRequests\":").append(c.cdbRequests);
+        sb.append(",\"cdbGrants\":").append(c.cdbGrants);
+        sb.append(",\"occupancy\":{");
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            sb.append(unit.ordinal() > 0 ? "," : "").append(jsonString(unit.name())).append(":")
+                    .append(jsonNumber(c.getOccupancy(unit)));
+        }
+        sb.append("},\"stallCycles\":{");
+        for (int reason = 0; reason < PerformanceCounters.STALL_REASONS; reason++) {
+            sb.append(reason > 0 ? "," : "").append(jsonString(PerformanceCounters.stallKey(reason))).append(":")
+                    .append(c.getStallCycles(reason));
+        }
+        sb.append("},\"cacheHits\":").append(c.cacheHits);
+        sb.append(",\"cacheMisses\":").append(c.cacheMisses).append("}");
+
+        sb.append(",\"registers\":{");
+        boolean first = true;
+        for (Map.Entry<String, Double> entry : r.registers.entrySet()) {
+            if (!first) {
+                sb.append(",");
+            }
+            sb.append(jsonString(entry.getKey())).append(":").append(jsonNumber(entry.getValue()));
+            first = false;
+        }
+        sb.append("}");
+
+        sb.append(",\"memory\":{");
+        first = true;
+        for (Map.Entry<Integer, Double> entry : r.memory.entrySet()) {
+            if (!first) {
+                sb.append(",");
+            }
+            sb.append("\"").append(entry.getKey()).append("\":").append(jsonNumber(entry.getValue()));
+            first = false;
+        }
+        sb.append("}");
+
+        if (r.events != null) {
+            sb.append(",\"events\":[");
+            for (int i = 0; i < r.events.size(); i++) {
+                if (i > 0) {
+                    sb.append(",");
+                }
+                sb.append(jsonString(r.events.get(i)));
+            }
+            sb.append("]");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+    static String jsonString(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':
+                    sb.append("\\\"");
+                    break;
+                case '\\':
+                    sb.append("\\\\");
+                    break;
+                case '\n':
+                    sb.append("\\n");
+                    break;
+                case '\t':
+                    sb.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.append("\"").toString();
+    }
+
+    static String jsonNumber(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            return "null";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return String.valueOf((long) value);
+        }
+        return String.format("%.6g", value);
+    }
+
+    static String requireValue(String[] args, int index, String option) {
+        if (index >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + option);
+        }
+        return args[index];
+    }
+
+    static String[] splitPair(String pair) {
+        int eq = pair.indexOf('=');
+        if (eq <= 0) {
+            throw new IllegalArgumentException("Expected key=value but got: " + pair);
+        }
+        return new String[] { pair.substring(0, eq).trim(), pair.substring(eq + 1).trim() };
+    }
+
+    static double parseDouble(String value, String option) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number for " + option + ": " + value);
+        }
+    }
+
+    static int parseAddress(String value) {
+        try {
+            if (value.startsWith("0x") || value.startsWith("0X")) {
+                return Integer.parseInt(value.substring(2), 16);
+            }
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid address: " + value);
+        }
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: java -cp target/classes com.tomasulo.BatchRunner [options] program.asm [more.asm ...]");
+        out.println("Options:");
+        out.println("  --config FILE      Properties file whose keys are Config field names");
+        out.println("  --set KEY=VALUE    Override one Config field (repeatable),");
+        out.println("                     e.g. --set fastForward=false to step every idle cycle");
+        out.println("  --reg NAME=VALUE   Initial register value, e.g. --reg R2=100 (repeatable)");
+        out.println("  --mem ADDR=VALUE   Initial 8-byte memory value, e.g. --mem 0x40=7 (repeatable)");
+        out.println("  --max-cycles N     Stop a program after N cycles (default " + DEFAULT_MAX_CYCLES + ")");
+        out.println("  --format text|json Output format (default text); --json is a shorthand");
+        out.println("  --events           Include the rendered cycle event log (full unless");
+        out.println("                     --set eventLogMode=sampled is given)");
+        out.println("  --checkpoint-out FILE  Save the engine to FILE when the run stops (one program only)");
+        out.println("  --checkpoint-every N   Also save it every N cycles while running");
+        out.println("  --resume FILE      Continue a saved run instead of starting a program;");
+        out.println("                     --max-cycles still counts from cycle 0");
+    }
+}
@@ -0,0 +1,68 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Table of 2-bit saturating counters indexed by branch pc. A counter of 2 or 3
+ * predicts taken; counters start weakly taken.
+ */
+public class BimodalPredictor implements BranchPredictor {
+    protected final byte[] counters;
+    protected final int mask;
+
+    public BimodalPredictor(int entries) {
+        if (entries <= 0 || Integer.bitCount(entries) != 1) {
+            throw new IllegalArgumentException("predictorEntries must be a positive power of two");
+        }
+        counters = new byte[entries];
+        mask = entries - 1;
+        reset();
+    }
+
+    /**
+     * Counter slot used for branch (instructions are 4 bytes apart).
+     */
+    protected int index(Instruction branch) {
+        return (branch.getPc() >> 2) & mask;
+    }
+
+    @Override
+    public boolean predict(Instruction branch) {
+        return counters[index(branch)] >= 2;
+    }
+
+    @Override
+    public void update(Instruction branch, boolean taken) {
+        train(counters, index(branch), taken);
+    }
+
+    @Override
+    public String getName() {
+        return "bimodal";
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(counters, (byte) 2);
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        out.putBytes(counters);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        in.getBytes(counters);
+    }
+
+    static void train(byte[] table, int i, boolean up) {
+        if (up) {
+            if (table[i] < 3) {
+                table[i]++;
+            }
+        } else if (table[i] > 0) {
+            table[i]--;
+        }
+    }
+}
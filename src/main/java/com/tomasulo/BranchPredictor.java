@@ -0,0 +1,75 @@
+package com.tomasulo;
+
+/**
+ * Predicts branch directions at issue (Config.branchPredictor).
+ *
+ * The instruction queue asks for a prediction when it fetches a branch and
+ * the engine trains the predictor with the real outcome once the branch
+ * resolves (at write-back without a reorder buffer, at commit with one).
+ * Other branches may be fetched in between, so a predictor records in the
+ * branch instance (Instruction.setPredictorState) what it based the
+ * prediction on and trains exactly that in update.
+ */
+public interface BranchPredictor {
+
+    /**
+     * Predicted direction of a branch instance just fetched; true = taken.
+     */
+    boolean predict(Instruction branch);
+
+    /**
+     * Fetch continues past branch in direction taken (its prediction, or not
+     * taken when the BTB has no target). Global history is shifted here,
+     * speculatively.
+     */
+    default void fetched(Instruction branch, boolean taken) {
+    }
+
+    /**
+     * Train with the resolved direction of branch.
+     */
+    void update(Instruction branch, boolean taken);
+
+    /**
+     * Fetch went the wrong way past branch and everything fetched after it
+     * is discarded: repair the speculative history to its real outcome.
+     */
+    default void recover(Instruction branch, boolean taken) {
+    }
+
+    String getName();
+
+    /**
+     * Forget all history (simulation reset).
+     */
+    void reset();
+
+    /**
+     * Write the learned history into a checkpoint.
+     */
+    void saveState(Checkpoint.Writer out);
+
+    void restoreState(Checkpoint.Reader in);
+
+    /**
+     * Build the predictor named by config.branchPredictor, sized by
+     * predictorEntries and predictorHistoryBits.
+     */
+    static BranchPredictor create(Config config) {
+        switch (config.branchPredictor.trim().toLowerCase()) {
+            case "taken":
+                return new StaticPredictor(false);
+            case "btfn":
+                return new StaticPredictor(true);
+            case "bimodal":
+                return new BimodalPredictor(config.predictorEntries);
+            case "gshare":
+                return new GsharePredictor(config.predictorEntries, config.predictorHistoryBits);
+            case "tournament":
+                return new TournamentPredictor(config.predictorEntries, config.predictorHistoryBits);
+            default:
+                throw new IllegalArgumentException("Unknown branch predictor: " + config.branchPredictor
+                        + " (use taken, btfn, bimodal, gshare or tournament)");
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Set-associative branch target buffer keyed by branch pc
+ * (Config.btbEntries, Config.btbAssociativity).
+ *
+ * Fetch looks up every branch it issues; only a hit supplies the target early
+ * enough to follow a taken prediction. Taken branches are inserted when they
+ * resolve, replacing the least recently used way of their set.
+ */
+public class BranchTargetBuffer {
+    private final int ways;
+    private final int setMask;
+    private final int[] pcs; // Per slot (set * ways + way): branch pc, -1 = empty
+    private final int[] targets;
+    private final long[] lastUse; // LRU stamps
+    private long clock;
+
+    private long hits;
+    private long misses;
+
+    public BranchTargetBuffer(int entries, int associativity) {
+        if (associativity < 1 || entries < associativity || entries % associativity != 0) {
+            throw new IllegalArgumentException("btbEntries must be a positive multiple of btbAssociativity");
+        }
+        int sets = entries / associativity;
+        if (Integer.bitCount(sets) != 1) {
+            throw new IllegalArgumentException("btbEntries / btbAssociativity must be a power of two");
+        }
+        ways = associativity;
+        setMask = sets - 1;
+        pcs = new int[entries];
+        targets = new int[entries];
+        lastUse = new long[entries];
+        reset();
+    }
+
+    /**
+     * Target recorded for the branch at pc, or -1 on a miss.
+     */
+    public int lookup(int pc) {
+        int slot = find(pc);
+        if (slot < 0) {
+            misses++;
+            return -1;
+        }
+        hits++;
+        lastUse[slot] = ++clock;
+        return targets[slot];
+    }
+
+    /**
+     * Record the target of a taken branch.
+     */
+    public void insert(int pc, int target) {
+        int slot = find(pc);
+        if (slot < 0) {
+            int base = ((pc >> 2) & setMask) * ways;
+            slot = base;
+            for (int i = base + 1; i < base + ways; i++) {
+                if (lastUse[i] < lastUse[slot]) {
+                    slot = i;
+                }
+            }
+            pcs[slot] = pc;
+        }
+        targets[slot] = target;
+        lastUse[slot] = ++clock;
+    }
+
+    private int find(int pc) {
+        int base = ((pc >> 2) & setMask) * ways;
+        for (int i = base; i < base + ways; i++) {
+            if (pcs[i] == pc) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public void reset() {
+        Arrays.fill(pcs, -1);
+        Arrays.fill(targets, 0);
+        Arrays.fill(lastUse, 0);
+        clock = 0;
+        hits = 0;
+        misses = 0;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInts(pcs);
+        out.putInts(targets);
+        out.putLongs(lastUse);
+        out.putLong(clock);
+        out.putLong(hits);
+        out.putLong(misses);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.getInts(pcs);
+        in.getInts(targets);
+        in.getLongs(lastUse);
+        clock = in.getLong();
+        hits = in.getLong();
+        misses = in.getLong();
+    }
+
+    public int getEntries() {
+        return pcs.length;
+    }
+
+    public int getAssociativity() {
+        return ways;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -1,99 +1,346 @@
 package com.tomasulo;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.IntConsumer;
 
 /**
  * Cache implementation for Tomasulo simulator
- * Uses direct-mapped cache with configurable block size
- * 
+ * Set-associative with configurable block size, ways per set
+ * (Config.cacheAssociativity: 1 = direct-mapped, 0 = fully associative) and
+ * replacement policy (Config.cacheReplacement).
+ *
  * Address mapping:
  * - Block offset: log2(blockSize) bits (rightmost)
- * - Index: log2(numBlocks) bits
+ * - Set: (address / blockSize) % number of sets
  * - Tag: remaining bits (leftmost)
+ *
+ * Lines are numbered set * ways + way and kept in flat arrays, with the data
+ * of line i at data[i * blockSize].
+ *
+ * By default a line holds the blockSize bytes starting at the exact address
+ * that missed and only an access to that same address hits. In block-aligned
+ * mode (Config.cacheBlockAligned) a miss fills the aligned block containing
+ * the address, any access inside a cached block hits, and an access crossing
+ * a block boundary needs every block it touches.
  */
 public class Cache {
     private int cacheSize; // Total cache size in bytes
     private int blockSize; // Block size in bytes
-    private int numBlocks; // Number of cache blocks
+    private int numBlocks; // Number of cache blocks (lines)
     private int hitLatency; // Cycles for cache hit
     private int missPenalty; // Additional cycles for cache miss
-
-    private Map<Integer, CacheBlock> cache;
-    private List<String> accessLog;
+    private int associativity; // As configured, 0 = fully associative
+    private String replacement;
+    private long seed; // Random replacement seed
+    private int ways;
+    private int numSets;
+    private boolean blockAligned;
+
+    private int[] tags; // Per line
+    private boolean[] valid;
+    private boolean[] dirty; // Written by a write-back store and not yet written below
+    private int[] blockStart; // Starting address of the cached bytes
+    private byte[] data; // blockSize bytes per line
+    private ReplacementPolicy policy;
+
+    private EventLog events; // Hits and misses are recorded here (may be null)
     private Memory memory; // Reference to memory for loading blocks
+    private EvictionListener evictionListener; // Set by a CacheHierarchy, may be null
 
-    private static class CacheBlock {
-        boolean valid;
-        int tag;
-        byte[] data; // Store individual bytes
-        int blockStartAddress; // Starting address of this cached block
+    // Last access, kept as fields and only formatted by getLastAccess()
+    private boolean hasLastAccess;
+    private boolean lastHit;
+    private int lastAddress;
+    private int lastTag;
+    private int lastIndex;
+    private int lastBytes; // 0 for a load
 
-        CacheBlock(int blockSize) {
-            this.valid = false;
-            this.tag = -1;
-            this.data = new byte[blockSize];
-            this.blockStartAddress = -1;
-        }
+    // Statistics
+    private long hits;
+    private long misses;
+    private long writeBackBytes; // Bytes of dirty lines evicted or invalidated
+
+    /**
+     * Told about every valid line a fill replaces.
+     */
+    interface EvictionListener {
+        void evicted(int start, boolean dirty);
     }
 
+    /**
+     * Direct-mapped cache.
+     */
     public Cache(int cacheSize, int blockSize, int hitLatency, int missPenalty) {
-        this.cacheSize = cacheSize;
-        this.blockSize = blockSize;
-        this.numBlocks = cacheSize / blockSize;
-        this.hitLatency = hitLatency;
-        this.missPenalty = missPenalty;
+        this(cacheSize, blockSize, hitLatency, missPenalty, 1, "lru", 0);
+    }
 
-        this.cache = new HashMap<>();
-        this.accessLog = new ArrayList<>();
+    public Cache(int cacheSize, int blockSize, int hitLatency, int missPenalty, int associativity,
+            String replacement, long seed) {
         this.memory = null;
-
-        // Initialize cache blocks
-        for (int i = 0; i < numBlocks; i++) {
-            cache.put(i, new CacheBlock(blockSize));
-        }
+        reconfigure(cacheSize, blockSize, hitLatency, missPenalty, associativity, replacement, seed);
     }
 
     public void setMemory(Memory memory) {
         this.memory = memory;
     }
 
+    public void setEventLog(EventLog events) {
+        this.events = events;
+    }
+
     /**
-     * Access cache for load operation (NO spatial locality - exact address range)
-     * Returns latency (hitLatency for hit, hitLatency + missPenalty for miss)
+     * Switch between exact-address and block-aligned lines; empties the cache.
      */
-    public int accessLoad(int address, double memoryValue) {
-        int index = (address / blockSize) % numBlocks;
-        int tag = address / (blockSize * numBlocks);
-
-        CacheBlock block = cache.get(index);
+    public void setBlockAligned(boolean blockAligned) {
+        this.blockAligned = blockAligned;
+        reset();
+    }
 
-        if (block.valid && block.tag == tag && block.blockStartAddress == address) {
-            // Cache hit - exact address match
-            accessLog.add(String.format("Cycle: Load HIT - Addr: 0x%X (Tag: %d, Index: %d)",
-                    address, tag, index));
-            return hitLatency;
+    private void recordAccess(boolean hit, int address, int tag, int index, int bytes) {
+        hasLastAccess = true;
+        lastHit = hit;
+        lastAddress = address;
+        lastTag = tag;
+        lastIndex = index;
+        lastBytes = bytes;
+        if (hit) {
+            hits++;
         } else {
-            // Cache miss - load exact bytes from access address (no block alignment)
-            accessLog.add(String.format("Cycle: Load MISS - Addr: 0x%X (Tag: %d, Index: %d)",
-                    address, tag, index));
-
-            // Store exact access address (no alignment)
-            block.valid = true;
-            block.tag = tag;
-            block.blockStartAddress = address;
-
-            // Load exact blockSize bytes starting from access address
-            if (memory != null) {
-                for (int i = 0; i < blockSize; i++) {
-                    block.data[i] = memory.getByte(address + i);
+            misses++;
+        }
+        if (events != null) {
+            events.record(hit ? EventLog.Type.CACHE_HIT : EventLog.Type.CACHE_MISS, address, tag, index, bytes, 0.0,
+                    0.0);
+        }
+    }
+
+    private int setOf(int address) {
+        return (address / blockSize) % numSets;
+    }
+
+    private int tagOf(int address) {
+        return address / (blockSize * numSets);
+    }
+
+    /**
+     * Start of the line that would hold address.
+     */
+    private int lineStart(int address) {
+        return blockAligned ? address - address % blockSize : address;
+    }
+
+    /**
+     * Line holding the bytes starting at address, or -1.
+     */
+    private int find(int set, int tag, int address) {
+        int base = set * ways;
+        for (int line = base; line < base + ways; line++) {
+            if (valid[line] && tags[line] == tag && blockStart[line] == address) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Load blockSize bytes starting at address into a line of set: an invalid
+     * way if there is one, otherwise the policy's victim.
+     */
+    private int fillLine(int set, int tag, int address) {
+        int base = set * ways;
+        int way = -1;
+        for (int w = 0; w < ways; w++) {
+            if (!valid[base + w]) {
+                way = w;
+                break;
+            }
+        }
+        if (way < 0) {
+            way = policy.victim(set);
+        }
+        int line = base + way;
+        boolean evicted = valid[line];
+        boolean evictedDirty = dirty[line];
+        int evictedStart = blockStart[line];
+        if (evictedDirty) {
+            writeBackBytes += blockSize;
+        }
+        valid[line] = true;
+        dirty[line] = false;
+        tags[line] = tag;
+        blockStart[line] = address;
+        if (memory != null) {
+            int offset = line * blockSize;
+            for (int i = 0; i < blockSize; i++) {
+                data[offset + i] = memory.getByte(address + i);
+            }
+        }
+        policy.fill(set, way);
+        if (evicted && evictionListener != null) {
+            evictionListener.evicted(evictedStart, evictedDirty);
+        }
+        return line;
+    }
+
+    /**
+     * Look up size bytes at address without filling anything. Lines found
+     * count as used and the access is counted as one hit or miss; in
+     * block-aligned mode it hits only if every block it touches is cached.
+     */
+    boolean probe(int address, int size, int storeBytes) {
+        boolean hit = true;
+        int first = lineStart(address);
+        int last = blockAligned ? lineStart(address + size - 1) : first;
+        for (int start = first; start <= last; start += blockSize) {
+            int set = setOf(start);
+            int line = find(set, tagOf(start), start);
+            if (line >= 0) {
+                policy.touch(set, line - set * ways);
+            } else {
+                hit = false;
+            }
+        }
+        recordAccess(hit, address, tagOf(address), setOf(address), storeBytes);
+        return hit;
+    }
+
+    /**
+     * True if probe() would hit, without counting the access or touching the
+     * replacement state.
+     */
+    boolean holds(int address, int size) {
+        int first = lineStart(address);
+        int last = blockAligned ? lineStart(address + size - 1) : first;
+        for (int start = first; start <= last; start += blockSize) {
+            if (find(setOf(start), tagOf(start), start) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Load the lines for size bytes at address that are not cached.
+     */
+    void fill(int address, int size) {
+        int first = lineStart(address);
+        int last = blockAligned ? lineStart(address + size - 1) : first;
+        for (int start = first; start <= last; start += blockSize) {
+            int set = setOf(start);
+            int tag = tagOf(start);
+            if (find(set, tag, start) < 0) {
+                fillLine(set, tag, start);
+            }
+        }
+    }
+
+    /**
+     * Drop the lines for size bytes at address (an exclusive level handing
+     * them to the level above). Returns true if any of them was dirty.
+     */
+    boolean remove(int address, int size) {
+        boolean wasDirty = false;
+        int first = lineStart(address);
+        int last = blockAligned ? lineStart(address + size - 1) : first;
+        for (int start = first; start <= last; start += blockSize) {
+            int line = find(setOf(start), tagOf(start), start);
+            if (line >= 0) {
+                wasDirty |= dirty[line];
+                valid[line] = false;
+                dirty[line] = false;
+            }
+        }
+        return wasDirty;
+    }
+
+    /**
+     * Mark the lines for size bytes at address dirty. Returns false if some
+     * of them are not cached; the write then has to go further down.
+     */
+    boolean markDirty(int address, int size) {
+        boolean all = true;
+        int first = lineStart(address);
+        int last = blockAligned ? lineStart(address + size - 1) : first;
+        for (int start = first; start <= last; start += blockSize) {
+            int line = find(setOf(start), tagOf(start), start);
+            if (line >= 0) {
+                dirty[line] = true;
+            } else {
+                all = false;
+            }
+        }
+        return all;
+    }
+
+    /**
+     * Drop every line holding any of the length bytes at start (an inclusive
+     * level below evicted them). Returns the bytes of dirty lines dropped,
+     * which still have to be written back.
+     */
+    int invalidateRange(int start, int length) {
+        int dirtyBytes = 0;
+        for (int line = 0; line < numBlocks; line++) {
+            if (valid[line] && blockStart[line] < start + length && start < blockStart[line] + blockSize) {
+                if (dirty[line]) {
+                    dirtyBytes += blockSize;
                 }
+                valid[line] = false;
+                dirty[line] = false;
             }
+        }
+        writeBackBytes += dirtyBytes;
+        return dirtyBytes;
+    }
 
-            return hitLatency + missPenalty;
+    /**
+     * Clear every dirty bit, counting the lines as written back, and pass the
+     * start of each to sink.
+     */
+    void writeBackDirty(IntConsumer sink) {
+        for (int line = 0; line < numBlocks; line++) {
+            if (valid[line] && dirty[line]) {
+                dirty[line] = false;
+                writeBackBytes += blockSize;
+                sink.accept(blockStart[line]);
+            }
+        }
+    }
+
+    void setEvictionListener(EvictionListener evictionListener) {
+        this.evictionListener = evictionListener;
+    }
+
+    /**
+     * Access size bytes at address, loading what is missing. Returns
+     * hitLatency for a hit, hitLatency + missPenalty for a miss.
+     */
+    private int access(int address, int size, int storeBytes) {
+        if (probe(address, size, storeBytes)) {
+            return hitLatency;
         }
+        fill(address, size);
+        return hitLatency + missPenalty;
+    }
+
+    /**
+     * Access cache for a doubleword load
+     * Returns latency (hitLatency for hit, hitLatency + missPenalty for miss)
+     */
+    public int accessLoad(int address) {
+        return access(address, 8, 0);
+    }
+
+    /**
+     * Check cache for load operation and return latency, loading the block(s)
+     * on a miss
+     * Returns latency (hitLatency for hit, hitLatency + missPenalty for miss)
+     */
+    public int checkLoadLatency(int address, boolean isWordLoad) {
+        return access(address, isWordLoad ? 4 : 8, 0);
     }
 
     /**
@@ -103,53 +350,24 @@ public class Cache {
      * Returns latency (hitLatency for hit, hitLatency + missPenalty for miss)
      */
     public int checkStoreLatency(int address, boolean isWordStore) {
-        int index = (address / blockSize) % numBlocks;
-        int tag = address / (blockSize * numBlocks);
         int numBytes = isWordStore ? 4 : 8;
-
-        CacheBlock block = cache.get(index);
-
-        if (block.valid && block.tag == tag && block.blockStartAddress == address) {
-            // Cache hit - exact address match
-            accessLog.add(String.format("Cycle: Store HIT - Addr: 0x%X (Tag: %d, Index: %d) [%d bytes]",
-                    address, tag, index, numBytes));
-            return hitLatency;
-        } else {
-            // Cache miss - load exact bytes from access address (no block alignment)
-            accessLog.add(String.format("Cycle: Store MISS - Addr: 0x%X (Tag: %d, Index: %d) [%d bytes]",
-                    address, tag, index, numBytes));
-
-            // Store exact access address (no alignment)
-            block.valid = true;
-            block.tag = tag;
-            block.blockStartAddress = address;
-
-            // Load exact blockSize bytes starting from access address
-            if (memory != null) {
-                for (int i = 0; i < blockSize; i++) {
-                    block.data[i] = memory.getByte(address + i);
-                }
-            }
-
-            return hitLatency + missPenalty;
-        }
+        return access(address, numBytes, numBytes);
     }
 
     /**
      * Write only the store value to cache (assumes block is already loaded)
-     * Should be called on the last cycle of store execution
+     * Should be called on the last cycle of store execution. Nothing is
+     * written if the block has been evicted since.
      */
     public void writeStoreValue(int address, double memoryValue, boolean isWordStore) {
-        int index = (address / blockSize) % numBlocks;
         int numBytes = isWordStore ? 4 : 8;
-
-        CacheBlock block = cache.get(index);
-
-        // Update bytes starting from position 0 (since we store exact address range)
-        long intValue = (long) memoryValue;
-        int shiftStart = (numBytes == 4) ? 24 : 56;
-        for (int i = 0; i < numBytes && i < blockSize; i++) {
-            block.data[i] = (byte) ((intValue >> (shiftStart - i * 8)) & 0xFF);
+        if (blockAligned) {
+            writeAligned(address, memoryValue, numBytes, false);
+            return;
+        }
+        int line = find(setOf(address), tagOf(address), address);
+        if (line >= 0) {
+            writeBytes(line, memoryValue, numBytes);
         }
     }
 
@@ -160,32 +378,49 @@ public class Cache {
      * then update)
      */
     public void writeToCache(int address, double memoryValue, boolean isWordStore) {
-        int index = (address / blockSize) % numBlocks;
-        int tag = address / (blockSize * numBlocks);
-        int numBytes = isWordStore ? 4 : 8;
-
-        CacheBlock block = cache.get(index);
-
-        // If cache miss, load exact bytes from access address (no alignment)
-        if (!block.valid || block.tag != tag || block.blockStartAddress != address) {
-            // Store exact access address (no alignment)
-            block.valid = true;
-            block.tag = tag;
-            block.blockStartAddress = address;
-
-            // Load exact blockSize bytes starting from access address
-            if (memory != null) {
-                for (int i = 0; i < blockSize; i++) {
-                    block.data[i] = memory.getByte(address + i);
-                }
-            }
+        if (blockAligned) {
+            writeAligned(address, memoryValue, isWordStore ? 4 : 8, true);
+            return;
         }
+        int set = setOf(address);
+        int tag = tagOf(address);
+        int line = find(set, tag, address);
+        if (line < 0) {
+            line = fillLine(set, tag, address);
+        }
+        writeBytes(line, memoryValue, isWordStore ? 4 : 8);
+    }
 
-        // Update bytes starting from position 0 (since we store exact address range)
+    // Update bytes starting from position 0 (since we store exact address range)
+    private void writeBytes(int line, double memoryValue, int numBytes) {
         long intValue = (long) memoryValue;
         int shiftStart = (numBytes == 4) ? 24 : 56;
+        int offset = line * blockSize;
         for (int i = 0; i < numBytes && i < blockSize; i++) {
-            block.data[i] = (byte) ((intValue >> (shiftStart - i * 8)) & 0xFF);
+            data[offset + i] = (byte) ((intValue >> (shiftStart - i * 8)) & 0xFF);
+        }
+    }
+
+    /**
+     * Block-aligned store: each byte goes to its offset in the block holding
+     * it. Blocks that are not cached are filled first if allocate is set,
+     * skipped otherwise.
+     */
+    private void writeAligned(int address, double memoryValue, int numBytes, boolean allocate) {
+        long intValue = (long) memoryValue;
+        int shiftStart = numBytes * 8 - 8;
+        for (int i = 0; i < numBytes; i++) {
+            int a = address + i;
+            int start = a - a % blockSize;
+            int set = setOf(start);
+            int tag = tagOf(start);
+            int line = find(set, tag, start);
+            if (line < 0 && allocate) {
+                line = fillLine(set, tag, start);
+            }
+            if (line >= 0) {
+                data[line * blockSize + a - start] = (byte) ((intValue >> (shiftStart - i * 8)) & 0xFF);
+            }
         }
     }
 
@@ -204,44 +439,100 @@ public class Cache {
      * Check if address would hit without modifying cache state
      */
     public boolean wouldHit(int address) {
-        int index = (address / blockSize) % numBlocks;
-        int tag = address / (blockSize * numBlocks);
-
-        CacheBlock block = cache.get(index);
-        return block.valid && block.tag == tag;
+        return find(setOf(address), tagOf(address), lineStart(address)) >= 0;
     }
 
     public void invalidate(int address) {
-        int index = (address / blockSize) % numBlocks;
-        CacheBlock block = cache.get(index);
-        block.valid = false;
+        int line = find(setOf(address), tagOf(address), lineStart(address));
+        if (line >= 0) {
+            valid[line] = false;
+            dirty[line] = false;
+        }
     }
 
     public void reset() {
-        for (CacheBlock block : cache.values()) {
-            block.valid = false;
-            block.tag = -1;
+        Arrays.fill(valid, false);
+        Arrays.fill(dirty, false);
+        Arrays.fill(tags, -1);
+        policy.reset();
+        hasLastAccess = false;
+        hits = 0;
+        misses = 0;
+        writeBackBytes = 0;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInt(numBlocks);
+        out.putInt(ways);
+        out.putString(policy.getName());
+        out.putBoolean(blockAligned);
+        out.putBooleans(valid);
+        out.putBooleans(dirty);
+        out.putInts(tags);
+        out.putInts(blockStart);
+        out.putBytes(data);
+        policy.saveState(out);
+        out.putBoolean(hasLastAccess);
+        out.putBoolean(lastHit);
+        out.putInt(lastAddress);
+        out.putInt(lastTag);
+        out.putInt(lastIndex);
+        out.putInt(lastBytes);
+        out.putLong(hits);
+        out.putLong(misses);
+        out.putLong(writeBackBytes);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.expect(in.getInt(), numBlocks);
+        in.expect(in.getInt(), ways);
+        if (!policy.getName().equals(in.getString())) {
+            throw new IllegalArgumentException("Checkpoint does not match this engine's configuration");
         }
-        accessLog.clear();
+        if (in.getBoolean() != blockAligned) {
+            throw new IllegalArgumentException("Checkpoint does not match this engine's configuration");
+        }
+        in.getBooleans(valid);
+        in.getBooleans(dirty);
+        in.getInts(tags);
+        in.getInts(blockStart);
+        in.getBytes(data);
+        policy.restoreState(in);
+        hasLastAccess = in.getBoolean();
+        lastHit = in.getBoolean();
+        lastAddress = in.getInt();
+        lastTag = in.getInt();
+        lastIndex = in.getInt();
+        lastBytes = in.getInt();
+        hits = in.getLong();
+        misses = in.getLong();
+        writeBackBytes = in.getLong();
     }
 
+    /**
+     * Cache accesses still held in the event log, rendered as text.
+     */
     public List<String> getAccessLog() {
-        return new ArrayList<>(accessLog);
+        if (events == null) {
+            return new ArrayList<>();
+        }
+        return events.render(EventLog.Type.CACHE_HIT, EventLog.Type.CACHE_MISS);
     }
 
     public String getLastAccess() {
-        if (accessLog.isEmpty()) {
+        if (!hasLastAccess) {
             return "";
         }
-        return accessLog.get(accessLog.size() - 1);
+        return String.format("%s %s - Addr: 0x%X (Tag: %d, Index: %d)%s", lastBytes == 0 ? "Load" : "Store",
+                lastHit ? "HIT" : "MISS", lastAddress, lastTag, lastIndex,
+                lastBytes == 0 ? "" : " [" + lastBytes + " bytes]");
     }
 
     public Map<Integer, String> getCacheSnapshot() {
         Map<Integer, String> snapshot = new HashMap<>();
         for (int i = 0; i < numBlocks; i++) {
-            CacheBlock block = cache.get(i);
-            if (block.valid) {
-                snapshot.put(i, String.format("Tag: %d, Valid: true", block.tag));
+            if (valid[i]) {
+                snapshot.put(i, String.format("Tag: %d, Valid: true", tags[i]));
             } else {
                 snapshot.put(i, "Valid: false");
             }
@@ -297,19 +588,14 @@ public class Cache {
     }
 
     /**
-     * Returns a detailed snapshot for GUI consumption.
+     * Returns a detailed snapshot for GUI consumption, keyed by line
+     * (set * ways + way).
      */
     public Map<Integer, CacheBlockInfo> getDetailedSnapshot() {
         Map<Integer, CacheBlockInfo> snap = new HashMap<>();
         for (int i = 0; i < numBlocks; i++) {
-            CacheBlock block = cache.get(i);
-            if (block != null) {
-                snap.put(i,
-                        new CacheBlockInfo(block.valid, block.tag, block.data,
-                                block.blockStartAddress));
-            } else {
-                snap.put(i, new CacheBlockInfo(false, -1, new byte[0], -1));
-            }
+            snap.put(i, new CacheBlockInfo(valid[i], tags[i],
+                    Arrays.copyOfRange(data, i * blockSize, (i + 1) * blockSize), blockStart[i]));
         }
         return snap;
     }
@@ -335,18 +621,68 @@ public class Cache {
         return missPenalty;
     }
 
+    public int getAssociativity() {
+        return ways;
+    }
+
+    public int getNumSets() {
+        return numSets;
+    }
+
+    public boolean isBlockAligned() {
+        return blockAligned;
+    }
+
+    public String getReplacement() {
+        return policy.getName();
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Bytes of dirty lines this level has written back to the level below.
+     */
+    public long getWriteBackBytes() {
+        return writeBackBytes;
+    }
+
     // Setters for reconfiguration
     public void reconfigure(int cacheSize, int blockSize, int hitLatency, int missPenalty) {
+        reconfigure(cacheSize, blockSize, hitLatency, missPenalty, associativity, replacement, seed);
+    }
+
+    public void reconfigure(int cacheSize, int blockSize, int hitLatency, int missPenalty, int associativity,
+            String replacement, long seed) {
+        int blocks = cacheSize / blockSize;
+        int w = associativity == 0 ? blocks : associativity;
+        if (w < 1 || blocks % w != 0) {
+            throw new IllegalArgumentException(
+                    "cacheAssociativity must divide cacheSize / blockSize (0 = fully associative)");
+        }
+        this.policy = ReplacementPolicy.create(replacement, blocks / w, w, seed);
         this.cacheSize = cacheSize;
         this.blockSize = blockSize;
-        this.numBlocks = cacheSize / blockSize;
+        this.numBlocks = blocks;
         this.hitLatency = hitLatency;
         this.missPenalty = missPenalty;
-
-        this.cache.clear();
-        for (int i = 0; i < numBlocks; i++) {
-            cache.put(i, new CacheBlock(blockSize));
-        }
-        accessLog.clear();
+        this.associativity = associativity;
+        this.replacement = replacement;
+        this.seed = seed;
+        this.ways = w;
+        this.numSets = blocks / w;
+
+        tags = new int[blocks];
+        valid = new boolean[blocks];
+        dirty = new boolean[blocks];
+        blockStart = new int[blocks];
+        data = new byte[blocks * blockSize];
+        Arrays.fill(blockStart, -1);
+        reset();
     }
 }
@@ -0,0 +1,334 @@
+package com.tomasulo;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Chain of up to three Cache levels (Config.cacheSize, l2Size, l3Size).
+ *
+ * An access probes the levels top down and stops at the first hit, adding the
+ * latency of each level probed, plus cacheMissPenalty if every level missed.
+ * The levels that missed are then filled bottom up. An exclusive level is
+ * never filled on the way; it receives the lines evicted from the level above
+ * and gives up a line when it hits. Evictions from an inclusive level
+ * invalidate any copy of the line above it. Each level counts its own hits and
+ * misses; only L1 records events.
+ *
+ * Stores are write-through (every store goes on to memory) or write-back
+ * (the store marks its L1 line dirty; a dirty line is written to the level
+ * below when it leaves, and to memory if no level below holds it), with or
+ * without write-allocate. checkStoreLatency only looks the store up (and
+ * allocates); the write itself, with its dirty bit or memory traffic, happens
+ * in writeStoreValue when the store retires, so a squashed store sends
+ * nothing anywhere. Writes to memory pass through the optional WriteBuffer;
+ * the cycles a write waits for a free entry are added to the access that
+ * caused it. writeBackDirty writes back what is still dirty when the run
+ * ends. All of this only decides timing and traffic: values are always read
+ * from and written to Memory by the engine.
+ */
+public class CacheHierarchy implements MemoryHierarchy {
+    public static final String NINE = "nine";
+    public static final String INCLUSIVE = "inclusive";
+    public static final String EXCLUSIVE = "exclusive";
+
+    private final Cache[] levels;
+    private final String[] inclusion; // Per level, relative to the levels above
+    private final int memoryPenalty; // Extra cycles when every level misses
+    private final boolean writeBack;
+    private final boolean writeAllocate;
+    private final WriteBuffer writeBuffer; // Null when writes to memory are free
+
+    private int cycle; // Current engine cycle, for the write buffer
+    private int waitCycles; // Write buffer waits of the access in progress
+    private long memoryWriteBytes; // Bytes sent to memory
+
+    public CacheHierarchy(Config config, Memory memory, EventLog events) {
+        if (config.writeBufferEntries < 0) {
+            throw new IllegalArgumentException("writeBufferEntries must not be negative");
+        }
+        if (config.l3Size > 0 && config.l2Size <= 0) {
+            throw new IllegalArgumentException("l3Size needs an L2 (l2Size > 0)");
+        }
+        List<Cache> built = new ArrayList<>();
+        List<String> policies = new ArrayList<>();
+        built.add(new Cache(config.cacheSize, config.blockSize, config.cacheHitLatency, config.cacheMissPenalty,
+                config.cacheAssociativity, config.cacheReplacement, config.cacheRandomSeed));
+        policies.add(NINE);
+        if (config.l2Size > 0) {
+            built.add(new Cache(config.l2Size, config.l2BlockSize, config.l2Latency, config.cacheMissPenalty,
+                    config.l2Associativity, config.l2Replacement, config.cacheRandomSeed));
+            policies.add(parseInclusion("l2Inclusion", config.l2Inclusion));
+        }
+        if (config.l3Size > 0) {
+            built.add(new Cache(config.l3Size, config.l3BlockSize, config.l3Latency, config.cacheMissPenalty,
+                    config.l3Associativity, config.l3Replacement, config.cacheRandomSeed));
+            policies.add(parseInclusion("l3Inclusion", config.l3Inclusion));
+        }
+        levels = built.toArray(new Cache[0]);
+        inclusion = policies.toArray(new String[0]);
+        for (int k = 1; k < levels.length; k++) {
+            // Lines move whole between an exclusive level and the one above
+            if (EXCLUSIVE.equals(inclusion[k]) && levels[k].getBlockSize() != levels[k - 1].getBlockSize()) {
+                throw new IllegalArgumentException("An exclusive L" + (k + 1)
+                        + " needs the same block size as the level above it");
+            }
+        }
+        memoryPenalty = config.cacheMissPenalty;
+        writeBack = config.cacheWriteBack;
+        writeAllocate = config.cacheWriteAllocate;
+        writeBuffer = config.writeBufferEntries > 0
+                ? new WriteBuffer(config.writeBufferEntries, levels[levels.length - 1].getBlockSize(),
+                        config.cacheMissPenalty)
+                : null;
+
+        for (int k = 0; k < levels.length; k++) {
+            Cache cache = levels[k];
+            cache.setMemory(memory);
+            cache.setBlockAligned(config.cacheBlockAligned);
+            int level = k;
+            cache.setEvictionListener((start, dirty) -> evicted(level, start, dirty));
+        }
+        levels[0].setEventLog(events);
+    }
+
+    private static String parseInclusion(String key, String value) {
+        switch (value.trim().toLowerCase()) {
+            case NINE:
+                return NINE;
+            case INCLUSIVE:
+                return INCLUSIVE;
+            case EXCLUSIVE:
+                return EXCLUSIVE;
+            default:
+                throw new IllegalArgumentException(
+                        "Unknown " + key + ": " + value + " (use nine, inclusive or exclusive)");
+        }
+    }
+
+    /**
+     * The line at start was replaced in level.
+     */
+    private void evicted(int level, int start, boolean dirty) {
+        int length = levels[level].getBlockSize();
+        if (INCLUSIVE.equals(inclusion[level])) {
+            for (int k = 0; k < level; k++) {
+                // A dirty copy above is newer than the line leaving; it goes to memory
+                int dirtyBytes = levels[k].invalidateRange(start, length);
+                if (dirtyBytes > 0) {
+                    toMemory(start, dirtyBytes);
+                }
+            }
+        }
+        if (level + 1 < levels.length && EXCLUSIVE.equals(inclusion[level + 1])) {
+            levels[level + 1].fill(start, length);
+            if (dirty) {
+                levels[level + 1].markDirty(start, length);
+            }
+        } else if (dirty) {
+            writeBelow(level + 1, start, length);
+        }
+    }
+
+    /**
+     * Write length bytes at start into the first level from level down that
+     * holds them (marking it dirty), or to memory.
+     */
+    private void writeBelow(int level, int start, int length) {
+        for (int k = level; k < levels.length; k++) {
+            if (levels[k].markDirty(start, length)) {
+                return;
+            }
+        }
+        toMemory(start, length);
+    }
+
+    private void toMemory(int start, int length) {
+        memoryWriteBytes += length;
+        if (writeBuffer != null) {
+            waitCycles += writeBuffer.write(start, cycle + waitCycles);
+        }
+    }
+
+    private int access(int address, int size, int storeBytes) {
+        int latency = 0;
+        int found = levels.length; // Memory
+        for (int k = 0; k < levels.length; k++) {
+            latency += levels[k].getHitLatency();
+            if (levels[k].probe(address, size, storeBytes)) {
+                found = k;
+                break;
+            }
+        }
+        boolean wasDirty = false;
+        if (found == levels.length) {
+            latency += memoryPenalty;
+        } else if (EXCLUSIVE.equals(inclusion[found])) {
+            wasDirty = levels[found].remove(address, size);
+        }
+        int top = found;
+        for (int k = found - 1; k >= 0; k--) {
+            if (!EXCLUSIVE.equals(inclusion[k])) {
+                levels[k].fill(address, size);
+                top = k;
+            }
+        }
+        if (wasDirty) {
+            // The dirty line moved up out of an exclusive level
+            levels[top].markDirty(address, size);
+        }
+        return latency;
+    }
+
+    @Override
+    public void setCycle(int cycle) {
+        this.cycle = cycle;
+    }
+
+    @Override
+    public int checkLoadLatency(int address, boolean isWordLoad) {
+        waitCycles = 0;
+        int latency = access(address, isWordLoad ? 4 : 8, 0);
+        return latency + waitCycles;
+    }
+
+    @Override
+    public int checkStoreLatency(int address, boolean isWordStore) {
+        int numBytes = isWordStore ? 4 : 8;
+        waitCycles = 0;
+        int latency;
+        if (writeAllocate) {
+            latency = access(address, numBytes, numBytes);
+        } else {
+            // The store does not wait for the block; a miss only sends the write below
+            levels[0].probe(address, numBytes, numBytes);
+            latency = levels[0].getHitLatency();
+        }
+        return latency + waitCycles;
+    }
+
+    @Override
+    public int peekStoreLatency(int address, boolean isWordStore) {
+        if (!writeAllocate) {
+            return levels[0].getHitLatency();
+        }
+        int size = isWordStore ? 4 : 8;
+        int latency = 0;
+        for (Cache cache : levels) {
+            latency += cache.getHitLatency();
+            if (cache.holds(address, size)) {
+                return latency;
+            }
+        }
+        return latency + memoryPenalty;
+    }
+
+    @Override
+    public int writeStoreValue(int address, double value, boolean isWordStore) {
+        int numBytes = isWordStore ? 4 : 8;
+        waitCycles = 0;
+        levels[0].writeStoreValue(address, value, isWordStore);
+        if (!writeBack) {
+            toMemory(address, numBytes);
+        } else if (!levels[0].markDirty(address, numBytes)) {
+            // Not allocated, or evicted since checkStoreLatency
+            writeBelow(1, address, numBytes);
+        }
+        return waitCycles;
+    }
+
+    @Override
+    public void writeBackDirty() {
+        // Top down, so a line written back into a lower level is written back again from there
+        for (int k = 0; k < levels.length; k++) {
+            int below = k + 1;
+            int length = levels[k].getBlockSize();
+            levels[k].writeBackDirty(start -> {
+                for (int j = below; j < levels.length; j++) {
+                    if (levels[j].markDirty(start, length)) {
+                        return;
+                    }
+                }
+                // Not timed: the run is over, so this bypasses the write buffer
+                memoryWriteBytes += length;
+            });
+        }
+    }
+
+    @Override
+    public int getHitLatency() {
+        return levels[0].getHitLatency();
+    }
+
+    @Override
+    public List<Cache> getLevels() {
+        return Collections.unmodifiableList(Arrays.asList(levels));
+    }
+
+    @Override
+    public String getInclusion(int level) {
+        return inclusion[level];
+    }
+
+    @Override
+    public WriteBuffer getWriteBuffer() {
+        return writeBuffer;
+    }
+
+    @Override
+    public long getMemoryWriteBytes() {
+        return memoryWriteBytes;
+    }
+
+    @Override
+    public boolean isWriteBack() {
+        return writeBack;
+    }
+
+    @Override
+    public boolean isWriteAllocate() {
+        return writeAllocate;
+    }
+
+    @Override
+    public void reset() {
+        for (Cache cache : levels) {
+            cache.reset();
+        }
+        if (writeBuffer != null) {
+            writeBuffer.reset();
+        }
+        memoryWriteBytes = 0;
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        out.putInt(levels.length);
+        for (Cache cache : levels) {
+            cache.saveState(out);
+        }
+        out.putBoolean(writeBuffer != null);
+        if (writeBuffer != null) {
+            writeBuffer.saveState(out);
+        }
+        out.putInt(cycle);
+        out.putLong(memoryWriteBytes);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        in.expect(in.getInt(), levels.length);
+        for (Cache cache : levels) {
+            cache.restoreState(in);
+        }
+        if (in.getBoolean() != (writeBuffer != null)) {
+            throw new IllegalArgumentException("Checkpoint does not match this engine's configuration");
+        }
+        if (writeBuffer != null) {
+            writeBuffer.restoreState(in);
+        }
+        cycle = in.getInt();
+        memoryWriteBytes = in.getLong();
+    }
+}
@@ -0,0 +1,323 @@
+package com.tomasulo;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * State of an ExecutionEngine between two cycles (see ExecutionEngine.checkpoint()).
+ *
+ * Each component writes its fields into a compact byte array through a Writer
+ * and reads them back through a Reader. Instruction instances in flight are
+ * written as indexes into a table of instances whose own timing fields are
+ * kept in a second array, so restoring puts the same objects back into the
+ * stations, buffers and bus. Memory pages are shared copy-on-write with the
+ * live Memory, so a checkpoint only costs the pages written after it was taken.
+ */
+public class Checkpoint {
+    private final int cycle;
+    private final Instruction[] instances;
+    private final byte[] instanceState;
+    private final byte[] state;
+    private final byte[][] memoryPages;
+
+    Checkpoint(int cycle, Instruction[] instances, byte[] instanceState, byte[] state, byte[][] memoryPages) {
+        this.cycle = cycle;
+        this.instances = instances;
+        this.instanceState = instanceState;
+        this.state = state;
+        this.memoryPages = memoryPages;
+    }
+
+    Checkpoint(int cycle, Writer out, byte[][] memoryPages) {
+        this.cycle = cycle;
+        this.instances = out.instances.toArray(new Instruction[0]);
+        Writer instanceOut = new Writer();
+        for (Instruction inst : instances) {
+            instanceOut.putInt(inst.getPc());
+            inst.saveState(instanceOut);
+        }
+        this.instanceState = instanceOut.toByteArray();
+        this.state = out.toByteArray();
+        this.memoryPages = memoryPages;
+    }
+
+    /**
+     * Cycle the engine had completed when the checkpoint was taken.
+     */
+    public int getCycle() {
+        return cycle;
+    }
+
+    /**
+     * Bytes held by this checkpoint alone; memory pages are shared and not counted.
+     */
+    public int getStateSize() {
+        return state.length + instanceState.length;
+    }
+
+    byte[][] getMemoryPages() {
+        return memoryPages;
+    }
+
+    int getInstanceCount() {
+        return instances.length;
+    }
+
+    byte[] getInstanceState() {
+        return instanceState;
+    }
+
+    byte[] getState() {
+        return state;
+    }
+
+    /**
+     * Reader over the component state.
+     */
+    Reader reader() {
+        return new Reader(state, instances);
+    }
+
+    /**
+     * Put the instances in flight back to their state at the checkpoint.
+     */
+    void restoreInstances() {
+        Reader in = new Reader(instanceState, instances);
+        for (Instruction inst : instances) {
+            in.getInt(); // pc, used to rebuild the instance elsewhere
+            inst.restoreState(in);
+        }
+    }
+
+    /**
+     * Growable buffer of primitive fields.
+     */
+    public static class Writer {
+        private ByteBuffer buf = ByteBuffer.allocate(4096);
+        private final Map<Instruction, Integer> ids = new IdentityHashMap<>();
+        private final List<Instruction> instances = new ArrayList<>();
+
+        private ByteBuffer room(int bytes) {
+            if (buf.remaining() < bytes) {
+                ByteBuffer bigger = ByteBuffer.allocate(Math.max(buf.capacity() * 2, buf.position() + bytes));
+                buf.flip();
+                bigger.put(buf);
+                buf = bigger;
+            }
+            return buf;
+        }
+
+        public void putInt(int v) {
+            room(4).putInt(v);
+        }
+
+        public void putLong(long v) {
+            room(8).putLong(v);
+        }
+
+        public void putDouble(double v) {
+            room(8).putDouble(v);
+        }
+
+        public void putBoolean(boolean v) {
+            room(1).put((byte) (v ? 1 : 0));
+        }
+
+        /**
+         * A string or null.
+         */
+        public void putString(String s) {
+            if (s == null) {
+                putInt(-1);
+                return;
+            }
+            putInt(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                room(2).putChar(s.charAt(i));
+            }
+        }
+
+        public void putInts(int[] v) {
+            putInt(v.length);
+            room(v.length * 4).asIntBuffer().put(v);
+            buf.position(buf.position() + v.length * 4);
+        }
+
+        public void putLongs(long[] v) {
+            putInt(v.length);
+            room(v.length * 8).asLongBuffer().put(v);
+            buf.position(buf.position() + v.length * 8);
+        }
+
+        public void putDoubles(double[] v) {
+            putInt(v.length);
+            room(v.length * 8).asDoubleBuffer().put(v);
+            buf.position(buf.position() + v.length * 8);
+        }
+
+        public void putBytes(byte[] v) {
+            putInt(v.length);
+            room(v.length).put(v);
+        }
+
+        public void putBooleans(boolean[] v) {
+            putInt(v.length);
+            room(v.length);
+            for (boolean b : v) {
+                buf.put((byte) (b ? 1 : 0));
+            }
+        }
+
+        /**
+         * Reference to an instruction instance (or null), written as its index
+         * in the checkpoint's instance table.
+         */
+        public void putInstruction(Instruction inst) {
+            if (inst == null) {
+                putInt(-1);
+                return;
+            }
+            Integer id = ids.get(inst);
+            if (id == null) {
+                id = instances.size();
+                ids.put(inst, id);
+                instances.add(inst);
+            }
+            putInt(id);
+        }
+
+        byte[] toByteArray() {
+            byte[] bytes = new byte[buf.position()];
+            buf.flip();
+            buf.get(bytes);
+            buf.limit(buf.capacity());
+            return bytes;
+        }
+    }
+
+    /**
+     * Reads fields back in the order a Writer wrote them.
+     */
+    public static class Reader {
+        private final ByteBuffer buf;
+        private final Instruction[] instances;
+
+        Reader(byte[] bytes, Instruction[] instances) {
+            this.buf = ByteBuffer.wrap(bytes);
+            this.instances = instances;
+        }
+
+        public int getInt() {
+            return buf.getInt();
+        }
+
+        public long getLong() {
+            return buf.getLong();
+        }
+
+        public double getDouble() {
+            return buf.getDouble();
+        }
+
+        public boolean getBoolean() {
+            return buf.get() != 0;
+        }
+
+        public String getString() {
+            int length = buf.getInt();
+            if (length < 0) {
+                return null;
+            }
+            char[] chars = new char[length];
+            for (int i = 0; i < length; i++) {
+                chars[i] = buf.getChar();
+            }
+            return new String(chars);
+        }
+
+        public int[] getInts() {
+            int[] v = new int[buf.getInt()];
+            buf.asIntBuffer().get(v);
+            buf.position(buf.position() + v.length * 4);
+            return v;
+        }
+
+        public long[] getLongs() {
+            long[] v = new long[buf.getInt()];
+            buf.asLongBuffer().get(v);
+            buf.position(buf.position() + v.length * 8);
+            return v;
+        }
+
+        public double[] getDoubles() {
+            double[] v = new double[buf.getInt()];
+            buf.asDoubleBuffer().get(v);
+            buf.position(buf.position() + v.length * 8);
+            return v;
+        }
+
+        public byte[] getBytes() {
+            byte[] v = new byte[buf.getInt()];
+            buf.get(v);
+            return v;
+        }
+
+        public boolean[] getBooleans() {
+            boolean[] v = new boolean[buf.getInt()];
+            for (int i = 0; i < v.length; i++) {
+                v[i] = buf.get() != 0;
+            }
+            return v;
+        }
+
+        public Instruction getInstruction() {
+            int id = buf.getInt();
+            return id < 0 ? null : instances[id];
+        }
+
+        /**
+         * Copy a saved array into target, which must have the same length.
+         */
+        public void getInts(int[] target) {
+            int[] v = getInts();
+            System.arraycopy(v, 0, target, 0, checkLength(v.length, target.length));
+        }
+
+        public void getLongs(long[] target) {
+            long[] v = getLongs();
+            System.arraycopy(v, 0, target, 0, checkLength(v.length, target.length));
+        }
+
+        public void getDoubles(double[] target) {
+            double[] v = getDoubles();
+            System.arraycopy(v, 0, target, 0, checkLength(v.length, target.length));
+        }
+
+        public void getBytes(byte[] target) {
+            byte[] v = getBytes();
+            System.arraycopy(v, 0, target, 0, checkLength(v.length, target.length));
+        }
+
+        public void getBooleans(boolean[] target) {
+            boolean[] v = getBooleans();
+            System.arraycopy(v, 0, target, 0, checkLength(v.length, target.length));
+        }
+
+        /**
+         * Fail on a field saved by a differently configured engine.
+         */
+        public void expect(int saved, int actual) {
+            checkLength(saved, actual);
+        }
+
+        private static int checkLength(int saved, int actual) {
+            if (saved != actual) {
+                throw new IllegalArgumentException("Checkpoint does not match this engine's configuration");
+            }
+            return saved;
+        }
+    }
+}
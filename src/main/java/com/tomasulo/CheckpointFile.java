@@ -0,0 +1,232 @@
+package com.tomasulo;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * A suspended simulation on disk: the configuration, the program text and a
+ * Checkpoint of the engine, so a fresh process can rebuild the same engine and
+ * continue exactly where the saved one stopped.
+ *
+ * Layout (big-endian): magic "TMCK", format version, CRC32 of the rest, then
+ * the name of the program, the config as properties text, the program text, the cycle, the instance
+ * table and component state of the Checkpoint, and the memory pages. Files
+ * are written through a temporary file and moved into place, so an
+ * interrupted save leaves the previous file intact.
+ */
+public class CheckpointFile {
+    private static final int MAGIC = 0x544D434B; // "TMCK"
+    public static final int VERSION = 7;
+
+    private final String programName;
+    private final Config config;
+    private final String program;
+    private final Checkpoint checkpoint;
+
+    private CheckpointFile(String programName, Config config, String program, Checkpoint checkpoint) {
+        this.programName = programName;
+        this.config = config;
+        this.program = program;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Configuration the engine was saved with. Diagnostics (traceMemory,
+     * eventLogMode, fastForward, ...) may be changed before createEngine();
+     * fields that change the machine will not restore.
+     */
+    public Config getConfig() {
+        return config;
+    }
+
+    /**
+     * Name the saved run reported its program under (usually its file path).
+     */
+    public String getProgramName() {
+        return programName;
+    }
+
+    public String getProgram() {
+        return program;
+    }
+
+    public int getCycle() {
+        return checkpoint.getCycle();
+    }
+
+    /**
+     * Build an engine from the saved configuration and program and restore it
+     * to the saved cycle.
+     */
+    public ExecutionEngine createEngine() throws Exception {
+        ExecutionEngine engine = new ExecutionEngine(config);
+        engine.loadProgram(InstructionParser.parse(program));
+        engine.restore(checkpoint);
+        return engine;
+    }
+
+    /**
+     * Write the current state of engine, running the program called
+     * programName, to path.
+     */
+    public static void save(ExecutionEngine engine, String programName, Path path) throws IOException {
+        Checkpoint cp = engine.checkpoint();
+        StringWriter configText = new StringWriter();
+        // Sorted so the same configuration always gives the same bytes
+        Map<String, String> sorted = new TreeMap<>();
+        Properties props = engine.getConfig().toProperties();
+        for (String key : props.stringPropertyNames()) {
+            sorted.put(key, props.getProperty(key));
+        }
+        for (Map.Entry<String, String> entry : sorted.entrySet()) {
+            configText.append(entry.getKey()).append('=').append(entry.getValue()).append('\n');
+        }
+        StringBuilder programText = new StringBuilder();
+        List<Instruction> program = engine.getInstructionQueue().getAllInstructions();
+        for (Instruction inst : program) {
+            programText.append(inst.getOriginalInstruction()).append('\n');
+        }
+        // A label after the last instruction has no line of its own to carry it
+        for (Instruction inst : program) {
+            if (inst.isBranch() && inst.getLabel() != null && inst.getTargetPc() == program.size() * 4) {
+                programText.append(inst.getLabel()).append(":\n");
+            }
+        }
+
+        byte[] nameBytes = programName.getBytes(StandardCharsets.UTF_8);
+        byte[] configBytes = configText.toString().getBytes(StandardCharsets.UTF_8);
+        byte[] programBytes = programText.toString().getBytes(StandardCharsets.UTF_8);
+        byte[][] pages = cp.getMemoryPages();
+        int pageBytes = pages.length > 0 ? pages[0].length : 0;
+        ByteBuffer body = ByteBuffer.allocate(4 + nameBytes.length + 4 + configBytes.length + 4 + programBytes.length + 4
+                + 4 + 4 + cp.getInstanceState().length + 4 + cp.getState().length
+                + 8 + pages.length * pageBytes);
+        body.putInt(nameBytes.length).put(nameBytes);
+        body.putInt(configBytes.length).put(configBytes);
+        body.putInt(programBytes.length).put(programBytes);
+        body.putInt(cp.getCycle());
+        body.putInt(cp.getInstanceCount());
+        body.putInt(cp.getInstanceState().length).put(cp.getInstanceState());
+        body.putInt(cp.getState().length).put(cp.getState());
+        body.putInt(pages.length).putInt(pageBytes);
+        for (byte[] page : pages) {
+            body.put(page);
+        }
+        body.flip();
+
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        ByteBuffer header = ByteBuffer.allocate(16);
+        header.putInt(MAGIC).putInt(VERSION).putLong(crc.getValue()).flip();
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer[] buffers = { header, body };
+                while (body.hasRemaining()) {
+                    channel.write(buffers);
+                }
+                channel.force(true);
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Read a file written by save(). Throws IOException if it is not a
+     * checkpoint, has another format version or is damaged.
+     */
+    public static CheckpointFile read(Path path) throws IOException {
+        ByteBuffer buf;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < 16 || size > Integer.MAX_VALUE) {
+                throw new IOException(path + " is not a simulator checkpoint");
+            }
+            buf = ByteBuffer.allocate((int) size);
+            while (buf.hasRemaining()) {
+                if (channel.read(buf) < 0) {
+                    throw new IOException("Unexpected end of " + path);
+                }
+            }
+            buf.flip();
+        }
+
+        if (buf.getInt() != MAGIC) {
+            throw new IOException(path + " is not a simulator checkpoint");
+        }
+        int version = buf.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported checkpoint version " + version + " in " + path
+                    + " (this simulator reads version " + VERSION + ")");
+        }
+        long expected = buf.getLong();
+        CRC32 crc = new CRC32();
+        crc.update(buf.duplicate());
+        if (crc.getValue() != expected) {
+            throw new IOException("Checkpoint " + path + " is damaged (checksum mismatch)");
+        }
+
+        try {
+            String programName = new String(bytes(buf), StandardCharsets.UTF_8);
+            Config config = new Config();
+            Properties props = new Properties();
+            props.load(new StringReader(new String(bytes(buf), StandardCharsets.UTF_8)));
+            for (String key : props.stringPropertyNames()) {
+                config.set(key, props.getProperty(key));
+            }
+            String program = new String(bytes(buf), StandardCharsets.UTF_8);
+            int cycle = buf.getInt();
+            int instanceCount = buf.getInt();
+            byte[] instanceState = bytes(buf);
+            byte[] state = bytes(buf);
+            byte[][] pages = new byte[buf.getInt()][buf.getInt()];
+            for (byte[] page : pages) {
+                buf.get(page);
+            }
+
+            // Rebuild the instances in flight from the program, then give them their saved fields
+            List<Instruction> templates = InstructionParser.parse(program);
+            Instruction[] instances = new Instruction[instanceCount];
+            Checkpoint.Reader in = new Checkpoint.Reader(instanceState, instances);
+            for (int i = 0; i < instanceCount; i++) {
+                int index = in.getInt() / 4;
+                if (index < 0 || index >= templates.size()) {
+                    throw new IOException("Checkpoint " + path + " refers to an instruction outside its program");
+                }
+                instances[i] = templates.get(index).createInstanceForIteration(0);
+                instances[i].restoreState(in);
+            }
+            return new CheckpointFile(programName, config, program, new Checkpoint(cycle, instances, instanceState, state, pages));
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            throw new IOException("Checkpoint " + path + " is damaged: " + e.getMessage());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Cannot parse the program in " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static byte[] bytes(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return bytes;
+    }
+}
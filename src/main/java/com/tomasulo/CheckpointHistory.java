@@ -0,0 +1,93 @@
+package com.tomasulo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Periodic engine checkpoints for stepping backwards
+ * (Config.checkpointInterval, Config.checkpointLimit).
+ *
+ * A checkpoint is taken every interval cycles. When more than limit are held,
+ * every other one is dropped and the interval doubles, so memory stays bounded
+ * however long the run while the replay after a restore stays within one
+ * interval.
+ */
+public class CheckpointHistory {
+    private final List<Checkpoint> checkpoints = new ArrayList<>(); // Ordered by cycle
+    private final int limit;
+    private final int baseInterval;
+    private int interval; // Doubles each time the history is thinned
+
+    public CheckpointHistory(int interval, int limit) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("checkpointInterval must be positive");
+        }
+        if (limit < 2) {
+            throw new IllegalArgumentException("checkpointLimit must be at least 2");
+        }
+        this.baseInterval = interval;
+        this.interval = interval;
+        this.limit = limit;
+    }
+
+    /**
+     * True if a checkpoint should be taken at cycle.
+     */
+    public boolean isDue(int cycle) {
+        return checkpoints.isEmpty() || cycle >= checkpoints.get(checkpoints.size() - 1).getCycle() + interval;
+    }
+
+    public void add(Checkpoint checkpoint) {
+        checkpoints.add(checkpoint);
+        if (checkpoints.size() > limit) {
+            List<Checkpoint> kept = new ArrayList<>();
+            for (int i = 0; i < checkpoints.size(); i += 2) {
+                kept.add(checkpoints.get(i));
+            }
+            checkpoints.clear();
+            checkpoints.addAll(kept);
+            interval *= 2;
+        }
+    }
+
+    /**
+     * Latest checkpoint taken at or before cycle, or null.
+     */
+    public Checkpoint latestAtOrBefore(int cycle) {
+        int low = 0;
+        int high = checkpoints.size() - 1;
+        Checkpoint found = null;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (checkpoints.get(mid).getCycle() <= cycle) {
+                found = checkpoints.get(mid);
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Drop the checkpoints taken after cycle (the engine was rewound past them).
+     */
+    public void discardAfter(int cycle) {
+        while (!checkpoints.isEmpty() && checkpoints.get(checkpoints.size() - 1).getCycle() > cycle) {
+            checkpoints.remove(checkpoints.size() - 1);
+        }
+    }
+
+    public void clear() {
+        checkpoints.clear();
+        interval = baseInterval;
+    }
+
+    public int size() {
+        return checkpoints.size();
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+}
@@ -1,18 +1,35 @@
 // package src.main.java.com.tomasulo;
 package com.tomasulo;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * One or more common data buses. Every cycle each bus carries at most one
+ * result; the oldest pending results win. A bus may be restricted to some unit
+ * classes (e.g. an FP bus for ADD_SUB+MUL_DIV), given as one comma-separated
+ * entry per bus such as "ADD_SUB+MUL_DIV,any".
+ */
 public class CommonDataBus {
+    private static final int ALL_UNITS = (1 << Instruction.UnitClass.values().length) - 1;
+
     private List<BusEntry> pendingWrites;
+    private final int[] busUnits; // Bit mask of the unit classes each bus accepts
+    private final List<BusEntry> winners = new ArrayList<>(); // Reused by selectWinners
+    private final boolean[] busTaken;
+
+    // Per-bus statistics
+    private final long[] grants; // Cycles the bus carried a result
+    private final long[] conflicts; // Cycles the bus was busy while another result it accepts waited
 
     public static class BusEntry {
-        public String tag;
+        public int tag; // Producing station tag (see TagTable)
         public double value;
         public Instruction instruction;
         public int issueOrder;
+        public int bus = -1; // Bus that carried the result, once selected
 
-        public BusEntry(String tag, double value, Instruction instruction, int issueOrder) {
+        public BusEntry(int tag, double value, Instruction instruction, int issueOrder) {
             this.tag = tag;
             this.value = value;
             this.instruction = instruction;
@@ -21,13 +38,87 @@ public class CommonDataBus {
     }
 
     public CommonDataBus() {
+        this(1, "");
+    }
+
+    public CommonDataBus(int numBuses, String busUnitSpec) {
         pendingWrites = new ArrayList<>();
+        busUnits = parseBusUnits(busUnitSpec, numBuses);
+        busTaken = new boolean[numBuses];
+        grants = new long[numBuses];
+        conflicts = new long[numBuses];
+    }
+
+    /**
+     * Parse a per-bus unit class list ("" = every bus accepts every unit class)
+     * into one bit mask per bus. Throws IllegalArgumentException if the list does
+     * not have numBuses entries or leaves a unit class without a bus.
+     */
+    public static int[] parseBusUnits(String spec, int numBuses) {
+        if (numBuses < 1) {
+            throw new IllegalArgumentException("numCdbs must be at least 1");
+        }
+        int[] masks = new int[numBuses];
+        if (spec == null || spec.trim().isEmpty()) {
+            Arrays.fill(masks, ALL_UNITS);
+            return masks;
+        }
+        String[] entries = spec.split(",");
+        if (entries.length != numBuses) {
+            throw new IllegalArgumentException("cdbUnits lists " + entries.length + " buses but numCdbs is " + numBuses);
+        }
+        int covered = 0;
+        for (int bus = 0; bus < numBuses; bus++) {
+            String entry = entries[bus].trim();
+            if (entry.equalsIgnoreCase("any")) {
+                masks[bus] = ALL_UNITS;
+            } else {
+                for (String name : entry.split("\\+")) {
+                    try {
+                        masks[bus] |= 1 << Instruction.UnitClass.valueOf(name.trim().toUpperCase()).ordinal();
+                    } catch (IllegalArgumentException e) {
+                        throw new IllegalArgumentException("Unknown unit class in cdbUnits: " + name.trim()
+                                + " (use ADD_SUB, MUL_DIV, INTEGER, LOAD, STORE, BRANCH or any)");
+                    }
+                }
+            }
+            covered |= masks[bus];
+        }
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            if ((covered & (1 << unit.ordinal())) == 0) {
+                throw new IllegalArgumentException("cdbUnits leaves " + unit + " results without a bus");
+            }
+        }
+        return masks;
     }
 
-    public void requestWrite(String tag, double value, Instruction instruction, int issueOrder) {
+    public void requestWrite(int tag, double value, Instruction instruction, int issueOrder) {
         pendingWrites.add(new BusEntry(tag, value, instruction, issueOrder));
     }
 
+    /**
+     * Results waiting for a bus.
+     */
+    public int getPendingCount() {
+        return pendingWrites.size();
+    }
+
+    public boolean hasPendingWrites() {
+        return !pendingWrites.isEmpty();
+    }
+
+    /**
+     * True if an instance of the instruction at pc is waiting for a bus.
+     */
+    public boolean hasPendingWriteFrom(int pc) {
+        for (BusEntry entry : pendingWrites) {
+            if (entry.instruction != null && entry.instruction.getPc() == pc) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public List<BusEntry> getPendingWrites() {
         return new ArrayList<>(pendingWrites);
     }
@@ -36,23 +127,135 @@ public class CommonDataBus {
         pendingWrites.clear();
     }
 
-    public BusEntry selectWinner(int strategy) {
+    /**
+     * Pick this cycle's results, at most one per bus, oldest first (smallest
+     * issue time; ties go to the earlier request). Each winner takes the free bus
+     * that accepts it with the fewest unit classes, keeping general buses open for
+     * younger results. Winners are removed from the pending list and returned in
+     * age order; the returned list is reused by the next call.
+     */
+    public List<BusEntry> selectWinners(int strategy) {
+        winners.clear();
         if (pendingWrites.isEmpty()) {
-            return null;
+            return winners;
         }
 
         // Strategy 0: First come first serve (by issue order)
         // Strategy 1: Oldest instruction first (also by issue order)
         // Both are the same - select instruction with smallest issue order
-        BusEntry winner = pendingWrites.get(0);
-        for (BusEntry entry : pendingWrites) {
-            
-            if (entry.instruction.getIssueTime() < winner.instruction.getIssueTime()) {
-                winner = entry;
+        Arrays.fill(busTaken, false);
+        while (winners.size() < busUnits.length) {
+            BusEntry winner = null;
+            int winnerBus = -1;
+            for (BusEntry entry : pendingWrites) {
+                if (entry.bus >= 0
+                        || (winner != null && entry.instruction.getIssueTime() >= winner.instruction.getIssueTime())) {
+                    continue;
+                }
+                int bus = freeBusFor(entry);
+                if (bus >= 0) {
+                    winner = entry;
+                    winnerBus = bus;
+                }
             }
+            if (winner == null) {
+                break;
+            }
+            winner.bus = winnerBus;
+            busTaken[winnerBus] = true;
+            grants[winnerBus]++;
+            winners.add(winner);
         }
+        pendingWrites.removeAll(winners);
 
-        pendingWrites.remove(winner);
-        return winner;
+        // A bus conflicts when a result it could have carried has to wait
+        for (int bus = 0; bus < busUnits.length; bus++) {
+            if (!busTaken[bus]) {
+                continue;
+            }
+            for (BusEntry entry : pendingWrites) {
+                if ((busUnits[bus] & unitMask(entry)) != 0) {
+                    conflicts[bus]++;
+                    break;
+                }
+            }
+        }
+        return winners;
+    }
+
+    private int freeBusFor(BusEntry entry) {
+        int unit = unitMask(entry);
+        int best = -1;
+        for (int bus = 0; bus < busUnits.length; bus++) {
+            if (!busTaken[bus] && (busUnits[bus] & unit) != 0
+                    && (best < 0 || Integer.bitCount(busUnits[bus]) < Integer.bitCount(busUnits[best]))) {
+                best = bus;
+            }
+        }
+        return best;
+    }
+
+    private static int unitMask(BusEntry entry) {
+        return entry.instruction != null ? 1 << entry.instruction.getUnitClass().ordinal() : ALL_UNITS;
+    }
+
+    // Statistics
+
+    public int getNumBuses() {
+        return busUnits.length;
+    }
+
+    /**
+     * Unit classes a bus accepts, e.g. "any" or "ADD_SUB+MUL_DIV".
+     */
+    public String getBusUnits(int bus) {
+        if (busUnits[bus] == ALL_UNITS) {
+            return "any";
+        }
+        StringBuilder sb = new StringBuilder();
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            if ((busUnits[bus] & (1 << unit.ordinal())) != 0) {
+                sb.append(sb.length() > 0 ? "+" : "").append(unit);
+            }
+        }
+        return sb.toString();
+    }
+
+    public long getGrants(int bus) {
+        return grants[bus];
+    }
+
+    public long getConflicts(int bus) {
+        return conflicts[bus];
+    }
+
+    public void resetStatistics() {
+        Arrays.fill(grants, 0);
+        Arrays.fill(conflicts, 0);
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInt(pendingWrites.size());
+        for (BusEntry entry : pendingWrites) {
+            out.putInt(entry.tag);
+            out.putDouble(entry.value);
+            out.putInstruction(entry.instruction);
+            out.putInt(entry.issueOrder);
+            out.putInt(entry.bus);
+        }
+        out.putLongs(grants);
+        out.putLongs(conflicts);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        pendingWrites.clear();
+        int pending = in.getInt();
+        for (int i = 0; i < pending; i++) {
+            BusEntry entry = new BusEntry(in.getInt(), in.getDouble(), in.getInstruction(), in.getInt());
+            entry.bus = in.getInt();
+            pendingWrites.add(entry);
+        }
+        in.getLongs(grants);
+        in.getLongs(conflicts);
     }
 }
@@ -1,5 +1,13 @@
 package com.tomasulo;
 
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Properties;
+
 public class Config {
     // Reservation Station sizes
     public int addSubStations = 3;
@@ -25,6 +33,46 @@ public class Config {
     public int blockSize = 4; // in bytes
     public int cacheHitLatency = 1;
     public int cacheMissPenalty = 3;
+    // Ways per set (1 = direct-mapped, 0 = fully associative) and the line a full
+    // set evicts: lru, plru (tree pseudo-LRU, power-of-two ways), fifo, random
+    // (repeatable from cacheRandomSeed) or srrip.
+    public int cacheAssociativity = 1;
+    public String cacheReplacement = "lru";
+    public long cacheRandomSeed = 1;
+    // false: a line holds blockSize bytes from the exact address that missed and
+    // only that address hits (the classic teaching model). true: lines hold
+    // aligned blocks and any access inside a cached block hits.
+    public boolean cacheBlockAligned = false;
+
+    // Lower cache levels behind the L1 above; size 0 = level absent (an L3 needs an
+    // L2). Each level is looked up only when the levels above miss and adds its
+    // latency; a miss in the last level adds cacheMissPenalty. Inclusion relative to
+    // the levels above: nine (non-inclusive non-exclusive), inclusive (an eviction
+    // invalidates the copies above) or exclusive (holds what the level above evicts;
+    // a hit moves the line up).
+    public int l2Size = 0;
+    public int l2BlockSize = 16;
+    public int l2Associativity = 4;
+    public int l2Latency = 6;
+    public String l2Replacement = "lru";
+    public String l2Inclusion = "nine";
+    public int l3Size = 0;
+    public int l3BlockSize = 32;
+    public int l3Associativity = 8;
+    public int l3Latency = 20;
+    public String l3Replacement = "lru";
+    public String l3Inclusion = "nine";
+
+    // Stores: write-back keeps a store in the L1 and marks the line dirty, and a dirty
+    // line is written to the level below (memory past the last level) when it leaves;
+    // write-through sends every store on to memory. Write-allocate fills the caches on
+    // a store miss; without it the store only goes below. writeBufferEntries (0 = writes
+    // to memory cost nothing) buffers writes to memory, coalescing writes to the same
+    // block, and drains one entry per cacheMissPenalty cycles in the background; a write
+    // that finds it full waits for the oldest entry.
+    public boolean cacheWriteBack = false;
+    public boolean cacheWriteAllocate = true;
+    public int writeBufferEntries = 0;
 
     // Register file configuration
     public int numIntegerRegisters = 32;
@@ -33,6 +81,50 @@ public class Config {
     // Instruction queue size
     public int instructionQueueSize = 16;
 
+    // Instructions issued per cycle, in program order (1 = scalar)
+    public int issueWidth = 1;
+
+    // Reorder buffer entries; 0 = no reorder buffer (issue stalls behind every branch).
+    // With a reorder buffer, issue continues past branches on the branch predictor's
+    // guess, up to issueWidth instructions commit per cycle in program order, and a
+    // mispredicted branch flushes younger work at commit.
+    public int robSize = 0;
+
+    // Branch prediction: taken, btfn (backward taken, forward not taken), bimodal,
+    // gshare or tournament. predictorEntries (a power of two) sizes the counter
+    // tables, predictorHistoryBits the gshare global history. Without a reorder
+    // buffer predictions are only scored, issue still waits for every branch.
+    public String branchPredictor = "btfn";
+    public int predictorEntries = 1024;
+    public int predictorHistoryBits = 10;
+
+    // Branch target buffer: entries (0 = none, every target is known at fetch) and
+    // ways per set. With a BTB, fetch only follows a taken prediction when the
+    // branch hits; taken branches are inserted when they resolve.
+    public int btbEntries = 0;
+    public int btbAssociativity = 4;
+
+    // Functional units shared by the stations of a class; 0 = every station has its
+    // own unit. Otherwise a select stage sends the oldest ready stations to free
+    // units each cycle. A pipelined unit accepts an operation every initiation
+    // interval cycles, an unpipelined one is busy for the operation's latency.
+    public int addSubUnits = 0;
+    public int mulDivUnits = 0;
+    public int integerUnits = 0;
+    public boolean addSubPipelined = true;
+    public boolean mulDivPipelined = true;
+    public boolean integerPipelined = true;
+    public int addSubInitiationInterval = 1;
+    public int mulDivInitiationInterval = 1;
+    public int integerInitiationInterval = 1;
+
+    // Store-to-load forwarding: a load whose bytes are exactly those of the
+    // youngest store in flight, with its value ready, takes the value after
+    // storeForwardLatency cycles instead of waiting and reading the cache. Other
+    // overlaps still stall the load at issue.
+    public boolean storeForwarding = false;
+    public int storeForwardLatency = 1;
+
     // Bus arbitration strategy
     // When multiple instructions want to write to CDB in same cycle:
     // 0 = First come first serve (by issue order)
@@ -40,9 +132,112 @@ public class Config {
     // 2 = Random selection
     public int busArbitrationStrategy = 1;
 
+    // Common data buses: results broadcast per cycle. cdbUnits optionally restricts
+    // each bus to unit classes, one comma-separated entry per bus, e.g.
+    // "ADD_SUB+MUL_DIV,any" (empty = every bus carries any result).
+    public int numCdbs = 1;
+    public String cdbUnits = "";
+
+    // Diagnostics
+    // The GUI keeps both on; headless runs switch them off since stdout tracing
+    // and the per-instance issue history cost more than the simulation itself.
+    public boolean traceMemory = true; // Print memory stores and preload to stdout
+    public boolean recordIssueHistory = true; // Keep every issued instance for the instruction table
+
+    // Skip cycles in which nothing can happen except functional units counting down.
+    // Timing is identical to stepping every cycle; off in the GUI so Step shows each cycle.
+    public boolean fastForward = false;
+
+    // Cycle event log: "off", "sampled" (every eventLogSampleInterval-th cycle) or "full".
+    // Events go into a ring buffer holding the last eventLogCapacity events.
+    public String eventLogMode = "full";
+    public int eventLogCapacity = 65536;
+    public int eventLogSampleInterval = 1000;
+
+    // Engine checkpoints for Step Back: one every checkpointInterval cycles (0 = off).
+    // Beyond checkpointLimit every other one is dropped and the interval doubles.
+    // Off in headless runs, which never step backwards.
+    public int checkpointInterval = 64;
+    public int checkpointLimit = 256;
+
     public Config() {
     }
 
+    /**
+     * Set a configuration field by name, e.g. set("divLatency", "40").
+     * Used by the headless runners for properties files and command-line overrides.
+     */
+    public void set(String key, String value) {
+        Field field;
+        try {
+            field = Config.class.getField(key.trim());
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Unknown config key: " + key);
+        }
+        if (Modifier.isStatic(field.getModifiers())) {
+            throw new IllegalArgumentException("Unknown config key: " + key);
+        }
+
+        String v = value.trim();
+        try {
+            Class<?> type = field.getType();
+            if (type == int.class) {
+                field.setInt(this, Integer.parseInt(v));
+            } else if (type == long.class) {
+                field.setLong(this, Long.parseLong(v));
+            } else if (type == boolean.class) {
+                field.setBoolean(this, Boolean.parseBoolean(v));
+            } else if (type == String.class) {
+                field.set(this, v);
+            } else {
+                throw new IllegalArgumentException("Unsupported config key: " + key);
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid value for " + key + ": " + value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Every configuration field as a property, in the form set() accepts.
+     */
+    public Properties toProperties() {
+        Properties props = new Properties();
+        for (Field field : Config.class.getFields()) {
+            if (!Modifier.isStatic(field.getModifiers())) {
+                props.setProperty(field.getName(), get(field.getName()));
+            }
+        }
+        return props;
+    }
+
+    /**
+     * Get a configuration field by name as a string (for reports).
+     */
+    public String get(String key) {
+        try {
+            return String.valueOf(Config.class.getField(key.trim()).get(this));
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException("Unknown config key: " + key);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Apply every entry of a properties file whose keys are Config field names.
+     */
+    public void load(File file) throws IOException {
+        Properties props = new Properties();
+        try (Reader reader = new FileReader(file)) {
+            props.load(reader);
+        }
+        for (String key : props.stringPropertyNames()) {
+            set(key, props.getProperty(key));
+        }
+    }
+
     /**
      * Get the size of each register in bytes (equals cache block size)
      * This ensures each cache block stores exactly one register value
@@ -95,11 +290,59 @@ public class Config {
         c.blockSize = this.blockSize;
         c.cacheHitLatency = this.cacheHitLatency;
         c.cacheMissPenalty = this.cacheMissPenalty;
+        c.cacheAssociativity = this.cacheAssociativity;
+        c.cacheReplacement = this.cacheReplacement;
+        c.cacheRandomSeed = this.cacheRandomSeed;
+        c.cacheBlockAligned = this.cacheBlockAligned;
+        c.l2Size = this.l2Size;
+        c.l2BlockSize = this.l2BlockSize;
+        c.l2Associativity = this.l2Associativity;
+        c.l2Latency = this.l2Latency;
+        c.l2Replacement = this.l2Replacement;
+        c.l2Inclusion = this.l2Inclusion;
+        c.l3Size = this.l3Size;
+        c.l3BlockSize = this.l3BlockSize;
+        c.l3Associativity = this.l3Associativity;
+        c.l3Latency = this.l3Latency;
+        c.l3Replacement = this.l3Replacement;
+        c.l3Inclusion = this.l3Inclusion;
+        c.cacheWriteBack = this.cacheWriteBack;
+        c.cacheWriteAllocate = this.cacheWriteAllocate;
+        c.writeBufferEntries = this.writeBufferEntries;
 
         c.numIntegerRegisters = this.numIntegerRegisters;
         c.numFloatRegisters = this.numFloatRegisters;
         c.instructionQueueSize = this.instructionQueueSize;
+        c.issueWidth = this.issueWidth;
+        c.robSize = this.robSize;
+        c.branchPredictor = this.branchPredictor;
+        c.predictorEntries = this.predictorEntries;
+        c.predictorHistoryBits = this.predictorHistoryBits;
+        c.btbEntries = this.btbEntries;
+        c.btbAssociativity = this.btbAssociativity;
+        c.addSubUnits = this.addSubUnits;
+        c.mulDivUnits = this.mulDivUnits;
+        c.integerUnits = this.integerUnits;
+        c.addSubPipelined = this.addSubPipelined;
+        c.mulDivPipelined = this.mulDivPipelined;
+        c.integerPipelined = this.integerPipelined;
+        c.addSubInitiationInterval = this.addSubInitiationInterval;
+        c.mulDivInitiationInterval = this.mulDivInitiationInterval;
+        c.integerInitiationInterval = this.integerInitiationInterval;
+        c.storeForwarding = this.storeForwarding;
+        c.storeForwardLatency = this.storeForwardLatency;
         c.busArbitrationStrategy = this.busArbitrationStrategy;
+        c.numCdbs = this.numCdbs;
+        c.cdbUnits = this.cdbUnits;
+
+        c.traceMemory = this.traceMemory;
+        c.recordIssueHistory = this.recordIssueHistory;
+        c.fastForward = this.fastForward;
+        c.eventLogMode = this.eventLogMode;
+        c.eventLogCapacity = this.eventLogCapacity;
+        c.eventLogSampleInterval = this.eventLogSampleInterval;
+        c.checkpointInterval = this.checkpointInterval;
+        c.checkpointLimit = this.checkpointLimit;
 
         return c;
     }
@@ -4,6 +4,8 @@ import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.layout.GridPane;
@@ -32,6 +34,9 @@ public class ConfigDialog extends Stage {
             case "stations":
                 createStationsDialog();
                 break;
+            case "units":
+                createUnitsDialog();
+                break;
         }
     }
 
@@ -153,9 +158,36 @@ public class ConfigDialog extends Stage {
         TextField missField = new TextField(String.valueOf(config.cacheMissPenalty));
         grid.add(missField, 1, 3);
 
-        Label infoLabel = new Label("Note: Direct-mapped cache is used.\nNumber of blocks = Cache size / Block size");
+        grid.add(new Label("Ways per set (0 = fully assoc.):"), 0, 4);
+        TextField waysField = new TextField(String.valueOf(config.cacheAssociativity));
+        grid.add(waysField, 1, 4);
+
+        grid.add(new Label("Replacement policy:"), 0, 5);
+        ComboBox<String> replacementBox = new ComboBox<>();
+        replacementBox.getItems().addAll("lru", "plru", "fifo", "random", "srrip");
+        replacementBox.setValue(config.cacheReplacement);
+        grid.add(replacementBox, 1, 5);
+
+        grid.add(new Label("Random seed:"), 0, 6);
+        TextField seedField = new TextField(String.valueOf(config.cacheRandomSeed));
+        grid.add(seedField, 1, 6);
+
+        CheckBox alignedBox = new CheckBox("Block-aligned lines (spatial locality)");
+        alignedBox.setSelected(config.cacheBlockAligned);
+        grid.add(alignedBox, 0, 7, 2, 1);
+
+        CheckBox forwardingBox = new CheckBox("Store-to-load forwarding");
+        forwardingBox.setSelected(config.storeForwarding);
+        grid.add(forwardingBox, 0, 8, 2, 1);
+
+        grid.add(new Label("Forwarding latency (cycles):"), 0, 9);
+        TextField forwardLatencyField = new TextField(String.valueOf(config.storeForwardLatency));
+        grid.add(forwardLatencyField, 1, 9);
+
+        Label infoLabel = new Label("Note: Number of blocks = Cache size / Block size,\n"
+                + "sets = blocks / ways (1 way = direct-mapped).");
         infoLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: gray;");
-        grid.add(infoLabel, 0, 4, 2, 1);
+        grid.add(infoLabel, 0, 10, 2, 1);
 
         // Buttons
         HBox buttonBox = new HBox(10);
@@ -169,11 +201,30 @@ public class ConfigDialog extends Stage {
                     showError("Cache size must be a multiple of block size.");
                     return;
                 }
+                int forwardLatency = Integer.parseInt(forwardLatencyField.getText());
+                if (forwardLatency < 1) {
+                    showError("Forwarding latency must be at least 1.");
+                    return;
+                }
+                int ways = Integer.parseInt(waysField.getText());
+                long seed = Long.parseLong(seedField.getText());
+                try {
+                    new Cache(cacheSize, blockSize, 1, 0, ways, replacementBox.getValue(), seed);
+                } catch (IllegalArgumentException ex) {
+                    showError(ex.getMessage());
+                    return;
+                }
 
                 config.cacheSize = cacheSize;
                 config.blockSize = blockSize;
                 config.cacheHitLatency = Integer.parseInt(hitField.getText());
                 config.cacheMissPenalty = Integer.parseInt(missField.getText());
+                config.storeForwarding = forwardingBox.isSelected();
+                config.storeForwardLatency = forwardLatency;
+                config.cacheAssociativity = ways;
+                config.cacheReplacement = replacementBox.getValue();
+                config.cacheRandomSeed = seed;
+                config.cacheBlockAligned = alignedBox.isSelected();
                 close();
             } catch (NumberFormatException ex) {
                 showError("Invalid input. Please enter valid integers.");
@@ -184,9 +235,9 @@ public class ConfigDialog extends Stage {
         cancelButton.setOnAction(e -> close());
 
         buttonBox.getChildren().addAll(okButton, cancelButton);
-        grid.add(buttonBox, 0, 5, 2, 1);
+        grid.add(buttonBox, 0, 11, 2, 1);
 
-        Scene scene = new Scene(grid, 450, 250);
+        Scene scene = new Scene(grid, 450, 460);
         setScene(scene);
     }
 
@@ -238,9 +289,48 @@ public class ConfigDialog extends Stage {
         TextField queueField = new TextField(String.valueOf(config.instructionQueueSize));
         grid.add(queueField, 1, 8);
 
+        grid.add(new Label("Issue width:"), 0, 9);
+        TextField issueWidthField = new TextField(String.valueOf(config.issueWidth));
+        grid.add(issueWidthField, 1, 9);
+
+        grid.add(new Label("Common data buses:"), 0, 10);
+        TextField numCdbsField = new TextField(String.valueOf(config.numCdbs));
+        grid.add(numCdbsField, 1, 10);
+
+        grid.add(new Label("Bus unit classes:"), 0, 11);
+        TextField cdbUnitsField = new TextField(config.cdbUnits);
+        cdbUnitsField.setPromptText("e.g. ADD_SUB+MUL_DIV,any");
+        grid.add(cdbUnitsField, 1, 11);
+
+        grid.add(new Label("Reorder buffer (0 = off):"), 0, 12);
+        TextField robField = new TextField(String.valueOf(config.robSize));
+        grid.add(robField, 1, 12);
+
+        grid.add(new Label("Branch predictor:"), 0, 13);
+        ComboBox<String> predictorBox = new ComboBox<>();
+        predictorBox.getItems().addAll("taken", "btfn", "bimodal", "gshare", "tournament");
+        predictorBox.setValue(config.branchPredictor);
+        grid.add(predictorBox, 1, 13);
+
+        grid.add(new Label("Predictor entries:"), 0, 14);
+        TextField predictorEntriesField = new TextField(String.valueOf(config.predictorEntries));
+        grid.add(predictorEntriesField, 1, 14);
+
+        grid.add(new Label("Predictor history bits:"), 0, 15);
+        TextField historyBitsField = new TextField(String.valueOf(config.predictorHistoryBits));
+        grid.add(historyBitsField, 1, 15);
+
+        grid.add(new Label("BTB entries (0 = ideal):"), 0, 16);
+        TextField btbEntriesField = new TextField(String.valueOf(config.btbEntries));
+        grid.add(btbEntriesField, 1, 16);
+
+        grid.add(new Label("BTB associativity:"), 0, 17);
+        TextField btbWaysField = new TextField(String.valueOf(config.btbAssociativity));
+        grid.add(btbWaysField, 1, 17);
+
         Label warnLabel = new Label("Note: Changing these values requires reloading the program.");
         warnLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: red;");
-        grid.add(warnLabel, 0, 9, 2, 1);
+        grid.add(warnLabel, 0, 18, 2, 1);
 
         // Buttons
         HBox buttonBox = new HBox(10);
@@ -254,6 +344,138 @@ public class ConfigDialog extends Stage {
                 config.loadBuffers = Integer.parseInt(loadField.getText());
                 config.storeBuffers = Integer.parseInt(storeField.getText());
                 config.instructionQueueSize = Integer.parseInt(queueField.getText());
+                int issueWidth = Integer.parseInt(issueWidthField.getText());
+                if (issueWidth < 1) {
+                    showError("Issue width must be at least 1.");
+                    return;
+                }
+                int robSize = Integer.parseInt(robField.getText());
+                if (robSize < 0) {
+                    showError("Reorder buffer size must not be negative.");
+                    return;
+                }
+                int numCdbs = Integer.parseInt(numCdbsField.getText());
+                try {
+                    CommonDataBus.parseBusUnits(cdbUnitsField.getText(), numCdbs);
+                } catch (IllegalArgumentException ex) {
+                    showError(ex.getMessage());
+                    return;
+                }
+                Config predictorConfig = config.copy();
+                predictorConfig.branchPredictor = predictorBox.getValue();
+                predictorConfig.predictorEntries = Integer.parseInt(predictorEntriesField.getText());
+                predictorConfig.predictorHistoryBits = Integer.parseInt(historyBitsField.getText());
+                int btbEntries = Integer.parseInt(btbEntriesField.getText());
+                int btbWays = Integer.parseInt(btbWaysField.getText());
+                try {
+                    BranchPredictor.create(predictorConfig);
+                    if (btbEntries != 0) {
+                        new BranchTargetBuffer(btbEntries, btbWays);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    showError(ex.getMessage());
+                    return;
+                }
+                config.issueWidth = issueWidth;
+                config.numCdbs = numCdbs;
+                config.robSize = robSize;
+                config.cdbUnits = cdbUnitsField.getText().trim();
+                config.branchPredictor = predictorConfig.branchPredictor;
+                config.predictorEntries = predictorConfig.predictorEntries;
+                config.predictorHistoryBits = predictorConfig.predictorHistoryBits;
+                config.btbEntries = btbEntries;
+                config.btbAssociativity = btbWays;
+                close();
+            } catch (NumberFormatException ex) {
+                showError("Invalid input. Please enter valid integers.");
+            }
+        });
+
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(e -> close());
+
+        buttonBox.getChildren().addAll(okButton, cancelButton);
+        grid.add(buttonBox, 0, 19, 2, 1);
+
+        Scene scene = new Scene(grid, 450, 730);
+        setScene(scene);
+    }
+
+    private void createUnitsDialog() {
+        setTitle("Set Functional Units");
+
+        GridPane grid = new GridPane();
+        grid.setPadding(new Insets(20));
+        grid.setHgap(10);
+        grid.setVgap(10);
+
+        Label header = new Label("Units shared by each class of stations (0 = one unit per station):");
+        header.setStyle("-fx-font-weight: bold;");
+        grid.add(header, 0, 0, 4, 1);
+        grid.add(new Label("Units"), 1, 1);
+        grid.add(new Label("Pipelined"), 2, 1);
+        grid.add(new Label("Initiation interval"), 3, 1);
+
+        grid.add(new Label("Add/Sub:"), 0, 2);
+        TextField addSubField = new TextField(String.valueOf(config.addSubUnits));
+        CheckBox addSubPipelinedBox = new CheckBox();
+        addSubPipelinedBox.setSelected(config.addSubPipelined);
+        TextField addSubIntervalField = new TextField(String.valueOf(config.addSubInitiationInterval));
+        grid.add(addSubField, 1, 2);
+        grid.add(addSubPipelinedBox, 2, 2);
+        grid.add(addSubIntervalField, 3, 2);
+
+        grid.add(new Label("Mul/Div:"), 0, 3);
+        TextField mulDivField = new TextField(String.valueOf(config.mulDivUnits));
+        CheckBox mulDivPipelinedBox = new CheckBox();
+        mulDivPipelinedBox.setSelected(config.mulDivPipelined);
+        TextField mulDivIntervalField = new TextField(String.valueOf(config.mulDivInitiationInterval));
+        grid.add(mulDivField, 1, 3);
+        grid.add(mulDivPipelinedBox, 2, 3);
+        grid.add(mulDivIntervalField, 3, 3);
+
+        grid.add(new Label("Integer:"), 0, 4);
+        TextField intField = new TextField(String.valueOf(config.integerUnits));
+        CheckBox intPipelinedBox = new CheckBox();
+        intPipelinedBox.setSelected(config.integerPipelined);
+        TextField intIntervalField = new TextField(String.valueOf(config.integerInitiationInterval));
+        grid.add(intField, 1, 4);
+        grid.add(intPipelinedBox, 2, 4);
+        grid.add(intIntervalField, 3, 4);
+
+        Label infoLabel = new Label("Latencies are the per-operation latencies. An unpipelined unit is busy\n"
+                + "for the whole latency; a pipelined one accepts an operation every interval.");
+        infoLabel.setStyle("-fx-font-size: 10px; -fx-text-fill: gray;");
+        grid.add(infoLabel, 0, 5, 4, 1);
+
+        // Buttons
+        HBox buttonBox = new HBox(10);
+        Button okButton = new Button("OK");
+        okButton.setOnAction(e -> {
+            try {
+                int addSub = Integer.parseInt(addSubField.getText());
+                int mulDiv = Integer.parseInt(mulDivField.getText());
+                int integer = Integer.parseInt(intField.getText());
+                int addSubInterval = Integer.parseInt(addSubIntervalField.getText());
+                int mulDivInterval = Integer.parseInt(mulDivIntervalField.getText());
+                int intInterval = Integer.parseInt(intIntervalField.getText());
+                if (addSub < 0 || mulDiv < 0 || integer < 0) {
+                    showError("Unit counts must not be negative.");
+                    return;
+                }
+                if (addSubInterval < 1 || mulDivInterval < 1 || intInterval < 1) {
+                    showError("Initiation intervals must be at least 1.");
+                    return;
+                }
+                config.addSubUnits = addSub;
+                config.mulDivUnits = mulDiv;
+                config.integerUnits = integer;
+                config.addSubPipelined = addSubPipelinedBox.isSelected();
+                config.mulDivPipelined = mulDivPipelinedBox.isSelected();
+                config.integerPipelined = intPipelinedBox.isSelected();
+                config.addSubInitiationInterval = addSubInterval;
+                config.mulDivInitiationInterval = mulDivInterval;
+                config.integerInitiationInterval = intInterval;
                 close();
             } catch (NumberFormatException ex) {
                 showError("Invalid input. Please enter valid integers.");
@@ -264,9 +486,9 @@ public class ConfigDialog extends Stage {
         cancelButton.setOnAction(e -> close());
 
         buttonBox.getChildren().addAll(okButton, cancelButton);
-        grid.add(buttonBox, 0, 10, 2, 1);
+        grid.add(buttonBox, 0, 6, 4, 1);
 
-        Scene scene = new Scene(grid, 450, 400);
+        Scene scene = new Scene(grid, 560, 300);
         setScene(scene);
     }
 
@@ -0,0 +1,190 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Byte ranges of the loads and stores in flight, indexed by address for the
+ * memory ordering checks made at issue.
+ *
+ * Each access is filed under the 8-byte granules it touches (at most two for a
+ * 4- or 8-byte access) in a chained hash table of primitive arrays. A conflict
+ * check only visits the accesses that share a granule with the new one and
+ * compares byte ranges, so partial overlaps such as SW at 4 against LD at 0
+ * are found as well as equal addresses.
+ *
+ * Accesses are identified by the tag of the load/store buffer holding them.
+ */
+public class DisambiguationTable {
+    private static final int NONE = -1;
+
+    // Per buffer tag: the byte range [start, end) and whether it is a store
+    private final int[] start;
+    private final int[] end;
+    private final boolean[] store;
+    private final boolean[] active;
+    private final long[] sequence; // Order of add, to find the youngest access
+    private long added;
+
+    // Node (tag * 2 + k) files a buffer under the k-th granule it touches
+    private final int[] nodeGranule;
+    private final int[] nodeNext;
+    private final int[] nodePrev;
+    private final int[] buckets; // First node per hash bucket
+    private final int bucketMask;
+
+    /**
+     * Table for buffer tags up to maxTag.
+     */
+    public DisambiguationTable(int maxTag) {
+        int owners = maxTag + 1;
+        start = new int[owners];
+        end = new int[owners];
+        store = new boolean[owners];
+        active = new boolean[owners];
+        sequence = new long[owners];
+        nodeGranule = new int[owners * 2];
+        nodeNext = new int[owners * 2];
+        nodePrev = new int[owners * 2];
+        // At least one bucket per node keeps chains short
+        buckets = new int[Integer.highestOneBit(owners * 2) << 1];
+        bucketMask = buckets.length - 1;
+        Arrays.fill(buckets, NONE);
+    }
+
+    /**
+     * Record the access of the buffer with this tag, replacing any earlier one.
+     */
+    public void add(int tag, int address, int size, boolean isStore) {
+        remove(tag);
+        start[tag] = address;
+        end[tag] = address + size;
+        store[tag] = isStore;
+        active[tag] = true;
+        sequence[tag] = ++added;
+        int first = address >> 3;
+        int last = (address + size - 1) >> 3;
+        link(tag * 2, first);
+        if (last != first) {
+            link(tag * 2 + 1, last);
+        }
+    }
+
+    /**
+     * Forget the access of the buffer with this tag (buffer freed or flushed).
+     */
+    public void remove(int tag) {
+        if (tag < 0 || tag >= active.length || !active[tag]) {
+            return;
+        }
+        active[tag] = false;
+        unlink(tag * 2);
+        if ((end[tag] - 1) >> 3 != start[tag] >> 3) {
+            unlink(tag * 2 + 1);
+        }
+    }
+
+    /**
+     * True if an access in flight overlaps [address, address + size). With
+     * storesOnly, loads in flight are ignored.
+     */
+    public boolean overlaps(int address, int size, boolean storesOnly) {
+        int first = address >> 3;
+        int last = (address + size - 1) >> 3;
+        return overlaps(first, address, address + size, storesOnly)
+                || (last != first && overlaps(last, address, address + size, storesOnly));
+    }
+
+    /**
+     * Tag of the most recently added store overlapping [address, address + size),
+     * or TagTable.NONE.
+     */
+    public int youngestOverlappingStore(int address, int size) {
+        int first = address >> 3;
+        int last = (address + size - 1) >> 3;
+        int youngest = youngestStore(first, address, address + size, TagTable.NONE);
+        return last != first ? youngestStore(last, address, address + size, youngest) : youngest;
+    }
+
+    private int youngestStore(int granule, int from, int to, int youngest) {
+        for (int node = buckets[bucket(granule)]; node != NONE; node = nodeNext[node]) {
+            int tag = node >> 1;
+            if (nodeGranule[node] == granule && store[tag] && start[tag] < to && from < end[tag]
+                    && (youngest == TagTable.NONE || sequence[tag] > sequence[youngest])) {
+                youngest = tag;
+            }
+        }
+        return youngest;
+    }
+
+    private boolean overlaps(int granule, int from, int to, boolean storesOnly) {
+        for (int node = buckets[bucket(granule)]; node != NONE; node = nodeNext[node]) {
+            int tag = node >> 1;
+            if (nodeGranule[node] == granule && (store[tag] || !storesOnly) && start[tag] < to
+                    && from < end[tag]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void clear() {
+        Arrays.fill(active, false);
+        Arrays.fill(buckets, NONE);
+        added = 0;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInts(start);
+        out.putInts(end);
+        out.putBooleans(store);
+        out.putBooleans(active);
+        out.putLongs(sequence);
+        out.putLong(added);
+        out.putInts(nodeGranule);
+        out.putInts(nodeNext);
+        out.putInts(nodePrev);
+        out.putInts(buckets);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.getInts(start);
+        in.getInts(end);
+        in.getBooleans(store);
+        in.getBooleans(active);
+        in.getLongs(sequence);
+        added = in.getLong();
+        in.getInts(nodeGranule);
+        in.getInts(nodeNext);
+        in.getInts(nodePrev);
+        in.getInts(buckets);
+    }
+
+    private int bucket(int granule) {
+        return (granule ^ (granule >>> 16)) & bucketMask;
+    }
+
+    private void link(int node, int granule) {
+        int b = bucket(granule);
+        int head = buckets[b];
+        nodeGranule[node] = granule;
+        nodeNext[node] = head;
+        nodePrev[node] = NONE;
+        if (head != NONE) {
+            nodePrev[head] = node;
+        }
+        buckets[b] = node;
+    }
+
+    private void unlink(int node) {
+        int prev = nodePrev[node];
+        int next = nodeNext[node];
+        if (prev != NONE) {
+            nodeNext[prev] = next;
+        } else {
+            buckets[bucket(nodeGranule[node])] = next;
+        }
+        if (next != NONE) {
+            nodePrev[next] = prev;
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.tomasulo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Typed cycle event stream kept in a fixed-capacity ring buffer of primitive
+ * arrays. Recording an event stores a few ints and doubles and allocates
+ * nothing; text is only built when a consumer calls render(). When the buffer
+ * is full the oldest events are overwritten.
+ *
+ * Every event has a cycle, a type, four int fields (a..d) and two double
+ * fields (x, y); their meaning per type is listed on Type. Instructions are
+ * referenced by pc and iteration and rendered from the loaded program.
+ */
+public class EventLog {
+
+    public enum Mode {
+        OFF, SAMPLED, FULL;
+
+        public static Mode parse(String name) {
+            try {
+                return valueOf(name.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown event log mode: " + name + " (use off, sampled or full)");
+            }
+        }
+    }
+
+    public enum Type {
+        ISSUE, // a=pc, b=iteration, c=station tag
+        EXEC_START, // a=pc, b=iteration, c=station tag
+        EXEC_END, // a=pc, b=iteration, c=station tag
+        CDB_WRITE, // a=pc, b=iteration, c=station tag, d=bus, x=value
+        REGISTER_UPDATE, // a=register number, c=station tag, x=value
+        STORE_COMMIT, // a=pc, b=iteration, c=station tag, d=address, x=value
+        BRANCH_EVAL, // a=pc, b=iteration, c=station tag, d=taken (0/1), x=vj, y=vk
+        BRANCH_RESOLVE, // a=pc, b=iteration, c=target pc, d=taken (0/1)
+        CACHE_HIT, // a=address, b=cache tag, c=index, d=bytes stored (0 for a load)
+        CACHE_MISS, // a=address, b=cache tag, c=index, d=bytes stored (0 for a load)
+        STALL, // a=pc of the instruction that could not issue, b=reason (STALL_*)
+        NO_CONSUMER, // a=pc, b=iteration, c=station tag
+        FAST_FORWARD, // a=first skipped cycle, b=last skipped cycle
+        COMMIT, // a=pc, b=iteration, c=reorder buffer tag
+        SQUASH, // a=branch pc, b=iteration, c=instructions squashed, d=pc fetch resumes at
+        STORE_FORWARD // a=load pc, b=iteration, c=load buffer tag, d=store buffer tag, x=value
+    }
+
+    // Reasons carried by STALL events
+    public static final int STALL_NONE = -1; // Not stalled
+    public static final int STALL_BRANCH = 0; // A branch is in flight
+    public static final int STALL_STRUCTURAL = 1; // No free station/buffer
+    public static final int STALL_OPERAND = 2; // Load/store base register not ready
+    public static final int STALL_MEMORY = 3; // Address conflict with an older load/store
+    public static final int STALL_PENDING_WRITE = 4; // Older instance of the same pc waiting for the CDB
+    public static final int STALL_ROB_FULL = 5; // No free reorder buffer entry
+    private static final String[] STALL_NAMES = {
+            "branch in flight (waiting for write-back)", "no free station", "base register not ready",
+            "address conflict with an in-flight load/store", "older instance still waiting for the CDB",
+            "reorder buffer full" };
+
+    private static final Type[] TYPES = Type.values();
+
+    private final int capacity;
+    private final int[] cycles;
+    private final byte[] types;
+    private final int[] a;
+    private final int[] b;
+    private final int[] c;
+    private final int[] d;
+    private final double[] x;
+    private final double[] y;
+    private int head; // Slot of the oldest event
+    private int size;
+    private long recorded; // Total events recorded, including overwritten ones
+
+    private Mode mode;
+    private int sampleInterval;
+    private int cycle;
+    private boolean recording;
+
+    private TagTable tags; // For rendering station names
+    private List<Instruction> program = new ArrayList<>(); // For rendering instructions by pc
+
+    public EventLog(Mode mode, int capacity, int sampleInterval) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Event log capacity must be positive");
+        }
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("Event log sample interval must be positive");
+        }
+        this.mode = mode;
+        this.capacity = capacity;
+        this.sampleInterval = sampleInterval;
+        cycles = new int[capacity];
+        types = new byte[capacity];
+        a = new int[capacity];
+        b = new int[capacity];
+        c = new int[capacity];
+        d = new int[capacity];
+        x = new double[capacity];
+        y = new double[capacity];
+        recording = mode == Mode.FULL;
+    }
+
+    public EventLog(Config config) {
+        this(Mode.parse(config.eventLogMode), config.eventLogCapacity, config.eventLogSampleInterval);
+    }
+
+    public void setTagTable(TagTable tags) {
+        this.tags = tags;
+    }
+
+    public void setProgram(List<Instruction> program) {
+        this.program = new ArrayList<>(program);
+    }
+
+    public void setMode(Mode mode) {
+        this.mode = mode;
+        beginCycle(cycle);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    /**
+     * Start a new cycle. In SAMPLED mode only every sampleInterval-th cycle is recorded.
+     */
+    public void beginCycle(int cycle) {
+        this.cycle = cycle;
+        recording = mode == Mode.FULL || (mode == Mode.SAMPLED && cycle % sampleInterval == 0);
+    }
+
+    /**
+     * True if events of the current cycle are kept. Callers may test this before
+     * gathering event fields that are not free to compute.
+     */
+    public boolean isRecording() {
+        return recording;
+    }
+
+    public void record(Type type, int a, int b, int c, int d, double x, double y) {
+        if (!recording) {
+            return;
+        }
+        int slot;
+        if (size < capacity) {
+            slot = (head + size) % capacity;
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % capacity;
+        }
+        cycles[slot] = cycle;
+        types[slot] = (byte) type.ordinal();
+        this.a[slot] = a;
+        this.b[slot] = b;
+        this.c[slot] = c;
+        this.d[slot] = d;
+        this.x[slot] = x;
+        this.y[slot] = y;
+        recorded++;
+    }
+
+    public void record(Type type, int a, int b, int c) {
+        record(type, a, b, c, 0, 0.0, 0.0);
+    }
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        recorded = 0;
+    }
+
+    /**
+     * Forget the events recorded after the first keep (the engine was rewound
+     * to a checkpoint taken when keep events had been recorded).
+     */
+    public void truncate(long keep) {
+        if (keep >= recorded) {
+            return;
+        }
+        size = (int) Math.max(0, size - (recorded - keep));
+        recorded = keep;
+    }
+
+    // ---- Typed access; i = 0 is the oldest event still in the buffer ----
+
+    public int size() {
+        return size;
+    }
+
+    public long getRecorded() {
+        return recorded;
+    }
+
+    /**
+     * Events lost because the buffer wrapped.
+     */
+    public long getDropped() {
+        return recorded - size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int slot(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Event " + i + " of " + size);
+        }
+        return (head + i) % capacity;
+    }
+
+    public int getCycle(int i) {
+        return cycles[slot(i)];
+    }
+
+    public Type getType(int i) {
+        return TYPES[types[slot(i)]];
+    }
+
+    public int getA(int i) {
+        return a[slot(i)];
+    }
+
+    public int getB(int i) {
+        return b[slot(i)];
+    }
+
+    public int getC(int i) {
+        return c[slot(i)];
+    }
+
+    public int getD(int i) {
+        return d[slot(i)];
+    }
+
+    public double getX(int i) {
+        return x[slot(i)];
+    }
+
+    public double getY(int i) {
+        return y[slot(i)];
+    }
+
+    // ---- Rendering ----
+
+    /**
+     * Render every buffered event, with a "=== Cycle N ===" header whenever the cycle changes.
+     */
+    public List<String> render() {
+        List<String> lines = new ArrayList<>();
+        int lastCycle = -1;
+        for (int i = 0; i < size; i++) {
+            int eventCycle = getCycle(i);
+            if (eventCycle != lastCycle) {
+                lines.add("=== Cycle " + eventCycle + " ===");
+                lastCycle = eventCycle;
+            }
+            lines.add(render(i));
+        }
+        return lines;
+    }
+
+    /**
+     * Render the buffered events of the given types, without cycle headers.
+     */
+    public List<String> render(Type first, Type... rest) {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Type type = getType(i);
+            boolean wanted = type == first;
+            for (int j = 0; j < rest.length && !wanted; j++) {
+                wanted = type == rest[j];
+            }
+            if (wanted) {
+                lines.add(render(i));
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Render the most recent event, or "" if there is none.
+     */
+    public String renderLast() {
+        return size == 0 ? "" : render(size - 1);
+    }
+
+    public String render(int i) {
+        int s = slot(i);
+        switch (TYPES[types[s]]) {
+            case ISSUE:
+                return "Issued: " + instruction(a[s]) + " -> " + station(c[s]);
+            case EXEC_START:
+                return "Exec start: " + station(c[s]) + " (" + instruction(a[s]) + ")";
+            case EXEC_END:
+                return "Exec end: " + station(c[s]) + " (" + instruction(a[s]) + ")";
+            case CDB_WRITE:
+                // Bus 0 is left unnamed so single-bus logs read as before
+                return "CDB Write" + (d[s] > 0 ? " (bus " + d[s] + ")" : "") + ": " + station(c[s]) + " = " + x[s] + " (instruction: " + instruction(a[s]) + ")";
+            case REGISTER_UPDATE:
+                return "Updating register " + RegisterFile.nameOf(a[s]) + " with value " + x[s]
+                        + " (clearing Qi: " + station(c[s]) + ")";
+            case STORE_COMMIT:
+                return "Store completed to address " + d[s] + " (" + instruction(a[s]) + ")";
+            case BRANCH_EVAL: {
+                Instruction br = program(a[s]);
+                boolean beq = br != null && br.getType() == Instruction.InstructionType.BEQ;
+                return String.format("Branch eval: %s comparing %.2f %s %.2f = %s, target: %s",
+                        br != null ? br.getType() : "?", x[s], beq ? "==" : "!=", y[s], d[s] != 0,
+                        br != null ? br.getLabel() : "?");
+            }
+            case BRANCH_RESOLVE: {
+                Instruction br = program(a[s]);
+                String label = br != null ? br.getLabel() : String.valueOf(c[s]);
+                if (d[s] != 0) {
+                    return "Branch write-back: TAKEN, jumping to '" + label + "' (PC " + c[s]
+                            + ") - resuming issuing";
+                }
+                return "Branch write-back: NOT taken, continuing sequentially - resuming issuing";
+            }
+            case CACHE_HIT:
+            case CACHE_MISS:
+                return String.format("Cycle %d: %s %s - Addr: 0x%X (Tag: %d, Index: %d)%s",
+                        cycles[s], d[s] == 0 ? "Load" : "Store",
+                        types[s] == Type.CACHE_HIT.ordinal() ? "HIT" : "MISS",
+                        a[s], b[s], c[s], d[s] == 0 ? "" : " [" + d[s] + " bytes]");
+            case STALL:
+                return "Stalled issuing " + instruction(a[s]) + ": " + stallReasonName(b[s]);
+            case NO_CONSUMER:
+                return "WARNING: No register found with Qi=" + station(c[s]) + " for instruction "
+                        + instruction(a[s]);
+            case FAST_FORWARD:
+                return "Cycles " + a[s] + "-" + b[s] + " fast-forwarded (no events)";
+            case COMMIT:
+                return "Commit: " + instruction(a[s]) + " (" + station(c[s]) + ")";
+            case SQUASH:
+                return "Mispredicted " + instruction(a[s]) + ": squashed " + c[s]
+                        + " instructions, fetching from PC " + d[s];
+            case STORE_FORWARD:
+                return "Forwarded " + x[s] + " from " + station(d[s]) + " to " + station(c[s]) + " ("
+                        + instruction(a[s]) + ")";
+            default:
+                return TYPES[types[s]].name();
+        }
+    }
+
+    public static String stallReasonName(int reason) {
+        return reason >= 0 && reason < STALL_NAMES.length ? STALL_NAMES[reason] : "unknown reason";
+    }
+
+    private Instruction program(int pc) {
+        int index = pc / 4;
+        return pc >= 0 && index < program.size() ? program.get(index) : null;
+    }
+
+    private String instruction(int pc) {
+        Instruction inst = program(pc);
+        return inst != null ? inst.toString() : "PC " + pc;
+    }
+
+    private String station(int tag) {
+        return tags != null ? tags.nameOf(tag) : "#" + tag;
+    }
+}
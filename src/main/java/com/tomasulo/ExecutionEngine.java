@@ -1,12 +1,13 @@
 package com.tomasulo;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 public class ExecutionEngine {
     private Config config;
+    private TagTable tags; // Station/buffer name <-> int tag
     private List<ReservationStation> addSubStations;
     private List<ReservationStation> mulDivStations;
     private List<ReservationStation> intStations;
@@ -16,86 +17,153 @@ public class ExecutionEngine {
     private RegisterFile registerFile;
     private InstructionQueue instructionQueue;
     private CommonDataBus cdb;
-    private Cache cache;
+    private Scheduler scheduler; // Ready lists and tag -> consumer wakeup index
+    private DisambiguationTable inFlightAccesses; // Byte ranges of busy load/store buffers
+    // Shared functional units per unit class, null where each station has its own
+    private final FunctionalUnitPool[] unitPools = new FunctionalUnitPool[Instruction.UnitClass.values().length];
+    private long forwardedLoads; // Loads that took their value from a store buffer
+    private MemoryHierarchy memoryHierarchy;
+    private Cache cache; // L1 of memoryHierarchy
     private Memory memory;
     private int currentCycle;
     private int issueOrder;
-    private Map<String, Integer> labels;
-    private List<String> cycleLog;
+    private long completedInstructions; // Instructions that have written back on the CDB
+    private EventLog events; // Typed cycle events, rendered to text on demand
     private boolean branchInFlight; // True if a branch has been issued but not yet written back
+    private boolean quietCycle; // Last cycle had no CDB write and issued nothing
+    private long[] issueHistogram; // issueHistogram[k] = cycles that issued k instructions
+    private int issuedThisCycle;
+    // Registers written by this cycle's load broadcast, which lands before issue.
+    // Loads/stores still treat them as not ready for address computation until
+    // the next cycle, as for any other CDB write.
+    private final BitSet loadResultRegs = new BitSet();
+    private int issueStall; // Why issue stopped this cycle (EventLog.STALL_*)
+    private final PerformanceCounters counters = new PerformanceCounters();
+
+    // Speculation (Config.robSize > 0)
+    private ReorderBuffer rob; // null without a reorder buffer
+    private int committedThisCycle;
+    private int commitBlockedUntil; // A committed store waits for the write buffer until this cycle
+    private boolean fetchRedirected; // A predicted-taken branch issued this cycle
+    private long squashedInstructions;
+
+    // Branch prediction, scored in both modes
+    private BranchPredictor predictor;
+    private BranchTargetBuffer btb; // null when Config.btbEntries is 0
+    private long predictedBranches;
+    private long mispredictions;
+    private long recoveryCycles;
+
+    private CheckpointHistory checkpoints; // For stepping back, null when Config.checkpointInterval is 0
 
     public ExecutionEngine(Config config) {
+        if (config.issueWidth < 1) {
+            throw new IllegalArgumentException("issueWidth must be at least 1");
+        }
+        if (config.robSize < 0) {
+            throw new IllegalArgumentException("robSize must not be negative");
+        }
+        if (config.storeForwardLatency < 1) {
+            throw new IllegalArgumentException("storeForwardLatency must be at least 1");
+        }
+        if (config.btbEntries < 0) {
+            throw new IllegalArgumentException("btbEntries must not be negative");
+        }
+        if (config.checkpointInterval < 0) {
+            throw new IllegalArgumentException("checkpointInterval must not be negative");
+        }
         this.config = config;
         this.currentCycle = 0;
         this.issueOrder = 0;
         this.branchInFlight = false; // No branch in flight initially
-        this.labels = new HashMap<>();
-        this.cycleLog = new ArrayList<>();
+        this.events = new EventLog(config);
         // branchStations list initialized in initializeComponents
 
         initializeComponents();
     }
 
     private void initializeComponents() {
-        // Initialize reservation stations
-        addSubStations = new ArrayList<>();
-        for (int i = 0; i < config.addSubStations; i++) {
-            addSubStations.add(new ReservationStation("Add" + (i + 1)));
-        }
+        tags = new TagTable();
+        scheduler = new Scheduler();
+        issueHistogram = new long[config.issueWidth + 1];
 
-        mulDivStations = new ArrayList<>();
-        for (int i = 0; i < config.mulDivStations; i++) {
-            mulDivStations.add(new ReservationStation("Mul" + (i + 1)));
-        }
-
-        intStations = new ArrayList<>();
-        for (int i = 0; i < config.integerStations; i++) {
-            intStations.add(new ReservationStation("Int" + (i + 1)));
-        }
+        // Initialize reservation stations
+        addSubStations = createStations("Add", config.addSubStations, Instruction.UnitClass.ADD_SUB);
+        mulDivStations = createStations("Mul", config.mulDivStations, Instruction.UnitClass.MUL_DIV);
+        intStations = createStations("Int", config.integerStations, Instruction.UnitClass.INTEGER);
 
         // Branch reservation stations
-        branchStations = new ArrayList<>();
-        for (int i = 0; i < config.branchStations; i++) {
-            branchStations.add(new ReservationStation("Br" + (i + 1)));
-        }
+        branchStations = createStations("Br", config.branchStations, Instruction.UnitClass.BRANCH);
 
-        // Initialize load/store buffers
-        loadBuffers = new ArrayList<>();
-        for (int i = 0; i < config.loadBuffers; i++) {
-            loadBuffers.add(new LoadStoreBuffer("Load" + (i + 1)));
-        }
+        createUnitPool(Instruction.UnitClass.ADD_SUB, config.addSubUnits, config.addSubPipelined,
+                config.addSubInitiationInterval);
+        createUnitPool(Instruction.UnitClass.MUL_DIV, config.mulDivUnits, config.mulDivPipelined,
+                config.mulDivInitiationInterval);
+        createUnitPool(Instruction.UnitClass.INTEGER, config.integerUnits, config.integerPipelined,
+                config.integerInitiationInterval);
 
-        storeBuffers = new ArrayList<>();
-        for (int i = 0; i < config.storeBuffers; i++) {
-            storeBuffers.add(new LoadStoreBuffer("Store" + (i + 1)));
-        }
+        // Initialize load/store buffers
+        loadBuffers = createBuffers("Load", config.loadBuffers, Instruction.UnitClass.LOAD);
+        storeBuffers = createBuffers("Store", config.storeBuffers, Instruction.UnitClass.STORE);
+        inFlightAccesses = new DisambiguationTable(tags.size());
+        rob = config.robSize > 0 ? new ReorderBuffer(config.robSize, tags) : null;
 
         // Initialize other components
-        registerFile = new RegisterFile(config.numIntegerRegisters, config.numFloatRegisters);
+        registerFile = new RegisterFile(config.numIntegerRegisters, config.numFloatRegisters, tags);
         instructionQueue = new InstructionQueue(config.instructionQueueSize);
-        cdb = new CommonDataBus();
-        cache = new Cache(config.cacheSize, config.blockSize, config.cacheHitLatency, config.cacheMissPenalty);
+        instructionQueue.setRecordHistory(config.recordIssueHistory);
+        // Fetch only follows predictions when the reorder buffer can undo them
+        predictor = BranchPredictor.create(config);
+        instructionQueue.setBranchPredictor(predictor, rob != null);
+        btb = config.btbEntries > 0 ? new BranchTargetBuffer(config.btbEntries, config.btbAssociativity) : null;
+        instructionQueue.setBranchTargetBuffer(btb);
+        cdb = new CommonDataBus(config.numCdbs, config.cdbUnits);
         memory = new Memory();
+        memory.setTrace(config.traceMemory);
         // Preload memory with test data aligned to cache block size
         // Each block gets a sequential value (10, 20, 30, ...)
         memory.preloadWithTestData(config.blockSize);
-        // Set memory reference in cache so it can load blocks
-        cache.setMemory(memory);
+        // The caches load their blocks from memory
+        memoryHierarchy = MemoryHierarchy.create(config, memory, events);
+        cache = memoryHierarchy.getLevels().get(0);
+        events.setTagTable(tags);
+        checkpoints = config.checkpointInterval > 0
+                ? new CheckpointHistory(config.checkpointInterval, config.checkpointLimit)
+                : null;
     }
 
-    public void loadProgram(List<Instruction> instructions) {
-        // Parse labels
-        labels.clear();
-        for (int i = 0; i < instructions.size(); i++) {
-            Instruction inst = instructions.get(i);
-            String line = inst.getOriginalInstruction();
-            if (line != null && line.contains(":")) {
-                String label = line.substring(0, line.indexOf(":")).trim();
-                labels.put(label, i * 4);
-            }
+    private List<ReservationStation> createStations(String prefix, int count, Instruction.UnitClass unit) {
+        List<ReservationStation> stations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            ReservationStation rs = new ReservationStation(prefix + (i + 1), tags);
+            stations.add(rs);
+            scheduler.register(unit, rs);
+        }
+        return stations;
+    }
+
+    private void createUnitPool(Instruction.UnitClass unit, int count, boolean pipelined, int initiationInterval) {
+        if (count < 0) {
+            throw new IllegalArgumentException(unit + " unit count must not be negative");
+        }
+        unitPools[unit.ordinal()] = count > 0 ? new FunctionalUnitPool(unit, count, pipelined, initiationInterval)
+                : null;
+    }
+
+    private List<LoadStoreBuffer> createBuffers(String prefix, int count, Instruction.UnitClass unit) {
+        List<LoadStoreBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            LoadStoreBuffer buf = new LoadStoreBuffer(prefix + (i + 1), tags);
+            buffers.add(buf);
+            scheduler.register(unit, buf);
         }
+        return buffers;
+    }
 
+    public void loadProgram(List<Instruction> instructions) {
+        // Branch targets were already resolved by InstructionParser
         instructionQueue.loadInstructions(instructions);
+        events.setProgram(instructions);
     }
 
     public void reset() {
@@ -105,7 +173,27 @@ public class ExecutionEngine {
     public void reset(boolean preserveRegisters) {
         currentCycle = 0;
         issueOrder = 0;
-        cycleLog.clear();
+        completedInstructions = 0;
+        branchInFlight = false;
+        quietCycle = false;
+        issuedThisCycle = 0;
+        loadResultRegs.clear();
+        committedThisCycle = 0;
+        commitBlockedUntil = 0;
+        fetchRedirected = false;
+        squashedInstructions = 0;
+        predictor.reset();
+        if (btb != null) {
+            btb.reset();
+        }
+        predictedBranches = 0;
+        mispredictions = 0;
+        recoveryCycles = 0;
+        if (rob != null) {
+            rob.flush();
+        }
+        Arrays.fill(issueHistogram, 0);
+        events.clear();
 
         for (ReservationStation rs : addSubStations)
             rs.clear();
@@ -113,10 +201,21 @@ public class ExecutionEngine {
             rs.clear();
         for (ReservationStation rs : intStations)
             rs.clear();
+        for (ReservationStation rs : branchStations)
+            rs.clear();
         for (LoadStoreBuffer buf : loadBuffers)
             buf.clear();
         for (LoadStoreBuffer buf : storeBuffers)
             buf.clear();
+        scheduler.reset();
+        inFlightAccesses.clear();
+        forwardedLoads = 0;
+        counters.reset();
+        for (FunctionalUnitPool pool : unitPools) {
+            if (pool != null) {
+                pool.reset();
+            }
+        }
 
         if (!preserveRegisters) {
             registerFile.reset();
@@ -126,200 +225,560 @@ public class ExecutionEngine {
         }
         instructionQueue.reset();
         cdb.clearPendingWrites();
-        cache.reset();
+        cdb.resetStatistics();
+        memoryHierarchy.reset();
         memory.reset();
+        if (checkpoints != null) {
+            checkpoints.clear();
+        }
     }
 
     public boolean executeCycle() {
+        return executeCycle(Long.MAX_VALUE);
+    }
+
+    /**
+     * Execute the next cycle without going past cycle limit. With fast-forward
+     * enabled, idle cycles before it are skipped first.
+     */
+    private boolean executeCycle(long limit) {
+        if (checkpoints != null && checkpoints.isDue(currentCycle)) {
+            checkpoints.add(checkpoint());
+        }
+        if (config.fastForward) {
+            skipIdleCycles(limit - currentCycle - 1);
+        }
+
         currentCycle++;
-        cycleLog.add("=== Cycle " + currentCycle + " ===");
+        events.beginCycle(currentCycle);
+        memoryHierarchy.setCycle(currentCycle);
 
-        // 1. Write Result (CDB) - select winner and broadcast
-        CommonDataBus.BusEntry winner = writeResultStage();
+        // 0. Commit (reorder buffer mode) - retire results written in earlier cycles
+        committedThisCycle = rob != null ? commitStage() : 0;
 
-        // Store the winner's tag and address for issue stage checks
-        String winnerTag = (winner != null) ? winner.tag : null;
-        int winnerAddress = -1;
-        if (winner != null && winner.instruction != null && 
-            (winner.instruction.isLoad() || winner.instruction.isStore())) {
-            winnerAddress = winner.instruction.getAddress();
-        }
+        // 1. Write Result (CDB) - select up to numCdbs winners
+        int cdbRequests = cdb.getPendingCount();
+        List<CommonDataBus.BusEntry> winners = writeResultStage();
 
         // 3. Execute
         executeStage();
 
-        // 4. Issue (pass winner info to prevent issuing to same address in same cycle)
-        issueStage(winnerTag, winnerAddress);
+        // A load's buffer was freed in writeResultStage and may be reissued below
+        // under the same tag, so its result must reach the registers and waiting
+        // stations first; broadcasting after issue would also hit the new load.
+        // With a reorder buffer results are renamed to ROB tags, so there is no clash.
+        boolean loadWinner = false;
+        for (CommonDataBus.BusEntry winner : winners) {
+            if (rob == null && winner.instruction != null && winner.instruction.isLoad()) {
+                write(winner);
+                loadWinner = true;
+            }
+        }
+
+        // 4. Issue (pass the winners to prevent issuing to their addresses in the same cycle)
+        issueStage(winners);
+        quietCycle = winners.isEmpty() && issuedThisCycle == 0 && committedThisCycle == 0;
 
-        if (winner != null) {
-            write(winner);
+        if (loadWinner) {
+            loadResultRegs.clear();
+        }
+        for (CommonDataBus.BusEntry winner : winners) {
+            if (rob != null || winner.instruction == null || !winner.instruction.isLoad()) {
+                write(winner);
+            }
+        }
+        counters.recordCycle(issueStall, cdbRequests, winners.size(), scheduler);
+        if (cdbRequests > 0) {
+            FlightEvents.CdbArbitration arbitration = new FlightEvents.CdbArbitration();
+            if (arbitration.isEnabled()) {
+                arbitration.cycle = currentCycle;
+                arbitration.pc = winners.isEmpty() || winners.get(0).instruction == null ? -1
+                        : winners.get(0).instruction.getPc();
+                arbitration.requests = cdbRequests;
+                arbitration.grants = winners.size();
+                arbitration.commit();
+            }
         }
 
         // Check if simulation is complete
-        return !isComplete();
+        if (isComplete()) {
+            // Count what would still have to leave the caches
+            memoryHierarchy.writeBackDirty();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Run cycles until the program completes or maxCycles have elapsed.
+     * Returns true if the program completed; an engine that has already
+     * completed (restored from a finished run) runs no further cycle.
+     */
+    public boolean runToCompletion(long maxCycles) {
+        if (isComplete()) {
+            return true;
+        }
+        FlightEvents.CycleBatch batch = beginBatch();
+        while (currentCycle < maxCycles) {
+            if (!executeCycle(maxCycles)) {
+                endBatch(batch);
+                return true;
+            }
+            if (batch != null && currentCycle - batch.firstCycle >= FlightEvents.BATCH_CYCLES) {
+                endBatch(batch);
+                batch = beginBatch();
+            }
+        }
+        endBatch(batch);
+        return isComplete();
+    }
+
+    /**
+     * Start timing a batch of cycles for JFR, or null if the event is not recorded.
+     */
+    private FlightEvents.CycleBatch beginBatch() {
+        FlightEvents.CycleBatch batch = new FlightEvents.CycleBatch();
+        if (!batch.isEnabled()) {
+            return null;
+        }
+        batch.firstCycle = currentCycle + 1;
+        batch.instructions = completedInstructions; // Replaced by the difference at the end
+        batch.begin();
+        return batch;
+    }
+
+    private void endBatch(FlightEvents.CycleBatch batch) {
+        if (batch == null || currentCycle < batch.firstCycle) {
+            return;
+        }
+        batch.end();
+        if (batch.shouldCommit()) {
+            batch.lastCycle = currentCycle;
+            batch.instructions = completedInstructions - batch.instructions;
+            batch.commit();
+        }
+    }
+
+    /**
+     * Capture the state between cycles. Memory pages are shared with the
+     * checkpoint until they are next written.
+     */
+    public Checkpoint checkpoint() {
+        Checkpoint.Writer out = new Checkpoint.Writer();
+        // Layout of the engine, checked on restore
+        out.putInt(tags.size());
+        out.putInt(instructionQueue.getProgramSize());
+        out.putInt(issueHistogram.length);
+        out.putString(predictor.getName());
+        out.putInt(btb != null ? btb.getEntries() : 0);
+        for (FunctionalUnitPool pool : unitPools) {
+            out.putInt(pool != null ? pool.getCount() : 0);
+        }
+
+        out.putInt(currentCycle);
+        out.putInt(issueOrder);
+        out.putLong(completedInstructions);
+        out.putBoolean(branchInFlight);
+        out.putBoolean(quietCycle);
+        out.putInt(issuedThisCycle);
+        out.putLongs(issueHistogram);
+        out.putLongs(loadResultRegs.toLongArray());
+        out.putInt(committedThisCycle);
+        out.putInt(commitBlockedUntil);
+        out.putBoolean(fetchRedirected);
+        out.putLong(squashedInstructions);
+        out.putLong(predictedBranches);
+        out.putLong(mispredictions);
+        out.putLong(recoveryCycles);
+        out.putLong(forwardedLoads);
+        out.putLong(events.getRecorded());
+
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            if (unit == Instruction.UnitClass.LOAD || unit == Instruction.UnitClass.STORE) {
+                for (LoadStoreBuffer buf : buffersFor(unit)) {
+                    buf.saveState(out);
+                }
+            } else {
+                for (ReservationStation rs : stationsFor(unit)) {
+                    rs.saveState(out);
+                }
+            }
+        }
+        registerFile.saveState(out);
+        instructionQueue.saveState(out);
+        cdb.saveState(out);
+        scheduler.saveState(out);
+        inFlightAccesses.saveState(out);
+        if (rob != null) {
+            rob.saveState(out);
+        }
+        for (FunctionalUnitPool pool : unitPools) {
+            if (pool != null) {
+                pool.saveState(out);
+            }
+        }
+        predictor.saveState(out);
+        if (btb != null) {
+            btb.saveState(out);
+        }
+        memoryHierarchy.saveState(out);
+        counters.saveState(out);
+        return new Checkpoint(currentCycle, out, memory.sharePages());
+    }
+
+    /**
+     * Put the engine back into the state captured by checkpoint, which must come
+     * from an engine with the same configuration and program.
+     */
+    public void restore(Checkpoint checkpoint) {
+        Checkpoint.Reader in = checkpoint.reader();
+        in.expect(in.getInt(), tags.size());
+        in.expect(in.getInt(), instructionQueue.getProgramSize());
+        in.expect(in.getInt(), issueHistogram.length);
+        if (!predictor.getName().equals(in.getString())) {
+            throw new IllegalArgumentException("Checkpoint does not match this engine's configuration");
+        }
+        in.expect(in.getInt(), btb != null ? btb.getEntries() : 0);
+        for (FunctionalUnitPool pool : unitPools) {
+            in.expect(in.getInt(), pool != null ? pool.getCount() : 0);
+        }
+        checkpoint.restoreInstances();
+
+        currentCycle = in.getInt();
+        issueOrder = in.getInt();
+        completedInstructions = in.getLong();
+        branchInFlight = in.getBoolean();
+        quietCycle = in.getBoolean();
+        issuedThisCycle = in.getInt();
+        in.getLongs(issueHistogram);
+        loadResultRegs.clear();
+        loadResultRegs.or(BitSet.valueOf(in.getLongs()));
+        committedThisCycle = in.getInt();
+        commitBlockedUntil = in.getInt();
+        fetchRedirected = in.getBoolean();
+        squashedInstructions = in.getLong();
+        predictedBranches = in.getLong();
+        mispredictions = in.getLong();
+        recoveryCycles = in.getLong();
+        forwardedLoads = in.getLong();
+        events.truncate(in.getLong());
+        events.beginCycle(currentCycle);
+
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            if (unit == Instruction.UnitClass.LOAD || unit == Instruction.UnitClass.STORE) {
+                for (LoadStoreBuffer buf : buffersFor(unit)) {
+                    buf.restoreState(in);
+                }
+            } else {
+                for (ReservationStation rs : stationsFor(unit)) {
+                    rs.restoreState(in);
+                }
+            }
+        }
+        registerFile.restoreState(in);
+        instructionQueue.restoreState(in);
+        cdb.restoreState(in);
+        scheduler.restoreState(in);
+        inFlightAccesses.restoreState(in);
+        if (rob != null) {
+            rob.restoreState(in);
+        }
+        for (FunctionalUnitPool pool : unitPools) {
+            if (pool != null) {
+                pool.restoreState(in);
+            }
+        }
+        predictor.restoreState(in);
+        if (btb != null) {
+            btb.restoreState(in);
+        }
+        memoryHierarchy.restoreState(in);
+        counters.restoreState(in);
+        memory.restorePages(checkpoint.getMemoryPages());
+    }
+
+    /**
+     * Go back to the state at the end of cycle: restore the latest periodic
+     * checkpoint at or before it and replay the cycles in between. Returns
+     * false if no checkpoint covers cycle (checkpoints off, or cycle not in
+     * the past).
+     */
+    public boolean rewindTo(int cycle) {
+        if (checkpoints == null || cycle < 0 || cycle >= currentCycle) {
+            return false;
+        }
+        Checkpoint checkpoint = checkpoints.latestAtOrBefore(cycle);
+        if (checkpoint == null) {
+            return false;
+        }
+        restore(checkpoint);
+        checkpoints.discardAfter(checkpoint.getCycle());
+        while (currentCycle < cycle && executeCycle(cycle)) {
+            // Replay up to the requested cycle
+        }
+        return true;
+    }
+
+    /**
+     * Undo the last cycle (see rewindTo).
+     */
+    public boolean stepBack() {
+        return rewindTo(currentCycle - 1);
     }
 
-    private void issueStage(String winnerTag, int winnerAddress) {
-        if (instructionQueue.isEmpty()) {
+    /**
+     * Periodic checkpoints held for stepping back, or null when they are off.
+     */
+    public CheckpointHistory getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * Skip the cycles in which nothing but countdowns would happen.
+     *
+     * After a cycle with no CDB write and no issue, and with no CDB request
+     * pending, the issue stage sees the same state every cycle and keeps
+     * stalling, so the next event is the first execution to complete. Every
+     * executing entry is advanced by the same number of cycles, which leaves
+     * the timing identical to stepping one cycle at a time.
+     */
+    private void skipIdleCycles(long maxSkip) {
+        if (!quietCycle || maxSkip <= 0 || cdb.hasPendingWrites()) {
             return;
         }
 
+        // Cycles until the first completion; entries still in their first
+        // execution cycle (start time, cache access) are events themselves.
+        long skip = Long.MAX_VALUE;
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            for (int i = scheduler.nextReady(unit, 0); i >= 0; i = scheduler.nextReady(unit, i + 1)) {
+                int remaining;
+                Instruction inst;
+                if (unit == Instruction.UnitClass.LOAD || unit == Instruction.UnitClass.STORE) {
+                    LoadStoreBuffer buf = buffersFor(unit).get(i);
+                    if (!buf.isCacheAccessed()) {
+                        return;
+                    }
+                    remaining = buf.getRemainingCycles();
+                    inst = buf.getInstruction();
+                } else {
+                    ReservationStation rs = stationsFor(unit).get(i);
+                    remaining = rs.getRemainingCycles();
+                    inst = rs.getInstruction();
+                }
+                if (inst.getExecStartTime() == -1) {
+                    // Waiting for a shared unit: the next event is a unit freeing up
+                    FunctionalUnitPool pool = unitPools[unit.ordinal()];
+                    if (pool == null || pool.hasFreeUnit(currentCycle + 1)) {
+                        return;
+                    }
+                    skip = Math.min(skip, pool.nextFreeCycle() - currentCycle - 1);
+                    continue;
+                }
+                skip = Math.min(skip, remaining - 1);
+            }
+        }
+        // Nothing executing means nothing will ever change: keep stepping
+        if (skip == Long.MAX_VALUE) {
+            return;
+        }
+        // A commit held back by the write buffer resumes on its own
+        if (commitBlockedUntil > currentCycle) {
+            skip = Math.min(skip, commitBlockedUntil - currentCycle - 1);
+        }
+        skip = Math.min(skip, maxSkip);
+        if (skip <= 0) {
+            return;
+        }
+
+        int cycles = (int) skip;
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            for (int i = scheduler.nextReady(unit, 0); i >= 0; i = scheduler.nextReady(unit, i + 1)) {
+                if (unit == Instruction.UnitClass.LOAD || unit == Instruction.UnitClass.STORE) {
+                    LoadStoreBuffer buf = buffersFor(unit).get(i);
+                    buf.setRemainingCycles(buf.getRemainingCycles() - cycles);
+                } else {
+                    ReservationStation rs = stationsFor(unit).get(i);
+                    if (rs.getInstruction().getExecStartTime() == -1) {
+                        unitPools[unit.ordinal()].recordStalls(1, cycles);
+                    } else {
+                        rs.setRemainingCycles(rs.getRemainingCycles() - cycles);
+                    }
+                }
+            }
+        }
+        int first = currentCycle + 1;
+        currentCycle += cycles;
+        issueHistogram[0] += cycles; // Skipped cycles issue nothing
+        counters.recordSkippedCycles(cycles, scheduler);
+        events.beginCycle(currentCycle);
+        events.record(EventLog.Type.FAST_FORWARD, first, currentCycle, 0);
+    }
+
+    private void issueStage(List<CommonDataBus.BusEntry> winners) {
+        // Issue up to issueWidth instructions in program order, stopping at the first
+        // that cannot issue. Each issue renames its destination and takes its station
+        // before the next is checked, so RAW and structural hazards between
+        // instructions issued in the same cycle are seen like any other.
+        // A predicted-taken branch redirects fetch; the target path issues next cycle.
+        int issued = 0;
+        fetchRedirected = false;
+        issueStall = EventLog.STALL_NONE;
+        while (issued < config.issueWidth && !fetchRedirected && issueNext(winners)) {
+            issued++;
+        }
+        issuedThisCycle = issued;
+        issueHistogram[issued]++;
+    }
+
+    /**
+     * Try to issue the instruction at the head of the queue. Returns true if it issued.
+     */
+    private boolean issueNext(List<CommonDataBus.BusEntry> winners) {
         Instruction inst = instructionQueue.peek();
         if (inst == null)
-            return;
+            return false;
         // Prevent issuing the same static instruction while a previous instance
         // of it is still pending write-back. This avoids an instruction being
         // in both "write-back" and "issue" in the same cycle.
-        for (CommonDataBus.BusEntry pending : cdb.getPendingWrites()) {
-            if (pending != null && pending.instruction != null && pending.instruction.getPc() == inst.getPc()) {
-                // Stall issuing this instruction until the older instance completes
-                return;
-            }
+        if (cdb.hasPendingWriteFrom(inst.getPc())) {
+            // Stall issuing this instruction until the older instance completes
+            return stall(inst, EventLog.STALL_PENDING_WRITE);
         }
 
         // Check if this is a branch - branches can issue immediately
-        boolean isBranch = (inst.getType() == Instruction.InstructionType.BEQ ||
-                inst.getType() == Instruction.InstructionType.BNE);
+        boolean isBranch = inst.isBranch();
 
         // If there's a branch in flight and this is NOT a branch, stall all issuing
         if (!isBranch && branchInFlight) {
-            cycleLog.add("Stalled issuing due to branch in flight (waiting for write-back)");
-            return;
+            return stall(inst, EventLog.STALL_BRANCH);
         }
-        // issuance handled per-case below
 
-        switch (inst.getType()) {
-            case ADD_D:
-            case SUB_D:
-            case ADD_S:
-            case SUB_S:
+        int stall;
+        if (rob != null && rob.isFull()) {
+            return stall(inst, EventLog.STALL_ROB_FULL);
+        }
+        switch (inst.getUnitClass()) {
+            case ADD_SUB:
                 // Need a free Add/Sub RS
-                if (findFreeStation(addSubStations) != null) {
-                    Instruction issuedInst = instructionQueue.issue();
-                    if (issuedInst != null && issueToAddSub(issuedInst)) {
-                        issuedInst.setIssueTime(currentCycle);
-                        cycleLog.add("Issued: " + issuedInst.toString());
-                    }
-                }
+                stall = findFreeStation(addSubStations) != null ? EventLog.STALL_NONE : EventLog.STALL_STRUCTURAL;
                 break;
-            case MUL_D:
-            case DIV_D:
-            case MUL_S:
-            case DIV_S:
-                if (findFreeStation(mulDivStations) != null) {
-                    Instruction issuedInst = instructionQueue.issue();
-                    if (issuedInst != null && issueToMulDiv(issuedInst)) {
-                        issuedInst.setIssueTime(currentCycle);
-                        cycleLog.add("Issued: " + issuedInst.toString());
-                    }
-                }
+            case MUL_DIV:
+                stall = findFreeStation(mulDivStations) != null ? EventLog.STALL_NONE : EventLog.STALL_STRUCTURAL;
                 break;
-            case DADDI:
-            case DSUBI:
-                if (findFreeStation(intStations) != null) {
-                    Instruction issuedInst = instructionQueue.issue();
-                    if (issuedInst != null && issueToInteger(issuedInst)) {
-                        issuedInst.setIssueTime(currentCycle);
-                        cycleLog.add("Issued: " + issuedInst.toString());
-                    }
-                }
+            case INTEGER:
+                stall = findFreeStation(intStations) != null ? EventLog.STALL_NONE : EventLog.STALL_STRUCTURAL;
                 break;
-            case L_D:
-            case L_S:
-            case LW:
-            case LD:
+            case LOAD:
                 // For loads, base register must be ready
-                if (instructionReadyForLoad(inst, winnerTag, winnerAddress)) {
-                    Instruction issuedInst = instructionQueue.issue();
-                    if (issuedInst != null && issueLoad(issuedInst)) {
-                        issuedInst.setIssueTime(currentCycle);
-                        cycleLog.add("Issued: " + issuedInst.toString());
-                    }
-                }
+                stall = loadStallReason(inst, winners);
                 break;
-            case S_D:
-            case S_S:
-            case SW:
-            case SD:
-                if (instructionReadyForStore(inst, winnerTag, winnerAddress)) {
-                    Instruction issuedInst = instructionQueue.issue();
-                    if (issuedInst != null && issueStore(issuedInst)) {
-                        issuedInst.setIssueTime(currentCycle);
-                        cycleLog.add("Issued: " + issuedInst.toString());
-                    }
-                }
+            case STORE:
+                stall = storeStallReason(inst, winners);
                 break;
-            case BEQ:
-            case BNE:
+            default:
                 // Branch issues immediately (captures Qi if operands not ready)
-                if (findFreeStation(branchStations) != null) {
-                    Instruction issuedInst = instructionQueue.issue();
-                    if (issuedInst != null) {
-                        boolean issuedOk = issueBranch(issuedInst);
-                        if (issuedOk) {
-                            cycleLog.add("Issued: " + issuedInst.toString());
-                        }
-                    }
-                }
+                stall = findFreeStation(branchStations) != null ? EventLog.STALL_NONE : EventLog.STALL_STRUCTURAL;
                 break;
         }
+        if (stall != EventLog.STALL_NONE) {
+            return stall(inst, stall);
+        }
+
+        Instruction issuedInst = instructionQueue.issue();
+        if (issuedInst == null) {
+            return false;
+        }
+        ReorderBuffer.Entry robEntry = null;
+        if (rob != null) {
+            // Allocate before renaming so the destination is renamed to the ROB entry
+            robEntry = rob.allocate(issuedInst);
+            issuedInst.setRobTag(robEntry.getTag());
+        }
+        int tag;
+        switch (issuedInst.getUnitClass()) {
+            case ADD_SUB:
+                tag = issueToAddSub(issuedInst);
+                break;
+            case MUL_DIV:
+                tag = issueToMulDiv(issuedInst);
+                break;
+            case INTEGER:
+                tag = issueToInteger(issuedInst);
+                break;
+            case LOAD:
+                tag = issueLoad(issuedInst);
+                break;
+            case STORE:
+                tag = issueStore(issuedInst);
+                break;
+            default:
+                tag = issueBranch(issuedInst);
+                break;
+        }
+        if (tag == TagTable.NONE) {
+            return false;
+        }
+        if (robEntry != null) {
+            robEntry.setStationTag(tag);
+        }
+        issuedInst.setIssueTime(currentCycle);
+        events.record(EventLog.Type.ISSUE, issuedInst.getPc(), issuedInst.getIteration(), tag);
+        return true;
+    }
+
+    /**
+     * Record that inst cannot issue this cycle for reason. Returns false.
+     */
+    private boolean stall(Instruction inst, int reason) {
+        events.record(EventLog.Type.STALL, inst.getPc(), reason, 0);
+        issueStall = reason;
+        FlightEvents.IssueStall event = new FlightEvents.IssueStall();
+        if (event.isEnabled()) {
+            event.cycle = currentCycle;
+            event.pc = inst.getPc();
+            event.reason = PerformanceCounters.stallKey(reason);
+            event.commit();
+        }
+        return false;
     }
 
-    private boolean instructionReadyForLoad(Instruction inst, String winnerTag, int winnerAddress) {
-        String base = inst.getSrc1();
+    /**
+     * Why a load cannot issue this cycle, or EventLog.STALL_NONE if it can.
+     */
+    private int loadStallReason(Instruction inst, List<CommonDataBus.BusEntry> winners) {
+        int base = inst.getSrc1Reg();
         // Base register must be ready and a free load buffer must exist
-        if (!registerFile.getStatus(base).isEmpty())
-            return false;
+        if (operandTag(base) != TagTable.NONE || (base >= 0 && loadResultRegs.get(base)))
+            return EventLog.STALL_OPERAND;
         if (findFreeBuffer(loadBuffers) == null)
-            return false;
+            return EventLog.STALL_STRUCTURAL;
 
-        // Try to compute address (offset should be parseable)
-        try {
-            int offset = Integer.parseInt(inst.getSrc2());
-            int address = (int) registerFile.getValue(base) + offset;
-
-            // Check if the winner (about to write back this cycle) has the same address
-            // Prevent issuing in the same cycle as write-back
-            if (winnerAddress >= 0 && winnerAddress == address) {
-                return false;
-            }
-
-            // If any store buffer already holds this address, stall to preserve memory
-            // ordering
-            for (LoadStoreBuffer sb : storeBuffers) {
-                if (sb.isBusy() && sb.getAddress() == address)
-                    return false;
-            }
-            
-            // Check if any store in CDB pending writes has the same address
-            // Wait until write-back completes before issuing load to same address
-            for (CommonDataBus.BusEntry pending : cdb.getPendingWrites()) {
-                if (pending != null && pending.instruction != null && pending.instruction.isStore()) {
-                    if (pending.instruction.getAddress() == address) {
-                        return false;
-                    }
-                }
-            }
-            
-            // Check if any load in CDB pending writes has the same address
-            // Wait until write-back completes before issuing load to same address
-            // for (CommonDataBus.BusEntry pending : cdb.getPendingWrites()) {
-            //     if (pending != null && pending.instruction != null && pending.instruction.isLoad()) {
-            //         if (pending.instruction.getAddress() == address) {
-            //             return false;
-            //         }
-            //     }
-            // }
+        // Compute address (offset was decoded by the parser)
+        int address = (int) operandValue(base) + inst.getOffset();
+        int size = inst.getAccessSize();
 
-            return true;
-        } catch (NumberFormatException ex) {
-            // Can't compute address now -> stall
-            return false;
+        // Check if a winner (about to write back this cycle) touches the same bytes
+        // Prevent issuing in the same cycle as write-back
+        if (writesBackAddress(winners, address, size)) {
+            return EventLog.STALL_MEMORY;
+        }
+
+        // If a store in flight (still in its buffer, including one waiting for the
+        // CDB) overlaps these bytes, stall to preserve memory ordering unless its
+        // value can be forwarded
+        if (inFlightAccesses.overlaps(address, size, true) && forwardingStore(address, size) == null) {
+            return EventLog.STALL_MEMORY;
         }
+
+        return EventLog.STALL_NONE;
     }
 
-    private boolean instructionReadyForStore(Instruction inst, String winnerTag, int winnerAddress) {
-        String base = inst.getSrc1();
+    /**
+     * Why a store cannot issue this cycle, or EventLog.STALL_NONE if it can.
+     */
+    private int storeStallReason(Instruction inst, List<CommonDataBus.BusEntry> winners) {
+        int base = inst.getSrc1Reg();
         // value-to-store register is intentionally not required to be ready
         // at issue time; store buffer will record its Qi if needed.
 
@@ -327,202 +786,224 @@ public class ExecutionEngine {
         // Base register must be ready (to compute address). The source register
         // value may be produced later; we allow issuing a store with Q set so
         // it will receive the value when ready.
-        if (!registerFile.getStatus(base).isEmpty())
-            return false;
+        if (operandTag(base) != TagTable.NONE || (base >= 0 && loadResultRegs.get(base)))
+            return EventLog.STALL_OPERAND;
         if (findFreeBuffer(storeBuffers) == null)
-            return false;
+            return EventLog.STALL_STRUCTURAL;
 
-        // Compute address and check both load and store buffers for conflicts
-        try {
-            int offset = Integer.parseInt(inst.getSrc2());
-            int address = (int) registerFile.getValue(base) + offset;
-
-            // Check if the winner (about to write back this cycle) has the same address
-            // Prevent issuing in the same cycle as write-back
-            if (winnerAddress >= 0 && winnerAddress == address) {
-                return false;
-            }
-
-            // Check if any store buffer with the same address is still busy
-            // Wait until write-back completes
-            for (LoadStoreBuffer sb : storeBuffers) {
-                if (sb.isBusy() && sb.getAddress() == address)
-                    return false;
-            }
-            
-            // Check if any store in CDB pending writes has the same address
-            // Wait until write-back completes before issuing store to same address
-            for (CommonDataBus.BusEntry pending : cdb.getPendingWrites()) {
-                if (pending != null && pending.instruction != null && pending.instruction.isStore()) {
-                    if (pending.instruction.getAddress() == address) {
-                        return false;
-                    }
-                }
-            }
-            
-            for (LoadStoreBuffer lb : loadBuffers) {
-                if (lb.isBusy() && lb.getAddress() == address)
-                    return false;
-            }
-            
-            // Check if any load in CDB pending writes has the same address
-            // Wait until write-back completes before issuing store to same address
-            for (CommonDataBus.BusEntry pending : cdb.getPendingWrites()) {
-                if (pending != null && pending.instruction != null && pending.instruction.isLoad()) {
-                    if (pending.instruction.getAddress() == address) {
-                        return false;
-                    }
-                }
-            }
+        // Compute address and check both loads and stores in flight for conflicts
+        int address = (int) operandValue(base) + inst.getOffset();
+        int size = inst.getAccessSize();
 
-            return true;
-        } catch (NumberFormatException ex) {
-            return false;
+        // Check if a winner (about to write back this cycle) touches the same bytes
+        // Prevent issuing in the same cycle as write-back
+        if (writesBackAddress(winners, address, size)) {
+            return EventLog.STALL_MEMORY;
+        }
+
+        // Wait until every overlapping load or store in flight has written back
+        if (inFlightAccesses.overlaps(address, size, false)) {
+            return EventLog.STALL_MEMORY;
         }
+
+        return EventLog.STALL_NONE;
     }
 
-    private boolean issueToAddSub(Instruction inst) {
+    /**
+     * Store buffer a load of size bytes at address can take its value from: the
+     * youngest store in flight overlapping those bytes, if forwarding is on, the
+     * store writes exactly those bytes and its value is ready. Otherwise null and
+     * the load has to wait for the store.
+     */
+    private LoadStoreBuffer forwardingStore(int address, int size) {
+        if (!config.storeForwarding) {
+            return null;
+        }
+        LoadStoreBuffer store = scheduler.bufferOf(inFlightAccesses.youngestOverlappingStore(address, size));
+        if (store == null || store.getAddress() != address || store.getInstruction().getAccessSize() != size
+                || store.getQTag() != TagTable.NONE) {
+            return null;
+        }
+        return store;
+    }
+
+    /**
+     * Producer tag an operand has to wait for, or TagTable.NONE if its value can be
+     * read now with operandValue. With a reorder buffer a register renamed to an
+     * entry that already holds its result is available.
+     */
+    private int operandTag(int reg) {
+        int tag = registerFile.getStatusTag(reg);
+        if (rob != null && tag != TagTable.NONE && rob.entryOf(tag).isReady()) {
+            return TagTable.NONE;
+        }
+        return tag;
+    }
+
+    private double operandValue(int reg) {
+        int tag = registerFile.getStatusTag(reg);
+        if (rob != null && tag != TagTable.NONE) {
+            return rob.entryOf(tag).getValue();
+        }
+        return registerFile.getValue(reg);
+    }
+
+    /**
+     * Point the destination register at its producer: the station/buffer tag, or
+     * the instruction's reorder buffer entry.
+     */
+    private void renameDestination(Instruction inst, int stationTag) {
+        registerFile.setStatusTag(inst.getDestReg(), rob != null ? inst.getRobTag() : stationTag);
+    }
+
+    /**
+     * True if a load/store among this cycle's CDB winners accesses any of the
+     * size bytes at address.
+     */
+    private static boolean writesBackAddress(List<CommonDataBus.BusEntry> winners, int address, int size) {
+        for (CommonDataBus.BusEntry winner : winners) {
+            Instruction inst = winner.instruction;
+            if (inst != null && (inst.isLoad() || inst.isStore()) && inst.getAddress() >= 0
+                    && inst.getAddress() < address + size && address < inst.getAddress() + inst.getAccessSize()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int issueToAddSub(Instruction inst) {
         ReservationStation rs = findFreeStation(addSubStations);
         if (rs == null)
-            return false;
+            return TagTable.NONE;
 
-        String src1 = inst.getSrc1();
-        String src2 = inst.getSrc2();
+        int src1 = inst.getSrc1Reg();
+        int src2 = inst.getSrc2Reg();
 
         double vj = 0;
         double vk = 0;
-        String qj = registerFile.getStatus(src1);
-        String qk = registerFile.getStatus(src2);
-
-        if (qj.isEmpty())
-            vj = registerFile.getValue(src1);
-        if (qk.isEmpty())
-            vk = registerFile.getValue(src2);
-
-        int latency;
-        if (inst.getType() == Instruction.InstructionType.ADD_D
-                || inst.getType() == Instruction.InstructionType.ADD_S) {
-            latency = config.addLatency;
-        } else {
-            latency = config.subLatency;
-        }
+        int qj = operandTag(src1);
+        int qk = operandTag(src2);
 
-        // Convert operation name: ADD_D -> ADD.D
-        String opName = inst.getType().name().replace("_", ".");
-        rs.setInstruction(inst, opName, vj, vk, qj, qk, latency);
-        registerFile.setStatus(inst.getDest(), rs.getName());
+        if (qj == TagTable.NONE)
+            vj = operandValue(src1);
+        if (qk == TagTable.NONE)
+            vk = operandValue(src2);
 
-        return true;
+        rs.setInstruction(inst, inst.getType().mnemonic(), vj, vk, qj, qk, latencyOf(inst));
+        scheduler.dispatch(rs);
+        renameDestination(inst, rs.getTag());
+
+        return rs.getTag();
     }
 
-    private boolean issueToMulDiv(Instruction inst) {
+    private int issueToMulDiv(Instruction inst) {
         ReservationStation rs = findFreeStation(mulDivStations);
         if (rs == null)
-            return false;
+            return TagTable.NONE;
 
-        String src1 = inst.getSrc1();
-        String src2 = inst.getSrc2();
+        int src1 = inst.getSrc1Reg();
+        int src2 = inst.getSrc2Reg();
 
         double vj = 0;
         double vk = 0;
-        String qj = registerFile.getStatus(src1);
-        String qk = registerFile.getStatus(src2);
-
-        if (qj.isEmpty())
-            vj = registerFile.getValue(src1);
-        if (qk.isEmpty())
-            vk = registerFile.getValue(src2);
-
-        int latency;
-        if (inst.getType() == Instruction.InstructionType.MUL_D
-                || inst.getType() == Instruction.InstructionType.MUL_S) {
-            latency = config.mulLatency;
-        } else {
-            latency = config.divLatency;
-        }
+        int qj = operandTag(src1);
+        int qk = operandTag(src2);
 
-        // Convert operation name: MUL_D -> MUL.D
-        String opName = inst.getType().name().replace("_", ".");
-        rs.setInstruction(inst, opName, vj, vk, qj, qk, latency);
-        registerFile.setStatus(inst.getDest(), rs.getName());
+        if (qj == TagTable.NONE)
+            vj = operandValue(src1);
+        if (qk == TagTable.NONE)
+            vk = operandValue(src2);
 
-        return true;
+        rs.setInstruction(inst, inst.getType().mnemonic(), vj, vk, qj, qk, latencyOf(inst));
+        scheduler.dispatch(rs);
+        renameDestination(inst, rs.getTag());
+
+        return rs.getTag();
     }
 
-    private boolean issueToInteger(Instruction inst) {
+    private int issueToInteger(Instruction inst) {
         ReservationStation rs = findFreeStation(intStations);
         if (rs == null)
-            return false;
+            return TagTable.NONE;
 
-        String src1 = inst.getSrc1();
+        int src1 = inst.getSrc1Reg();
         double vj = 0;
-        String qj = registerFile.getStatus(src1);
+        int qj = operandTag(src1);
 
-        if (qj.isEmpty())
-            vj = registerFile.getValue(src1);
+        if (qj == TagTable.NONE)
+            vj = operandValue(src1);
 
         double vk = inst.getImmediate();
 
-        int latency = inst.getType() == Instruction.InstructionType.DADDI ? config.intAddLatency : config.intSubLatency;
+        rs.setInstruction(inst, inst.getType().mnemonic(), vj, vk, qj, TagTable.NONE, latencyOf(inst));
+        scheduler.dispatch(rs);
+        renameDestination(inst, rs.getTag());
 
-        rs.setInstruction(inst, inst.getType().name(), vj, vk, qj, "", latency);
-        registerFile.setStatus(inst.getDest(), rs.getName());
-
-        return true;
+        return rs.getTag();
     }
 
-    private boolean issueLoad(Instruction inst) {
+    private int issueLoad(Instruction inst) {
         LoadStoreBuffer buf = findFreeBuffer(loadBuffers);
         if (buf == null)
-            return false;
+            return TagTable.NONE;
 
         // Calculate address: offset(base) -> base + offset
-        String base = inst.getSrc1();
-        int offset = Integer.parseInt(inst.getSrc2());
+        int base = inst.getSrc1Reg();
+        int offset = inst.getOffset();
 
-        String qBase = registerFile.getStatus(base);
-        if (!qBase.isEmpty()) {
+        int qBase = operandTag(base);
+        if (qBase != TagTable.NONE) {
             // Base register not ready - wait
-            return false;
+            return TagTable.NONE;
         }
 
-        int address = (int) registerFile.getValue(base) + offset;
+        int address = (int) operandValue(base) + offset;
         inst.setAddress(address);
 
-        // Cache will be accessed during execution stage, not issue
-        // Set initial latency to load latency (cache latency added during execution)
-        int latency = config.loadLatency;
-
-        buf.setLoadInstruction(inst, address, latency);
-        registerFile.setStatus(inst.getDest(), buf.getName());
+        LoadStoreBuffer source = forwardingStore(address, inst.getAccessSize());
+        if (source != null) {
+            // Take the value from the store buffer; no cache access
+            double value = memory.forwardedValue(address, source.getValue(), inst.getAccessSize());
+            buf.setForwardedLoad(inst, address, value, config.storeForwardLatency);
+            forwardedLoads++;
+            events.record(EventLog.Type.STORE_FORWARD, inst.getPc(), inst.getIteration(), buf.getTag(),
+                    source.getTag(), value, 0.0);
+        } else {
+            // Cache will be accessed during execution stage, not issue
+            // Set initial latency to load latency (cache latency added during execution)
+            buf.setLoadInstruction(inst, address, config.loadLatency);
+        }
+        scheduler.dispatch(buf);
+        inFlightAccesses.add(buf.getTag(), address, inst.getAccessSize(), false);
+        renameDestination(inst, buf.getTag());
 
-        return true;
+        return buf.getTag();
     }
 
-    private boolean issueStore(Instruction inst) {
+    private int issueStore(Instruction inst) {
         LoadStoreBuffer buf = findFreeBuffer(storeBuffers);
         if (buf == null)
-            return false;
+            return TagTable.NONE;
 
         // Calculate address
-        String base = inst.getSrc1();
-        int offset = Integer.parseInt(inst.getSrc2());
+        int base = inst.getSrc1Reg();
+        int offset = inst.getOffset();
 
-        String qBase = registerFile.getStatus(base);
-        if (!qBase.isEmpty()) {
-            return false;
+        int qBase = operandTag(base);
+        if (qBase != TagTable.NONE) {
+            return TagTable.NONE;
         }
 
-        int address = (int) registerFile.getValue(base) + offset;
+        int address = (int) operandValue(base) + offset;
         inst.setAddress(address);
 
         // Get value to store
-        String srcReg = inst.getDest(); // For stores, dest is actually the source
+        int srcReg = inst.getDestReg(); // For stores, dest is actually the source
         double value = 0;
-        String q = registerFile.getStatus(srcReg);
+        int q = operandTag(srcReg);
 
-        if (q.isEmpty()) {
-            value = registerFile.getValue(srcReg);
+        if (q == TagTable.NONE) {
+            value = operandValue(srcReg);
         }
 
         // Cache will be accessed during execution stage, not issue
@@ -530,362 +1011,531 @@ public class ExecutionEngine {
         int latency = config.storeLatency;
 
         buf.setStoreInstruction(inst, address, value, q, latency);
+        scheduler.dispatch(buf);
+        inFlightAccesses.add(buf.getTag(), address, inst.getAccessSize(), true);
 
-        return true;
+        return buf.getTag();
     }
 
-    private boolean issueBranch(Instruction inst) {
+    private int issueBranch(Instruction inst) {
         // Simple branch - no prediction, wait for operands
-        String src1 = inst.getSrc1();
-        String src2 = inst.getSrc2();
+        int src1 = inst.getSrc1Reg();
+        int src2 = inst.getSrc2Reg();
 
         // Need a free branch reservation station
         ReservationStation rs = findFreeStation(branchStations);
         if (rs == null)
-            return false;
+            return TagTable.NONE;
 
         // Prepare operand values or Qi tags
         double vj = 0;
         double vk = 0;
-        String qj = registerFile.getStatus(src1);
-        String qk = registerFile.getStatus(src2);
+        int qj = operandTag(src1);
+        int qk = operandTag(src2);
 
-        if (qj.isEmpty())
-            vj = registerFile.getValue(src1);
-        if (qk.isEmpty())
-            vk = registerFile.getValue(src2);
+        if (qj == TagTable.NONE)
+            vj = operandValue(src1);
+        if (qk == TagTable.NONE)
+            vk = operandValue(src2);
 
         // Set branch into branch RS with branch latency
-        rs.setInstruction(inst, inst.getType().name(), vj, vk, qj, qk, config.branchLatency);
+        rs.setInstruction(inst, inst.getType().mnemonic(), vj, vk, qj, qk, config.branchLatency);
+        scheduler.dispatch(rs);
 
-        inst.setIssueTime(currentCycle);
-
-        // Stall all subsequent issuing until this branch writes back
-        this.branchInFlight = true;
-        cycleLog.add("Branch issued - stalling all issuing until branch writes back");
+        if (rob == null) {
+            // Stall all subsequent issuing until this branch writes back
+            this.branchInFlight = true;
+        } else {
+            // Speculate past the branch: the instruction queue has already moved to
+            // the predicted path. Checked when the branch commits.
+            fetchRedirected = inst.isPredictedTaken();
+        }
 
-        return true;
+        return rs.getTag();
     }
 
     private void executeStage() {
-        // Execute in reservation stations
-        for (ReservationStation rs : addSubStations) {
-            if (rs.isReady() && rs.getRemainingCycles() > 0) {
-                if (rs.getInstruction().getExecStartTime() == -1) {
-                    rs.getInstruction().setExecStartTime(currentCycle);
-                }
-                rs.decrementCycles();
-                if (rs.isComplete()) {
-                    double result = rs.executeOperation();
-                    rs.getInstruction().setExecEndTime(currentCycle);
-                    cdb.requestWrite(rs.getName(), result, rs.getInstruction(), issueOrder++);
-                }
-            }
+        // Only entries on a ready list are visited, in the same unit and station
+        // order as a full scan so CDB requests are made in the same order.
+        executeStations(Instruction.UnitClass.ADD_SUB, addSubStations);
+        executeStations(Instruction.UnitClass.MUL_DIV, mulDivStations);
+        executeStations(Instruction.UnitClass.INTEGER, intStations);
+
+        // Execute load buffers
+        for (int i = scheduler.nextReady(Instruction.UnitClass.LOAD, 0); i >= 0;
+                i = scheduler.nextReady(Instruction.UnitClass.LOAD, i + 1)) {
+            executeLoad(loadBuffers.get(i));
         }
 
-        for (ReservationStation rs : mulDivStations) {
-            if (rs.isReady() && rs.getRemainingCycles() > 0) {
-                if (rs.getInstruction().getExecStartTime() == -1) {
-                    rs.getInstruction().setExecStartTime(currentCycle);
-                }
-                rs.decrementCycles();
-                if (rs.isComplete()) {
-                    double result = rs.executeOperation();
-                    rs.getInstruction().setExecEndTime(currentCycle);
-                    cdb.requestWrite(rs.getName(), result, rs.getInstruction(), issueOrder++);
-                }
-            }
+        // Execute store buffers
+        for (int i = scheduler.nextReady(Instruction.UnitClass.STORE, 0); i >= 0;
+                i = scheduler.nextReady(Instruction.UnitClass.STORE, i + 1)) {
+            executeStore(storeBuffers.get(i));
         }
 
-        for (ReservationStation rs : intStations) {
-            if (rs.isReady() && rs.getRemainingCycles() > 0) {
-                if (rs.getInstruction().getExecStartTime() == -1) {
-                    rs.getInstruction().setExecStartTime(currentCycle);
-                }
-                rs.decrementCycles();
-                if (rs.isComplete()) {
-                    double result = rs.executeOperation();
-                    rs.getInstruction().setExecEndTime(currentCycle);
-                    cdb.requestWrite(rs.getName(), result, rs.getInstruction(), issueOrder++);
+        // Execute branch reservation stations
+        for (int i = scheduler.nextReady(Instruction.UnitClass.BRANCH, 0); i >= 0;
+                i = scheduler.nextReady(Instruction.UnitClass.BRANCH, i + 1)) {
+            executeBranch(branchStations.get(i));
+        }
+    }
+
+    private void executeStations(Instruction.UnitClass unit, List<ReservationStation> stations) {
+        FunctionalUnitPool pool = unitPools[unit.ordinal()];
+        if (pool != null) {
+            selectUnits(unit, stations, pool);
+        }
+        for (int i = scheduler.nextReady(unit, 0); i >= 0; i = scheduler.nextReady(unit, i + 1)) {
+            ReservationStation rs = stations.get(i);
+            if (rs.getInstruction().getExecStartTime() == -1) {
+                if (pool != null) {
+                    continue; // Still waiting for a unit
                 }
+                startExecution(rs.getInstruction(), rs.getTag());
+            }
+            rs.decrementCycles();
+            if (rs.isComplete()) {
+                double result = rs.executeOperation();
+                endExecution(rs.getInstruction(), rs.getTag());
+                cdb.requestWrite(rs.getTag(), result, rs.getInstruction(), issueOrder++);
+                scheduler.finish(rs.getTag());
             }
         }
+    }
 
-        // Execute load buffers
-        for (LoadStoreBuffer buf : loadBuffers) {
-            if (buf.isReady() && buf.getRemainingCycles() > 0) {
-                if (buf.getInstruction().getExecStartTime() == -1) {
-                    buf.getInstruction().setExecStartTime(currentCycle);
+    /**
+     * Select stage for a class with shared units: give free units to the ready
+     * stations that have not started, oldest issue first (station order breaks
+     * ties). Stations left without a unit are counted as select stalls.
+     */
+    private void selectUnits(Instruction.UnitClass unit, List<ReservationStation> stations, FunctionalUnitPool pool) {
+        while (true) {
+            ReservationStation oldest = null;
+            int waiting = 0;
+            for (int i = scheduler.nextReady(unit, 0); i >= 0; i = scheduler.nextReady(unit, i + 1)) {
+                ReservationStation rs = stations.get(i);
+                if (rs.getInstruction().getExecStartTime() != -1) {
+                    continue;
                 }
-                // Access cache at the start of execution (first cycle only)
-                // Cache is updated immediately so it's visible in the GUI
-                if (!buf.isCacheAccessed()) {
-                    // Use appropriate load method based on instruction type
-                    Instruction inst = buf.getInstruction();
-                    boolean isWord = (inst.getType() == Instruction.InstructionType.LW ||
-                            inst.getType() == Instruction.InstructionType.L_S);
-                    double memoryValue = isWord ? memory.loadWord(buf.getAddress()) : memory.load(buf.getAddress());
-                    // accessLoad checks hit/miss and loads block into cache immediately
-                    int cacheLatency = cache.accessLoad(buf.getAddress(), memoryValue);
-                    buf.addCacheLatency(cacheLatency);
-                    buf.setCacheAccessed(true);
-                    // Log cache access to cycle log
-                    String lastCacheLog = cache.getLastAccess();
-                    if (!lastCacheLog.isEmpty()) {
-                        cycleLog.add(lastCacheLog);
-                    }
-                }
-                buf.decrementCycles();
-                if (buf.isComplete()) {
-                    // Use appropriate load method based on instruction type
-                    Instruction inst = buf.getInstruction();
-                    boolean isWord = (inst.getType() == Instruction.InstructionType.LW ||
-                            inst.getType() == Instruction.InstructionType.L_S);
-                    double value = isWord ? memory.loadWord(buf.getAddress()) : memory.load(buf.getAddress());
-                    buf.getInstruction().setExecEndTime(currentCycle);
-                    cdb.requestWrite(buf.getName(), value, buf.getInstruction(), issueOrder++);
+                waiting++;
+                if (oldest == null || rs.getInstruction().getIssueTime() < oldest.getInstruction().getIssueTime()) {
+                    oldest = rs;
                 }
             }
+            if (oldest == null) {
+                return;
+            }
+            if (!pool.dispatch(currentCycle, oldest.getRemainingCycles())) {
+                pool.recordStalls(waiting, 1);
+                return;
+            }
+            startExecution(oldest.getInstruction(), oldest.getTag());
         }
+    }
 
-        // Execute store buffers
-        for (LoadStoreBuffer buf : storeBuffers) {
-            if (buf.isReady() && buf.getRemainingCycles() > 0) {
-                if (buf.getInstruction().getExecStartTime() == -1) {
-                    buf.getInstruction().setExecStartTime(currentCycle);
-                }
-                // Check cache hit/miss at the start of execution (first cycle only)
-                // On miss: loads block into cache (visible in GUI), but doesn't write store value yet
-                if (!buf.isCacheAccessed()) {
-                    // Determine if this is a Word store (4 bytes) or Doubleword store (8 bytes)
-                    Instruction inst = buf.getInstruction();
-                    boolean isWordStore = (inst.getType() == Instruction.InstructionType.SW ||
-                            inst.getType() == Instruction.InstructionType.S_S);
-                    // Check latency and load block if miss - cache becomes visible in GUI
-                    int cacheLatency = cache.checkStoreLatency(buf.getAddress(), isWordStore);
-                    buf.addCacheLatency(cacheLatency);
-                    buf.setCacheAccessed(true);
-                    // Log cache access to cycle log
-                    String lastCacheLog = cache.getLastAccess();
-                    if (!lastCacheLog.isEmpty()) {
-                        cycleLog.add(lastCacheLog);
-                    }
-                }
-                buf.decrementCycles();
-                if (buf.isComplete()) {
-                    // Write store value to cache on the last cycle
-                    Instruction inst = buf.getInstruction();
-                    boolean isWordStore = (inst.getType() == Instruction.InstructionType.SW ||
-                            inst.getType() == Instruction.InstructionType.S_S);
-                    cache.writeStoreValue(buf.getAddress(), buf.getValue(), isWordStore);
-                    
-                    // Schedule a CDB write so the actual memory.store and buffer clear 
-                    // happen in the next cycle's writeResultStage
-                    buf.getInstruction().setExecEndTime(currentCycle);
-                    cdb.requestWrite(buf.getName(), buf.getValue(), buf.getInstruction(), issueOrder++);
-                }
+    private void executeLoad(LoadStoreBuffer buf) {
+        if (buf.getInstruction().getExecStartTime() == -1) {
+            startExecution(buf.getInstruction(), buf.getTag());
+        }
+        // Access cache at the start of execution (first cycle only)
+        // Cache is updated immediately so it's visible in the GUI
+        if (!buf.isCacheAccessed()) {
+            // Checks hit/miss and loads the block into the cache immediately
+            boolean isWord = buf.getInstruction().isWord();
+            int cacheLatency = memoryHierarchy.checkLoadLatency(buf.getAddress(), isWord);
+            if (cacheLatency > memoryHierarchy.getHitLatency()) {
+                recordCacheMiss(buf, cacheLatency);
+            }
+            buf.addCacheLatency(cacheLatency);
+            buf.setCacheAccessed(true);
+        }
+        buf.decrementCycles();
+        if (buf.isComplete()) {
+            // Use appropriate load method based on instruction type
+            boolean isWord = buf.getInstruction().isWord();
+            double value;
+            if (buf.isForwarded()) {
+                value = buf.getValue();
+            } else {
+                value = isWord ? memory.loadWord(buf.getAddress()) : memory.load(buf.getAddress());
             }
+            endExecution(buf.getInstruction(), buf.getTag());
+            cdb.requestWrite(buf.getTag(), value, buf.getInstruction(), issueOrder++);
+            scheduler.finish(buf.getTag());
         }
+    }
 
-        // Execute branch reservation stations
-        for (ReservationStation rs : branchStations) {
-            if (rs.isReady() && rs.getRemainingCycles() > 0) {
-                if (rs.getInstruction().getExecStartTime() == -1) {
-                    rs.getInstruction().setExecStartTime(currentCycle);
+    private void executeStore(LoadStoreBuffer buf) {
+        if (buf.getInstruction().getExecStartTime() == -1) {
+            startExecution(buf.getInstruction(), buf.getTag());
+        }
+        // Check cache hit/miss at the start of execution (first cycle only)
+        // On miss: loads block into cache (visible in GUI), but doesn't write store value yet
+        if (!buf.isCacheAccessed()) {
+            // Determine if this is a Word store (4 bytes) or Doubleword store (8 bytes)
+            boolean isWordStore = buf.getInstruction().isWord();
+            int cacheLatency;
+            if (rob != null) {
+                // A store may be on the wrong path until it commits: only time the
+                // access here, the caches are written in commitStore
+                cacheLatency = memoryHierarchy.peekStoreLatency(buf.getAddress(), isWordStore);
+            } else {
+                // Check latency and load block if miss - cache becomes visible in GUI
+                cacheLatency = memoryHierarchy.checkStoreLatency(buf.getAddress(), isWordStore);
+                if (cacheLatency > memoryHierarchy.getHitLatency()) {
+                    recordCacheMiss(buf, cacheLatency);
                 }
-                rs.decrementCycles();
-                if (rs.isComplete()) {
-                    // When branch completes execution, evaluate the condition using
-                    // the RS operands (vj/vk) and request a CDB write so the jump
-                    // is applied during the write stage.
-                    Instruction b = rs.getInstruction();
-                    b.setExecEndTime(currentCycle);
-                    double val1 = rs.getVj();
-                    double val2 = rs.getVk();
-                    boolean taken = b.getType() == Instruction.InstructionType.BEQ ? (val1 == val2) : (val1 != val2);
-                    b.setBranchTaken(taken);
-                    cycleLog.add(String.format("Branch eval: %s comparing %.2f %s %.2f = %s, target: %s",
-                            b.getType(), val1, (b.getType() == Instruction.InstructionType.BEQ ? "==" : "!="),
-                            val2, taken, b.getLabel()));
-                    cdb.requestWrite(rs.getName(), 0.0, b, issueOrder++);
+            }
+            buf.addCacheLatency(cacheLatency);
+            buf.setCacheAccessed(true);
+        }
+        buf.decrementCycles();
+        if (buf.isComplete()) {
+            // Without a reorder buffer the store retires here: write its value to the
+            // cache on the last cycle, and hold the buffer while the write buffer is full
+            if (rob == null && !buf.isStoreWritten()) {
+                boolean isWordStore = buf.getInstruction().isWord();
+                int wait = memoryHierarchy.writeStoreValue(buf.getAddress(), buf.getValue(), isWordStore);
+                buf.setStoreWritten(true);
+                if (wait > 0) {
+                    buf.addCacheLatency(wait);
+                    return;
                 }
             }
+
+            // Schedule a CDB write so the actual memory.store and buffer clear
+            // happen in the next cycle's writeResultStage
+            endExecution(buf.getInstruction(), buf.getTag());
+            cdb.requestWrite(buf.getTag(), buf.getValue(), buf.getInstruction(), issueOrder++);
+            scheduler.finish(buf.getTag());
         }
     }
 
-    private CommonDataBus.BusEntry writeResultStage() {
-        if (cdb.getPendingWrites().isEmpty()) {
-            return null;
+    private void recordCacheMiss(LoadStoreBuffer buf, int latency) {
+        FlightEvents.CacheMiss event = new FlightEvents.CacheMiss();
+        if (event.isEnabled()) {
+            event.cycle = currentCycle;
+            event.pc = buf.getInstruction().getPc();
+            event.address = buf.getAddress();
+            event.store = buf.getInstruction().isStore();
+            event.latency = latency;
+            event.commit();
         }
+    }
 
-        // Select winner based on arbitration strategy
-        CommonDataBus.BusEntry winner = cdb.selectWinner(config.busArbitrationStrategy);
-        if (winner == null)
-            return null;
-
-        cycleLog.add("CDB Write: " + winner.tag + " = " + winner.value + " (instruction: " +
-                (winner.instruction != null ? winner.instruction.toString() : "null") + ")");
+    private void executeBranch(ReservationStation rs) {
+        if (rs.getInstruction().getExecStartTime() == -1) {
+            startExecution(rs.getInstruction(), rs.getTag());
+        }
+        rs.decrementCycles();
+        if (rs.isComplete()) {
+            // When branch completes execution, evaluate the condition using
+            // the RS operands (vj/vk) and request a CDB write so the jump
+            // is applied during the write stage.
+            Instruction b = rs.getInstruction();
+            endExecution(b, rs.getTag());
+            double val1 = rs.getVj();
+            double val2 = rs.getVk();
+            boolean taken = b.getType() == Instruction.InstructionType.BEQ ? (val1 == val2) : (val1 != val2);
+            b.setBranchTaken(taken);
+            events.record(EventLog.Type.BRANCH_EVAL, b.getPc(), b.getIteration(), rs.getTag(), taken ? 1 : 0, val1,
+                    val2);
+            cdb.requestWrite(rs.getTag(), 0.0, b, issueOrder++);
+            scheduler.finish(rs.getTag());
+        }
+    }
 
-        // Update reservation stations
+    private void startExecution(Instruction inst, int tag) {
+        inst.setExecStartTime(currentCycle);
+        events.record(EventLog.Type.EXEC_START, inst.getPc(), inst.getIteration(), tag);
+    }
 
-        // Update register file FIRST, before clearing any buffers
+    private void endExecution(Instruction inst, int tag) {
+        inst.setExecEndTime(currentCycle);
+        events.record(EventLog.Type.EXEC_END, inst.getPc(), inst.getIteration(), tag);
+    }
 
-        // Update load/store buffers
-        for (LoadStoreBuffer buf : loadBuffers) {
-            if (buf.getName().equals(winner.tag)) {
-                buf.clear();
+    private List<CommonDataBus.BusEntry> writeResultStage() {
+        // Select up to one winner per bus based on arbitration strategy
+        List<CommonDataBus.BusEntry> winners = cdb.selectWinners(config.busArbitrationStrategy);
+        for (CommonDataBus.BusEntry winner : winners) {
+            if (winner.instruction != null) {
+                events.record(EventLog.Type.CDB_WRITE, winner.instruction.getPc(), winner.instruction.getIteration(),
+                        winner.tag, winner.bus, winner.value, 0.0);
             }
-        }
-
-        // If the write corresponds to a branch, apply the branch effect now (jump on
-        // write-back)
-        if (winner.instruction != null && winner.instruction.isBranch()) {
-            Instruction br = winner.instruction;
-            br.setWriteTime(currentCycle);
-            String label = br.getLabel();
-            cycleLog.add("Branch write-back: label/target = '" + label + "', taken = " + br.getBranchTaken());
 
-            if (br.getBranchTaken()) {
-                int targetPc;
+            // Free the load buffer now so it can be reused by this cycle's issue
+            LoadStoreBuffer loadBuf = scheduler.bufferOf(winner.tag);
+            if (loadBuf != null && loadBuf.isLoad()) {
+                releaseBuffer(loadBuf);
+            }
 
-                // Check if the label is actually a numeric PC address
-                try {
-                    targetPc = Integer.parseInt(label);
-                    cycleLog.add("Branch TAKEN: Jumping to numeric PC " + targetPc);
-                } catch (NumberFormatException e) {
-                    // It's a label name, look it up in the labels map
-                    targetPc = labels.getOrDefault(label, 0);
-                    cycleLog.add("Branch TAKEN: Jumping to label '" + label + "' resolved to PC " + targetPc);
+            // If the write corresponds to a branch, apply the branch effect now (jump on
+            // write-back). With a reorder buffer the branch is checked at commit instead.
+            if (rob == null && winner.instruction != null && winner.instruction.isBranch()) {
+                Instruction br = winner.instruction;
+                br.setWriteTime(currentCycle);
+                events.record(EventLog.Type.BRANCH_RESOLVE, br.getPc(), br.getIteration(), br.getTargetPc(),
+                        br.getBranchTaken() ? 1 : 0, 0.0, 0.0);
+                resolvePrediction(br);
+
+                if (br.getBranchTaken()) {
+                    // Target (label or numeric PC) was resolved by the parser
+                    instructionQueue.jumpTo(br.getTargetPc());
                 }
 
-                instructionQueue.jumpTo(targetPc);
-                cycleLog.add("PC updated from " + (targetPc - 4) + " to " + instructionQueue.getPc());
-            } else {
-                cycleLog.add("Branch NOT taken - continuing sequential execution");
+                // Clear branch stall - issuing can resume after this write-back
+                this.branchInFlight = false;
             }
 
-            // Clear branch stall - issuing can resume after this write-back
-            this.branchInFlight = false;
-            cycleLog.add("Branch write-back complete - resuming issuing");
-        }
-
-        // Set write time for the instruction
-        if (winner.instruction != null) {
-            winner.instruction.setWriteTime(currentCycle);
+            // Set write time for the instruction
+            if (winner.instruction != null) {
+                winner.instruction.setWriteTime(currentCycle);
+            }
+            if (rob == null) {
+                completedInstructions++; // Counted at commit with a reorder buffer
+            }
         }
-        return winner;
+        return winners;
     }
 
     public void write(CommonDataBus.BusEntry winner) {
-        for (ReservationStation rs : addSubStations) {
-            rs.updateOperand(winner.tag, winner.value);
-            if (rs.getName().equals(winner.tag)) {
-                rs.clear();
-            }
-        }
+        // Consumers wait on the reorder buffer entry when there is one
+        int resultTag = rob != null && winner.instruction != null ? winner.instruction.getRobTag() : winner.tag;
 
-        for (ReservationStation rs : mulDivStations) {
-            rs.updateOperand(winner.tag, winner.value);
-            if (rs.getName().equals(winner.tag)) {
-                rs.clear();
-            }
-        }
+        // Wake only the operands waiting on this tag (wakeup index), not every station
+        scheduler.wakeup(resultTag, winner.value);
 
-        for (ReservationStation rs : intStations) {
-            rs.updateOperand(winner.tag, winner.value);
-            if (rs.getName().equals(winner.tag)) {
-                rs.clear();
-            }
+        ReservationStation rs = scheduler.stationOf(winner.tag);
+        if (rs != null) {
+            scheduler.release(rs.getTag());
+            rs.clear();
         }
 
-        for (ReservationStation rs : branchStations) {
-            rs.updateOperand(winner.tag, winner.value);
-            if (rs.getName().equals(winner.tag)) {
-                rs.clear();
+        if (rob != null) {
+            // The result waits in the reorder buffer; registers and memory (stores stay
+            // in their buffer) are updated when it commits
+            ReorderBuffer.Entry entry = rob.entryOf(resultTag);
+            if (entry != null) {
+                entry.setResult(winner.value);
             }
+            return;
         }
-        for (LoadStoreBuffer buf : storeBuffers) {
-            // If this write corresponds to a store buffer producing its value,
-            // update the buffer's value/Q as usual.
-            buf.updateValue(winner.tag, winner.value);
-            // If the CDB winner is the store buffer tag itself, perform the actual memory
-            // store
-            // and clear the buffer now (this makes stores commit in the write stage).
-            if (buf.getName().equals(winner.tag)) {
+
+        // If the CDB winner is a store buffer, perform the actual memory store and
+        // clear the buffer now (this makes stores commit in the write stage).
+        // A load buffer was already freed in writeResultStage.
+        if (winner.instruction != null && winner.instruction.isStore()) {
+            LoadStoreBuffer buf = scheduler.bufferOf(winner.tag);
+            if (buf != null && buf.isBusy()) {
                 // Use appropriate store method based on instruction type
-                Instruction inst = buf.getInstruction();
                 int address = buf.getAddress(); // Save address before clearing
-                boolean isWord = (inst.getType() == Instruction.InstructionType.SW ||
-                        inst.getType() == Instruction.InstructionType.S_S);
+                boolean isWord = buf.getInstruction().isWord();
                 if (isWord) {
                     memory.storeWord(address, buf.getValue());
                 } else {
                     memory.store(address, buf.getValue());
                 }
-                buf.getInstruction().setWriteTime(currentCycle);
-                buf.clear();
-                cycleLog.add("Store completed to address " + address);
+                Instruction store = buf.getInstruction();
+                store.setWriteTime(currentCycle);
+                events.record(EventLog.Type.STORE_COMMIT, store.getPc(), store.getIteration(), buf.getTag(), address,
+                        buf.getValue(), 0.0);
+                releaseBuffer(buf);
             }
         }
+        // Only visit the registers renamed to this tag (reverse index), not all of them
         boolean foundRegister = false;
-        for (String reg : registerFile.getRegisterStatus().keySet()) {
-            String regStatus = registerFile.getStatus(reg);
-            if (regStatus != null && !regStatus.isEmpty() && regStatus.equals(winner.tag)) {
-                cycleLog.add("Updating register " + reg + " with value " + winner.value + " (clearing Qi: " + winner.tag
-                        + ")");
-                registerFile.setValue(reg, winner.value);
-                registerFile.clearStatus(reg);
-                foundRegister = true;
+        int reg = registerFile.firstWaitingOn(winner.tag);
+        while (reg != RegisterFile.NO_REGISTER) {
+            int next = registerFile.nextWaitingOn(reg);
+            events.record(EventLog.Type.REGISTER_UPDATE, reg, 0, winner.tag, 0, winner.value, 0.0);
+            registerFile.setValue(reg, winner.value);
+            registerFile.clearStatus(reg);
+            if (winner.instruction != null && winner.instruction.isLoad()) {
+                loadResultRegs.set(reg);
             }
+            foundRegister = true;
+            reg = next;
         }
         if (!foundRegister && winner.instruction != null && !winner.instruction.isBranch()
                 && !winner.instruction.isStore()) {
-            cycleLog.add("WARNING: No register found with Qi=" + winner.tag + " for instruction "
-                    + winner.instruction.toString());
+            events.record(EventLog.Type.NO_CONSUMER, winner.instruction.getPc(), winner.instruction.getIteration(),
+                    winner.tag);
         }
     }
 
-    private boolean isComplete() {
-        // Simulation is complete when:
-        // 1. All instructions have been issued (no more in queue to fetch)
-        // 2. All reservation stations are empty
-        // 3. All load/store buffers are empty
-        // 4. All branch stations are empty
-
-        // Check if there are more instructions to issue
-        if (instructionQueue.hasMoreInstructions()) {
-            return false;
+    /**
+     * Retire up to issueWidth finished instructions from the head of the reorder
+     * buffer, in program order. Registers and memory are updated here; a
+     * mispredicted branch flushes everything younger and redirects fetch.
+     * Returns the number of instructions committed.
+     */
+    private int commitStage() {
+        int committed = 0;
+        while (committed < config.issueWidth && currentCycle >= commitBlockedUntil && !rob.isEmpty()
+                && rob.head().isReady()) {
+            ReorderBuffer.Entry entry = rob.head();
+            Instruction inst = entry.getInstruction();
+            inst.setCommitTime(currentCycle);
+            events.record(EventLog.Type.COMMIT, inst.getPc(), inst.getIteration(), entry.getTag());
+            committed++;
+            completedInstructions++;
+
+            if (inst.isStore()) {
+                commitStore(scheduler.bufferOf(entry.getStationTag()));
+            } else if (inst.isBranch()) {
+                if (resolvePrediction(inst)) {
+                    rob.retireHead();
+                    squash(inst);
+                    break;
+                }
+            } else {
+                int reg = inst.getDestReg();
+                events.record(EventLog.Type.REGISTER_UPDATE, reg, 0, entry.getTag(), 0, entry.getValue(), 0.0);
+                registerFile.setValue(reg, entry.getValue());
+                // A younger instruction may have renamed the register again
+                if (registerFile.getStatusTag(reg) == entry.getTag()) {
+                    registerFile.clearStatus(reg);
+                }
+            }
+            rob.retireHead();
         }
+        return committed;
+    }
 
-        // Check all reservation stations
-        for (ReservationStation rs : addSubStations) {
-            if (rs.isBusy())
-                return false;
+    private void commitStore(LoadStoreBuffer buf) {
+        int address = buf.getAddress();
+        boolean isWordStore = buf.getInstruction().isWord();
+        // The cache access executeStore only timed
+        int cacheLatency = memoryHierarchy.checkStoreLatency(address, isWordStore);
+        if (cacheLatency > memoryHierarchy.getHitLatency()) {
+            recordCacheMiss(buf, cacheLatency);
         }
-        for (ReservationStation rs : mulDivStations) {
-            if (rs.isBusy())
-                return false;
+        int wait = memoryHierarchy.writeStoreValue(address, buf.getValue(), isWordStore);
+        if (wait > 0) {
+            // Nothing younger retires until the write buffer takes the store
+            commitBlockedUntil = currentCycle + wait;
         }
-        for (ReservationStation rs : intStations) {
-            if (rs.isBusy())
-                return false;
+        if (isWordStore) {
+            memory.storeWord(address, buf.getValue());
+        } else {
+            memory.store(address, buf.getValue());
         }
-        for (ReservationStation rs : branchStations) {
-            if (rs.isBusy())
-                return false;
+        Instruction store = buf.getInstruction();
+        events.record(EventLog.Type.STORE_COMMIT, store.getPc(), store.getIteration(), buf.getTag(), address,
+                buf.getValue(), 0.0);
+        releaseBuffer(buf);
+    }
+
+    private void releaseBuffer(LoadStoreBuffer buf) {
+        scheduler.release(buf.getTag());
+        inFlightAccesses.remove(buf.getTag());
+        buf.clear();
+    }
+
+    /**
+     * Recover from a mispredicted branch that just committed: every younger
+     * instruction is on the wrong path, so the reorder buffer, all stations and
+     * buffers and pending CDB writes are discarded, and fetch resumes on the
+     * correct path. Committed register values are untouched.
+     */
+    private void squash(Instruction branch) {
+        int squashed = rob.flush();
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            if (unit == Instruction.UnitClass.LOAD || unit == Instruction.UnitClass.STORE) {
+                for (LoadStoreBuffer buf : buffersFor(unit)) {
+                    releaseBuffer(buf);
+                }
+            } else {
+                for (ReservationStation rs : stationsFor(unit)) {
+                    scheduler.release(rs.getTag());
+                    rs.clear();
+                }
+            }
         }
+        cdb.clearPendingWrites();
+        registerFile.clearAllStatus();
+        predictor.recover(branch, branch.getBranchTaken());
 
-        // Check all load/store buffers
-        for (LoadStoreBuffer buf : loadBuffers) {
-            if (buf.isBusy())
-                return false;
+        int redirectPc = branch.getBranchTaken() ? branch.getTargetPc() : branch.getPc() + 4;
+        instructionQueue.jumpTo(redirectPc);
+        squashedInstructions += squashed;
+        events.record(EventLog.Type.SQUASH, branch.getPc(), branch.getIteration(), squashed, redirectPc, 0.0, 0.0);
+    }
+
+    /**
+     * Train the predictor (and BTB) with a resolved branch and score the
+     * prediction made when it was fetched. Returns true if the prediction was wrong.
+     */
+    private boolean resolvePrediction(Instruction br) {
+        boolean wrong = br.getBranchTaken() != br.isPredictedTaken();
+        predictor.update(br, br.getBranchTaken());
+        if (wrong && rob == null) {
+            // Nothing was fetched past it; with a reorder buffer squash() repairs the history
+            predictor.recover(br, br.getBranchTaken());
+        }
+        if (btb != null && br.getBranchTaken()) {
+            btb.insert(br.getPc(), br.getTargetPc());
+        }
+        predictedBranches++;
+        if (wrong) {
+            mispredictions++;
         }
-        for (LoadStoreBuffer buf : storeBuffers) {
-            if (buf.isBusy())
-                return false;
+        // Without a reorder buffer issue waited for every branch; with one, only a
+        // mispredicted branch loses the cycles since it issued (its younger work is squashed)
+        if (rob == null || wrong) {
+            recoveryCycles += currentCycle - br.getIssueTime();
         }
+        return wrong;
+    }
 
-        return true;
+    private boolean isComplete() {
+        // Simulation is complete when:
+        // 1. All instructions have been issued (no more in queue to fetch)
+        // 2. All reservation stations, branch stations and load/store buffers are
+        //    empty (the scheduler counts the ones still in flight)
+        // 3. Nothing is left to commit in the reorder buffer
+        return !instructionQueue.hasMoreInstructions() && scheduler.isIdle() && (rob == null || rob.isEmpty());
+    }
+
+    private List<ReservationStation> stationsFor(Instruction.UnitClass unit) {
+        switch (unit) {
+            case ADD_SUB:
+                return addSubStations;
+            case MUL_DIV:
+                return mulDivStations;
+            case INTEGER:
+                return intStations;
+            default:
+                return branchStations;
+        }
+    }
+
+    private List<LoadStoreBuffer> buffersFor(Instruction.UnitClass unit) {
+        return unit == Instruction.UnitClass.LOAD ? loadBuffers : storeBuffers;
+    }
+
+    private int latencyOf(Instruction inst) {
+        switch (inst.getType()) {
+            case ADD_D:
+            case ADD_S:
+                return config.addLatency;
+            case SUB_D:
+            case SUB_S:
+                return config.subLatency;
+            case MUL_D:
+            case MUL_S:
+                return config.mulLatency;
+            case DIV_D:
+            case DIV_S:
+                return config.divLatency;
+            case DADDI:
+                return config.intAddLatency;
+            case DSUBI:
+                return config.intSubLatency;
+            default:
+                return 1;
+        }
     }
 
     private ReservationStation findFreeStation(List<ReservationStation> stations) {
@@ -929,6 +1579,10 @@ public class ExecutionEngine {
         return storeBuffers;
     }
 
+    public TagTable getTagTable() {
+        return tags;
+    }
+
     public RegisterFile getRegisterFile() {
         return registerFile;
     }
@@ -937,10 +1591,92 @@ public class ExecutionEngine {
         return instructionQueue;
     }
 
+    public CommonDataBus getCommonDataBus() {
+        return cdb;
+    }
+
+    /**
+     * Reorder buffer, or null when Config.robSize is 0.
+     */
+    public ReorderBuffer getReorderBuffer() {
+        return rob;
+    }
+
+    public BranchPredictor getBranchPredictor() {
+        return predictor;
+    }
+
+    /**
+     * Shared functional units of a unit class, or null if each station has its own.
+     */
+    public FunctionalUnitPool getUnitPool(Instruction.UnitClass unit) {
+        return unitPools[unit.ordinal()];
+    }
+
+    /**
+     * Loads that took their value from an older store (Config.storeForwarding).
+     */
+    public long getForwardedLoads() {
+        return forwardedLoads;
+    }
+
+    /**
+     * Branch target buffer, or null when Config.btbEntries is 0.
+     */
+    public BranchTargetBuffer getBranchTargetBuffer() {
+        return btb;
+    }
+
+    /**
+     * Branches resolved and scored against their prediction.
+     */
+    public long getPredictedBranches() {
+        return predictedBranches;
+    }
+
+    /**
+     * Resolved branches whose predicted direction was wrong. Without a reorder
+     * buffer the prediction is scored but does not steer fetch.
+     */
+    public long getMispredictions() {
+        return mispredictions;
+    }
+
+    /**
+     * Fraction of resolved branches predicted correctly (0 if none resolved).
+     */
+    public double getPredictionAccuracy() {
+        return predictedBranches == 0 ? 0.0 : (double) (predictedBranches - mispredictions) / predictedBranches;
+    }
+
+    /**
+     * Issue cycles lost to branches: from issue to resolution of every branch
+     * without a reorder buffer, from issue to squash of each mispredicted branch
+     * with one.
+     */
+    public long getRecoveryCycles() {
+        return recoveryCycles;
+    }
+
+    /**
+     * Wrong-path instructions discarded by mispredict recovery (reorder buffer mode).
+     */
+    public long getSquashedInstructions() {
+        return squashedInstructions;
+    }
+
+    public MemoryHierarchy getMemoryHierarchy() {
+        return memoryHierarchy;
+    }
+
     public Cache getCache() {
         return cache;
     }
 
+    public Config getConfig() {
+        return config;
+    }
+
     public Memory getMemory() {
         return memory;
     }
@@ -949,7 +1685,57 @@ public class ExecutionEngine {
         return currentCycle;
     }
 
+    public int getIssueWidth() {
+        return config.issueWidth;
+    }
+
+    /**
+     * Instructions issued in the last executed cycle.
+     */
+    public int getIssuedThisCycle() {
+        return issuedThisCycle;
+    }
+
+    /**
+     * Per-cycle issue counts: element k is the number of cycles that issued k
+     * instructions (0 <= k <= issueWidth).
+     */
+    public long[] getIssueHistogram() {
+        return issueHistogram.clone();
+    }
+
+    public long getCompletedInstructions() {
+        return completedInstructions;
+    }
+
+    /**
+     * Instructions completed per cycle so far.
+     */
+    public double getIpc() {
+        return currentCycle == 0 ? 0.0 : (double) completedInstructions / currentCycle;
+    }
+
+    /**
+     * Copy of the performance counters as of the last completed cycle.
+     */
+    public PerformanceCounters.Snapshot getPerformanceSnapshot() {
+        int[] entries = new int[Instruction.UnitClass.values().length];
+        for (Instruction.UnitClass unit : Instruction.UnitClass.values()) {
+            entries[unit.ordinal()] = unit == Instruction.UnitClass.LOAD || unit == Instruction.UnitClass.STORE
+                    ? buffersFor(unit).size()
+                    : stationsFor(unit).size();
+        }
+        return counters.snapshot(currentCycle, completedInstructions, entries, cache);
+    }
+
+    /**
+     * Render the buffered events as text lines. Nothing is formatted until this is called.
+     */
     public List<String> getCycleLog() {
-        return new ArrayList<>(cycleLog);
+        return events.render();
+    }
+
+    public EventLog getEventLog() {
+        return events;
     }
 }
\ No newline at end of file
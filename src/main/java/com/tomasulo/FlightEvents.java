@@ -0,0 +1,108 @@
+package com.tomasulo;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events emitted by the ExecutionEngine, so JVM profiles
+ * of long runs can be lined up with simulated activity.
+ *
+ * All events are disabled by default; tomasulo.jfc in the project root enables
+ * them (-XX:StartFlightRecording=settings=default,settings=tomasulo.jfc). The
+ * engine creates an event and checks isEnabled() before filling it in, which
+ * the JIT reduces to a flag test when nothing is recording.
+ */
+public final class FlightEvents {
+
+    /**
+     * Simulated cycles between two commits of a batch event in runToCompletion.
+     */
+    static final int BATCH_CYCLES = 4096;
+
+    private FlightEvents() {
+    }
+
+    @Name("com.tomasulo.CycleBatch")
+    @Label("Simulated Cycles")
+    @Category("Tomasulo Simulator")
+    @Description("Wall-clock time spent simulating a batch of cycles in runToCompletion")
+    @Enabled(false)
+    @StackTrace(false)
+    static class CycleBatch extends Event {
+        @Label("First Cycle")
+        int firstCycle;
+
+        @Label("Last Cycle")
+        int lastCycle;
+
+        @Label("Instructions")
+        @Description("Instructions completed in the batch")
+        long instructions;
+    }
+
+    @Name("com.tomasulo.CdbArbitration")
+    @Label("CDB Arbitration")
+    @Category("Tomasulo Simulator")
+    @Description("Results competing for the common data buses in one cycle")
+    @Enabled(false)
+    @StackTrace(false)
+    static class CdbArbitration extends Event {
+        @Label("Cycle")
+        int cycle;
+
+        @Label("PC")
+        @Description("Instruction of the first result granted a bus, -1 if none")
+        int pc;
+
+        @Label("Requests")
+        int requests;
+
+        @Label("Grants")
+        int grants;
+    }
+
+    @Name("com.tomasulo.CacheMiss")
+    @Label("Cache Miss")
+    @Category("Tomasulo Simulator")
+    @Enabled(false)
+    @StackTrace(false)
+    static class CacheMiss extends Event {
+        @Label("Cycle")
+        int cycle;
+
+        @Label("PC")
+        int pc;
+
+        @Label("Address")
+        int address;
+
+        @Label("Store")
+        boolean store;
+
+        @Label("Latency")
+        @Description("Cycles charged for the access")
+        int latency;
+    }
+
+    @Name("com.tomasulo.IssueStall")
+    @Label("Issue Stall")
+    @Category("Tomasulo Simulator")
+    @Description("The instruction at the head of the queue could not issue")
+    @Enabled(false)
+    @StackTrace(false)
+    static class IssueStall extends Event {
+        @Label("Cycle")
+        int cycle;
+
+        @Label("PC")
+        int pc;
+
+        @Label("Reason")
+        String reason;
+    }
+}
@@ -0,0 +1,136 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Identical functional units shared by the reservation stations of one unit
+ * class (Config.addSubUnits, mulDivUnits, integerUnits).
+ *
+ * A station whose operands are ready waits until the select stage gives it a
+ * unit. A pipelined unit accepts a new operation every initiation interval
+ * cycles; an unpipelined one is held for the whole latency of its operation.
+ * The latency itself still comes from the per-operation latency settings.
+ */
+public class FunctionalUnitPool {
+    private final Instruction.UnitClass unit;
+    private final int[] freeAt; // Cycle each unit can accept its next operation
+    private final boolean pipelined;
+    private final int initiationInterval;
+
+    // Statistics
+    private long operations; // Operations dispatched
+    private long busyCycles; // Unit-cycles unable to accept an operation
+    private long selectStalls; // Station-cycles spent ready but waiting for a unit
+
+    public FunctionalUnitPool(Instruction.UnitClass unit, int count, boolean pipelined, int initiationInterval) {
+        if (count < 1) {
+            throw new IllegalArgumentException(unit + " unit count must be positive");
+        }
+        if (initiationInterval < 1) {
+            throw new IllegalArgumentException(unit + " initiation interval must be at least 1");
+        }
+        this.unit = unit;
+        this.freeAt = new int[count];
+        this.pipelined = pipelined;
+        this.initiationInterval = initiationInterval;
+    }
+
+    /**
+     * True if a unit can accept an operation in cycle.
+     */
+    public boolean hasFreeUnit(int cycle) {
+        for (int free : freeAt) {
+            if (free <= cycle) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Earliest cycle in which some unit can accept an operation.
+     */
+    public int nextFreeCycle() {
+        int next = Integer.MAX_VALUE;
+        for (int free : freeAt) {
+            next = Math.min(next, free);
+        }
+        return next;
+    }
+
+    /**
+     * Start an operation of the given latency on a free unit. Returns false if
+     * every unit is busy in cycle.
+     */
+    public boolean dispatch(int cycle, int latency) {
+        for (int u = 0; u < freeAt.length; u++) {
+            if (freeAt[u] <= cycle) {
+                int occupancy = pipelined ? initiationInterval : Math.max(latency, 1);
+                freeAt[u] = cycle + occupancy;
+                operations++;
+                busyCycles += occupancy;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Count stations that were ready but got no unit, over the given number of cycles.
+     */
+    public void recordStalls(int stations, int cycles) {
+        selectStalls += (long) stations * cycles;
+    }
+
+    public void reset() {
+        Arrays.fill(freeAt, 0);
+        operations = 0;
+        busyCycles = 0;
+        selectStalls = 0;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInts(freeAt);
+        out.putLong(operations);
+        out.putLong(busyCycles);
+        out.putLong(selectStalls);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.getInts(freeAt);
+        operations = in.getLong();
+        busyCycles = in.getLong();
+        selectStalls = in.getLong();
+    }
+
+    public Instruction.UnitClass getUnitClass() {
+        return unit;
+    }
+
+    public int getCount() {
+        return freeAt.length;
+    }
+
+    public boolean isPipelined() {
+        return pipelined;
+    }
+
+    public int getInitiationInterval() {
+        return initiationInterval;
+    }
+
+    public long getOperations() {
+        return operations;
+    }
+
+    public long getSelectStalls() {
+        return selectStalls;
+    }
+
+    /**
+     * Fraction of unit-cycles the pool was unable to accept work, over cycles.
+     */
+    public double getUtilization(long cycles) {
+        return cycles == 0 ? 0.0 : Math.min(1.0, (double) busyCycles / ((double) cycles * freeAt.length));
+    }
+}
@@ -0,0 +1,69 @@
+package com.tomasulo;
+
+/**
+ * 2-bit counters indexed by branch pc XOR a global history of recent branch
+ * outcomes, so one branch can predict differently depending on the path that
+ * led to it. History is shifted speculatively when a branch is fetched and
+ * repaired when one turns out mispredicted; each branch keeps the history it
+ * was predicted with (its predictor state) and trains that counter.
+ */
+public class GsharePredictor extends BimodalPredictor {
+    private final int historyMask;
+    private int history;
+
+    public GsharePredictor(int entries, int historyBits) {
+        super(entries);
+        if (historyBits < 0 || historyBits > 30) {
+            throw new IllegalArgumentException("predictorHistoryBits must be between 0 and 30");
+        }
+        historyMask = (1 << historyBits) - 1;
+    }
+
+    @Override
+    protected int index(Instruction branch) {
+        return ((branch.getPc() >> 2) ^ (int) branch.getPredictorState()) & mask;
+    }
+
+    @Override
+    public boolean predict(Instruction branch) {
+        branch.setPredictorState(history);
+        return super.predict(branch);
+    }
+
+    @Override
+    public void fetched(Instruction branch, boolean taken) {
+        history = shift(history, taken);
+    }
+
+    @Override
+    public void recover(Instruction branch, boolean taken) {
+        history = shift((int) branch.getPredictorState(), taken);
+    }
+
+    private int shift(int h, boolean taken) {
+        return ((h << 1) | (taken ? 1 : 0)) & historyMask;
+    }
+
+    @Override
+    public String getName() {
+        return "gshare";
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        history = 0;
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        super.saveState(out);
+        out.putInt(history);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        super.restoreState(in);
+        history = in.getInt();
+    }
+}
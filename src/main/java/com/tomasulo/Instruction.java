@@ -7,7 +7,20 @@ public class Instruction {
         DADDI, DSUBI, // Integer operations
         L_D, L_S, LW, LD, // Loads
         S_D, S_S, SW, SD, // Stores
-        BEQ, BNE // Branches
+        BEQ, BNE; // Branches
+
+        private final String mnemonic = name().replace('_', '.'); // ADD_D -> ADD.D
+
+        public String mnemonic() {
+            return mnemonic;
+        }
+    }
+
+    /**
+     * Which group of reservation stations / buffers executes an instruction.
+     */
+    public enum UnitClass {
+        ADD_SUB, MUL_DIV, INTEGER, LOAD, STORE, BRANCH
     }
 
     private InstructionType type;
@@ -19,8 +32,24 @@ public class Instruction {
     private String label; // Branch label
     private int pc; // Program counter
     private String originalInstruction; // Original assembly string
+    // Register numbers decoded once from dest/src1/src2 (RegisterFile.NO_REGISTER if not a register)
+    private int destReg;
+    private int src1Reg;
+    private int src2Reg;
+    // Decoded once from type/operands so issue and execute never re-parse or re-test them
+    private UnitClass unitClass;
+    private boolean load;
+    private boolean store;
+    private boolean branch;
+    private boolean word; // 4-byte memory access (LW, SW, L.S, S.S); other loads/stores are 8 bytes
+    private boolean floatingPoint;
+    private boolean integer;
+    private int offset; // Load/store displacement, parsed from src2
+    private int targetPc; // Branch target resolved by the parser (0 if the label is unknown)
     private int iteration = 0; // iteration counter for re-fetches after branches
     private boolean branchTaken = false;
+    private boolean predictedTaken; // Branch direction predicted when this instance was fetched
+    private long predictorState; // What the predictor based that prediction on (BranchPredictor)
 
     // Execution tracking
     private int issueTime = -1;
@@ -28,11 +57,18 @@ public class Instruction {
     private int execEndTime = -1;
     private int writeTime = -1;
 
+    // Speculation tracking (reorder buffer mode)
+    private int robTag = TagTable.NONE; // Reorder buffer entry that renames the destination
+    private int commitTime = -1;
+    private boolean squashed; // Flushed after a branch misprediction
+
     public Instruction(InstructionType type, String dest, String src1, String src2) {
         this.type = type;
         this.dest = dest;
         this.src1 = src1;
         this.src2 = src2;
+        decodeRegisters();
+        decodeType();
     }
 
     public Instruction(InstructionType type, String dest, String src1, int immediate) {
@@ -40,6 +76,85 @@ public class Instruction {
         this.dest = dest;
         this.src1 = src1;
         this.immediate = immediate;
+        decodeRegisters();
+        decodeType();
+    }
+
+    /**
+     * Copy the static (decoded) fields of a template; timing fields start unset.
+     */
+    private Instruction(Instruction template) {
+        this.type = template.type;
+        this.dest = template.dest;
+        this.src1 = template.src1;
+        this.src2 = template.src2;
+        this.immediate = template.immediate;
+        this.destReg = template.destReg;
+        this.src1Reg = template.src1Reg;
+        this.src2Reg = template.src2Reg;
+        this.unitClass = template.unitClass;
+        this.load = template.load;
+        this.store = template.store;
+        this.branch = template.branch;
+        this.word = template.word;
+        this.floatingPoint = template.floatingPoint;
+        this.integer = template.integer;
+        this.offset = template.offset;
+        this.targetPc = template.targetPc;
+    }
+
+    private void decodeRegisters() {
+        this.destReg = RegisterFile.indexOf(dest);
+        this.src1Reg = RegisterFile.indexOf(src1);
+        this.src2Reg = RegisterFile.indexOf(src2);
+    }
+
+    private void decodeType() {
+        switch (type) {
+            case ADD_D:
+            case SUB_D:
+            case ADD_S:
+            case SUB_S:
+                unitClass = UnitClass.ADD_SUB;
+                floatingPoint = true;
+                break;
+            case MUL_D:
+            case DIV_D:
+            case MUL_S:
+            case DIV_S:
+                unitClass = UnitClass.MUL_DIV;
+                floatingPoint = true;
+                break;
+            case DADDI:
+            case DSUBI:
+                unitClass = UnitClass.INTEGER;
+                integer = true;
+                break;
+            case L_D:
+            case L_S:
+            case LW:
+            case LD:
+                unitClass = UnitClass.LOAD;
+                load = true;
+                break;
+            case S_D:
+            case S_S:
+            case SW:
+            case SD:
+                unitClass = UnitClass.STORE;
+                store = true;
+                break;
+            case BEQ:
+            case BNE:
+                unitClass = UnitClass.BRANCH;
+                branch = true;
+                break;
+        }
+        word = type == InstructionType.LW || type == InstructionType.SW
+                || type == InstructionType.L_S || type == InstructionType.S_S;
+        floatingPoint |= type == InstructionType.L_D || type == InstructionType.S_D
+                || type == InstructionType.L_S || type == InstructionType.S_S;
+        integer |= type == InstructionType.LW || type == InstructionType.SW;
     }
 
     public InstructionType getType() {
@@ -58,6 +173,49 @@ public class Instruction {
         return src2;
     }
 
+    public int getDestReg() {
+        return destReg;
+    }
+
+    public int getSrc1Reg() {
+        return src1Reg;
+    }
+
+    public int getSrc2Reg() {
+        return src2Reg;
+    }
+
+    public UnitClass getUnitClass() {
+        return unitClass;
+    }
+
+    /**
+     * Number of bytes a load/store accesses: 4 for word/single, 8 otherwise.
+     */
+    public int getAccessSize() {
+        return word ? 4 : 8;
+    }
+
+    public boolean isWord() {
+        return word;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public void setOffset(int offset) {
+        this.offset = offset;
+    }
+
+    public int getTargetPc() {
+        return targetPc;
+    }
+
+    public void setTargetPc(int targetPc) {
+        this.targetPc = targetPc;
+    }
+
     public int getImmediate() {
         return immediate;
     }
@@ -100,15 +258,8 @@ public class Instruction {
      * but independent timing fields and the given iteration number.
      */
     public Instruction createInstanceForIteration(int iter) {
-        Instruction copy;
-        if (this.type == InstructionType.DADDI || this.type == InstructionType.DSUBI) {
-            copy = new Instruction(this.type, this.dest, this.src1, this.immediate);
-        } else if (this.isLoad() || this.isStore()) {
-            // For load/store, keep src2 as string offset representation
-            copy = new Instruction(this.type, this.dest, this.src1, this.src2);
-        } else {
-            copy = new Instruction(this.type, this.dest, this.src1, this.src2);
-        }
+        // Register numbers are copied, not decoded again
+        Instruction copy = new Instruction(this);
 
         copy.setPc(this.pc);
         copy.setLabel(this.label);
@@ -127,6 +278,22 @@ public class Instruction {
         this.branchTaken = taken;
     }
 
+    public boolean isPredictedTaken() {
+        return predictedTaken;
+    }
+
+    public void setPredictedTaken(boolean predictedTaken) {
+        this.predictedTaken = predictedTaken;
+    }
+
+    public long getPredictorState() {
+        return predictorState;
+    }
+
+    public void setPredictorState(long predictorState) {
+        this.predictorState = predictorState;
+    }
+
     public String getOriginalInstruction() {
         return originalInstruction;
     }
@@ -167,32 +334,81 @@ public class Instruction {
         this.writeTime = time;
     }
 
+    public int getRobTag() {
+        return robTag;
+    }
+
+    public void setRobTag(int robTag) {
+        this.robTag = robTag;
+    }
+
+    public int getCommitTime() {
+        return commitTime;
+    }
+
+    public void setCommitTime(int time) {
+        this.commitTime = time;
+    }
+
+    public boolean isSquashed() {
+        return squashed;
+    }
+
+    public void setSquashed(boolean squashed) {
+        this.squashed = squashed;
+    }
+
+    /**
+     * Write the fields that change once this instance has issued (see Checkpoint).
+     */
+    void saveState(Checkpoint.Writer out) {
+        out.putInt(iteration);
+        out.putInt(address);
+        out.putBoolean(branchTaken);
+        out.putBoolean(predictedTaken);
+        out.putLong(predictorState);
+        out.putInt(issueTime);
+        out.putInt(execStartTime);
+        out.putInt(execEndTime);
+        out.putInt(writeTime);
+        out.putInt(robTag);
+        out.putInt(commitTime);
+        out.putBoolean(squashed);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        iteration = in.getInt();
+        address = in.getInt();
+        branchTaken = in.getBoolean();
+        predictedTaken = in.getBoolean();
+        predictorState = in.getLong();
+        issueTime = in.getInt();
+        execStartTime = in.getInt();
+        execEndTime = in.getInt();
+        writeTime = in.getInt();
+        robTag = in.getInt();
+        commitTime = in.getInt();
+        squashed = in.getBoolean();
+    }
+
     public boolean isFloatingPoint() {
-        return type == InstructionType.ADD_D || type == InstructionType.SUB_D ||
-                type == InstructionType.MUL_D || type == InstructionType.DIV_D ||
-                type == InstructionType.ADD_S || type == InstructionType.SUB_S ||
-                type == InstructionType.MUL_S || type == InstructionType.DIV_S ||
-                type == InstructionType.L_D || type == InstructionType.S_D ||
-                type == InstructionType.L_S || type == InstructionType.S_S;
+        return floatingPoint;
     }
 
     public boolean isLoad() {
-        return type == InstructionType.L_D || type == InstructionType.L_S ||
-                type == InstructionType.LW || type == InstructionType.LD;
+        return load;
     }
 
     public boolean isStore() {
-        return type == InstructionType.S_D || type == InstructionType.S_S ||
-                type == InstructionType.SW || type == InstructionType.SD;
+        return store;
     }
 
     public boolean isBranch() {
-        return type == InstructionType.BEQ || type == InstructionType.BNE;
+        return branch;
     }
 
     public boolean isInteger() {
-        return type == InstructionType.DADDI || type == InstructionType.DSUBI ||
-                type == InstructionType.LW || type == InstructionType.SW;
+        return integer;
     }
 
     @Override
@@ -202,7 +418,7 @@ public class Instruction {
         }
 
         // Convert type name: L_D -> L.D, ADD_D -> ADD.D, etc.
-        String typeName = type.name().replace("_", ".");
+        String typeName = type.mnemonic();
 
         switch (type) {
             case ADD_D:
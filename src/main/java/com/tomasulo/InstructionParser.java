@@ -4,7 +4,9 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class InstructionParser {
 
@@ -21,6 +23,8 @@ public class InstructionParser {
      */
     public static List<Instruction> parse(String code) throws Exception {
         List<Instruction> instructions = new ArrayList<>();
+        Map<String, Integer> labels = new HashMap<>();
+        String pendingLabels = ""; // Labels written on their own line(s), e.g. "LOOP:"
         String[] lines = code.split("\n");
 
         for (String line : lines) {
@@ -37,31 +41,56 @@ public class InstructionParser {
             if (line.isEmpty())
                 continue;
 
-            // Handle labels
-            if (line.contains(":")) {
-                String labelPart = line.substring(0, line.indexOf(":")).trim();
-                String rest = line.substring(line.indexOf(":") + 1).trim();
-
-                if (!rest.isEmpty()) {
-                    Instruction inst = parseLine(rest);
-                    if (inst != null) {
-                        inst.setOriginalInstruction(line);
-                        instructions.add(inst);
-                    }
-                }
+            // Handle labels: a label names the PC of the next instruction,
+            // whether it shares the line ("LOOP: L.D ...") or stands alone ("LOOP:")
+            String rest = line;
+            while (rest.contains(":")) {
+                String labelPart = rest.substring(0, rest.indexOf(":")).trim();
+                labels.put(labelPart, instructions.size() * 4);
+                rest = rest.substring(rest.indexOf(":") + 1).trim();
+            }
+            if (rest.isEmpty()) {
+                pendingLabels += line + " ";
                 continue;
             }
 
-            Instruction inst = parseLine(line);
+            Instruction inst = parseLine(rest);
             if (inst != null) {
-                inst.setOriginalInstruction(line);
+                // Keep standalone labels in the original text so it re-parses the same way
+                inst.setOriginalInstruction(pendingLabels + line);
+                inst.setPc(instructions.size() * 4);
                 instructions.add(inst);
+                pendingLabels = "";
             }
         }
 
+        resolveBranchTargets(instructions, labels);
         return instructions;
     }
 
+    /**
+     * Resolve every branch label to a target PC once, at parse time.
+     * A label may also be a numeric PC. Unknown labels resolve to PC 0.
+     */
+    private static void resolveBranchTargets(List<Instruction> instructions, Map<String, Integer> labels) {
+        for (Instruction inst : instructions) {
+            if (!inst.isBranch()) {
+                continue;
+            }
+            String label = inst.getLabel();
+            Integer target = labels.get(label);
+            if (target == null) {
+                try {
+                    target = Integer.parseInt(label);
+                } catch (NumberFormatException e) {
+                    System.err.println("Unknown label: " + label + " (branch will jump to PC 0)");
+                    target = 0;
+                }
+            }
+            inst.setTargetPc(target);
+        }
+    }
+
     private static Instruction parseLine(String line) throws Exception {
         String[] tokens = line.split("[\\s,()]+");
         if (tokens.length == 0)
@@ -166,6 +195,7 @@ public class InstructionParser {
         String base = tokens[3];
 
         Instruction inst = new Instruction(type, destSrc, base, offset);
+        inst.setOffset(Integer.parseInt(offset));
         return inst;
     }
 
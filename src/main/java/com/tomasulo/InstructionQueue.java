@@ -9,6 +9,10 @@ public class InstructionQueue {
     private int pc;
     private int iteration;
     private List<Instruction> issuedInstances;
+    private boolean recordHistory = true;
+    private BranchPredictor predictor;
+    private boolean followPredictions; // Fetch continues on the predicted path
+    private BranchTargetBuffer btb; // null = every branch target is known at fetch
 
     public InstructionQueue(int maxSize) {
         this.maxSize = maxSize;
@@ -43,8 +47,25 @@ public class InstructionQueue {
         Instruction template = allInstructions.get(idx);
         Instruction inst = template.createInstanceForIteration(this.iteration);
         // record as issued instance for UI/history
-        issuedInstances.add(inst);
+        if (recordHistory) {
+            issuedInstances.add(inst);
+        }
         pc += 4;
+        if (inst.isBranch() && predictor != null) {
+            boolean taken = predictor.predict(inst);
+            int target = inst.getTargetPc();
+            if (btb != null) {
+                // A taken prediction can only be followed if the BTB supplies the target;
+                // on a miss fetch falls through
+                target = btb.lookup(inst.getPc());
+                taken = taken && target >= 0;
+            }
+            inst.setPredictedTaken(taken);
+            predictor.fetched(inst, taken);
+            if (taken && followPredictions) {
+                jumpTo(target);
+            }
+        }
         // mark that this specific issued instance will later receive timing values
         return inst;
     }
@@ -68,6 +89,10 @@ public class InstructionQueue {
         return window;
     }
 
+    public int getProgramSize() {
+        return allInstructions.size();
+    }
+
     public List<Instruction> getAllInstructions() {
         return new ArrayList<>(allInstructions);
     }
@@ -80,12 +105,29 @@ public class InstructionQueue {
             inst.setExecStartTime(-1);
             inst.setExecEndTime(-1);
             inst.setWriteTime(-1);
+            inst.setCommitTime(-1);
             inst.setIteration(0);
         }
         this.iteration = 1;
         this.issuedInstances.clear();
     }
 
+    void saveState(Checkpoint.Writer out) {
+        out.putInt(pc);
+        out.putInt(iteration);
+        out.putInt(issuedInstances.size());
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        pc = in.getInt();
+        iteration = in.getInt();
+        // Instances issued after the checkpoint are dropped from the history
+        int issued = in.getInt();
+        while (issuedInstances.size() > issued) {
+            issuedInstances.remove(issuedInstances.size() - 1);
+        }
+    }
+
     public void jumpTo(int targetPc) {
         this.pc = targetPc;
         // New fetch sequence due to branch -> increment iteration so newly issued
@@ -93,6 +135,33 @@ public class InstructionQueue {
         this.iteration++;
     }
 
+    /**
+     * Predict every branch as it is issued. With followPredictions the queue
+     * redirects to the target of a branch predicted taken, so the next issue
+     * comes from the predicted path; otherwise predictions are only recorded on
+     * the instruction.
+     */
+    public void setBranchPredictor(BranchPredictor predictor, boolean followPredictions) {
+        this.predictor = predictor;
+        this.followPredictions = followPredictions;
+    }
+
+    /**
+     * Look branch targets up in btb at fetch instead of taking them from the
+     * decoded instruction (null = ideal target knowledge).
+     */
+    public void setBranchTargetBuffer(BranchTargetBuffer btb) {
+        this.btb = btb;
+    }
+
+    /**
+     * Enable or disable keeping issued instances for the UI. Headless runs turn
+     * this off so long simulations do not grow the history without bound.
+     */
+    public void setRecordHistory(boolean recordHistory) {
+        this.recordHistory = recordHistory;
+    }
+
     /**
      * Return the list of issued instruction instances (history), in order of issue.
      */
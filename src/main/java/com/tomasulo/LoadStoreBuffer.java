@@ -2,30 +2,64 @@ package com.tomasulo;
 
 public class LoadStoreBuffer {
     private String name;
+    private final int tag; // This buffer's tag, broadcast with its result
+    private final TagTable tags; // For showing Q by name
     private boolean busy;
     private int address;
     private double value; // For stores
-    private String q; // Tag of instruction producing value (for stores)
+    private int q; // Tag of instruction producing value (for stores), TagTable.NONE if available
     private Instruction instruction;
     private int remainingCycles;
     private boolean isLoad;
     private boolean cacheAccessed; // Track if cache has been accessed for this operation
+    private boolean forwarded; // Load value taken from an older store, no cache access
+    private boolean storeWritten; // Store value handed to the caches (no reorder buffer)
 
-    public LoadStoreBuffer(String name) {
+    public LoadStoreBuffer(String name, TagTable tags) {
         this.name = name;
+        this.tags = tags;
+        this.tag = tags.register(name);
         this.busy = false;
-        this.q = "";
+        this.q = TagTable.NONE;
     }
 
     public void clear() {
         busy = false;
         address = 0;
         value = 0;
-        q = "";
+        q = TagTable.NONE;
         instruction = null;
         remainingCycles = 0;
         isLoad = false;
         cacheAccessed = false;
+        forwarded = false;
+        storeWritten = false;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putBoolean(busy);
+        out.putInt(address);
+        out.putDouble(value);
+        out.putInt(q);
+        out.putInstruction(instruction);
+        out.putInt(remainingCycles);
+        out.putBoolean(isLoad);
+        out.putBoolean(cacheAccessed);
+        out.putBoolean(forwarded);
+        out.putBoolean(storeWritten);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        busy = in.getBoolean();
+        address = in.getInt();
+        value = in.getDouble();
+        q = in.getInt();
+        instruction = in.getInstruction();
+        remainingCycles = in.getInt();
+        isLoad = in.getBoolean();
+        cacheAccessed = in.getBoolean();
+        forwarded = in.getBoolean();
+        storeWritten = in.getBoolean();
     }
 
     public void setLoadInstruction(Instruction inst, int address, int latency) {
@@ -34,11 +68,27 @@ public class LoadStoreBuffer {
         this.address = address;
         this.remainingCycles = latency;
         this.isLoad = true;
-        this.q = "";
+        this.q = TagTable.NONE;
         this.cacheAccessed = false;
+        this.forwarded = false;
     }
 
-    public void setStoreInstruction(Instruction inst, int address, double value, String q, int latency) {
+    /**
+     * Fill the buffer with a load whose value was forwarded from a store buffer.
+     * It skips the cache and completes after latency cycles.
+     */
+    public void setForwardedLoad(Instruction inst, int address, double value, int latency) {
+        setLoadInstruction(inst, address, latency);
+        this.value = value;
+        this.cacheAccessed = true;
+        this.forwarded = true;
+    }
+
+    public boolean isForwarded() {
+        return forwarded;
+    }
+
+    public void setStoreInstruction(Instruction inst, int address, double value, int q, int latency) {
         this.busy = true;
         this.instruction = inst;
         this.address = address;
@@ -47,13 +97,14 @@ public class LoadStoreBuffer {
         this.remainingCycles = latency;
         this.isLoad = false;
         this.cacheAccessed = false;
+        this.storeWritten = false;
     }
 
     public boolean isReady() {
         if (isLoad) {
             return busy;
         } else {
-            return busy && q.isEmpty();
+            return busy && q == TagTable.NONE;
         }
     }
 
@@ -67,10 +118,10 @@ public class LoadStoreBuffer {
         return busy && remainingCycles == 0;
     }
 
-    public void updateValue(String tag, double val) {
-        if (q.equals(tag)) {
+    public void updateValue(int tag, double val) {
+        if (q == tag && q != TagTable.NONE) {
             value = val;
-            q = "";
+            q = TagTable.NONE;
         }
     }
 
@@ -79,6 +130,10 @@ public class LoadStoreBuffer {
         return name;
     }
 
+    public int getTag() {
+        return tag;
+    }
+
     public boolean isBusy() {
         return busy;
     }
@@ -104,10 +159,18 @@ public class LoadStoreBuffer {
     }
 
     public String getQ() {
-        return q;
+        return tags.nameOf(q);
     }
 
     public void setQ(String q) {
+        this.q = tags.tagOf(q);
+    }
+
+    public int getQTag() {
+        return q;
+    }
+
+    public void setQTag(int q) {
         this.q = q;
     }
 
@@ -119,6 +182,14 @@ public class LoadStoreBuffer {
         this.cacheAccessed = cacheAccessed;
     }
 
+    public boolean isStoreWritten() {
+        return storeWritten;
+    }
+
+    public void setStoreWritten(boolean storeWritten) {
+        this.storeWritten = storeWritten;
+    }
+
     public void addCacheLatency(int additionalCycles) {
         this.remainingCycles += additionalCycles;
     }
@@ -0,0 +1,67 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Evicts the way with the oldest stamp. Least recently used stamps every hit
+ * and fill; first in, first out (fifo) stamps fills only.
+ */
+public class LruPolicy implements ReplacementPolicy {
+    private final int ways;
+    private final boolean fifo;
+    private final long[] stamps; // Per line
+    private long clock;
+
+    public LruPolicy(int sets, int ways, boolean fifo) {
+        this.ways = ways;
+        this.fifo = fifo;
+        stamps = new long[sets * ways];
+    }
+
+    @Override
+    public void touch(int set, int way) {
+        if (!fifo) {
+            stamps[set * ways + way] = ++clock;
+        }
+    }
+
+    @Override
+    public void fill(int set, int way) {
+        stamps[set * ways + way] = ++clock;
+    }
+
+    @Override
+    public int victim(int set) {
+        int base = set * ways;
+        int oldest = 0;
+        for (int w = 1; w < ways; w++) {
+            if (stamps[base + w] < stamps[base + oldest]) {
+                oldest = w;
+            }
+        }
+        return oldest;
+    }
+
+    @Override
+    public String getName() {
+        return fifo ? "fifo" : "lru";
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(stamps, 0);
+        clock = 0;
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        out.putLongs(stamps);
+        out.putLong(clock);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        in.getLongs(stamps);
+        clock = in.getLong();
+    }
+}
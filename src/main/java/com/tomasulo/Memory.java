@@ -7,13 +7,65 @@ import java.util.Map;
 /**
  * Simple memory model for the Tomasulo simulator
  * Stores data as bytes - each address holds one byte (0x00-0xFF)
+ *
+ * Bytes are kept in fixed-size pages that checkpoints share copy-on-write:
+ * sharePages() hands out the current pages and the next write to each of them
+ * copies it first.
  */
 public class Memory {
     private static final int MEMORY_SIZE = 1024; // 1024 bytes
-    private byte[] memory;
+    private static final int PAGE_BITS = 6; // 64-byte pages
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private byte[][] pages;
+    private final boolean[] shared; // Page is also held by a checkpoint
+    private boolean trace = true; // Print stores and preload progress to stdout
 
     public Memory() {
-        memory = new byte[MEMORY_SIZE];
+        pages = new byte[MEMORY_SIZE / PAGE_SIZE][PAGE_SIZE];
+        shared = new boolean[pages.length];
+    }
+
+    private byte read(int address) {
+        return pages[address >> PAGE_BITS][address & PAGE_MASK];
+    }
+
+    private void write(int address, byte value) {
+        int page = address >> PAGE_BITS;
+        if (shared[page]) {
+            pages[page] = pages[page].clone();
+            shared[page] = false;
+        }
+        pages[page][address & PAGE_MASK] = value;
+    }
+
+    /**
+     * Current pages for a checkpoint. They are not written again: the next
+     * store to a page copies it first.
+     */
+    byte[][] sharePages() {
+        Arrays.fill(shared, true);
+        return pages.clone();
+    }
+
+    /**
+     * Go back to pages taken by sharePages(); they stay shared with the checkpoint.
+     */
+    void restorePages(byte[][] saved) {
+        if (saved.length != pages.length) {
+            throw new IllegalArgumentException("Checkpoint does not match this memory size");
+        }
+        for (byte[] page : saved) {
+            if (page.length != PAGE_SIZE) {
+                throw new IllegalArgumentException("Checkpoint does not match this memory size");
+            }
+        }
+        pages = saved.clone();
+        Arrays.fill(shared, true);
+    }
+
+    public void setTrace(boolean trace) {
+        this.trace = trace;
     }
 
     /**
@@ -44,7 +96,7 @@ public class Memory {
         // Combine bytes: addr is MSB, addr+(numBytes-1) is LSB
         long combined = 0;
         for (int i = 0; i < numBytes; i++) {
-            combined = (combined << 8) | (memory[address + i] & 0xFF);
+            combined = (combined << 8) | (read(address + i) & 0xFF);
         }
 
         // Return as double but represents integer value
@@ -78,20 +130,38 @@ public class Memory {
 
         // Convert double (treated as integer) to bytes
         long intValue = (long) value;
-        System.out.printf("STORE: Address=%d, Value=%.0f (0x%016X), Bytes[%d]: ",
-                address, value, intValue, numBytes);
 
         // Store in big-endian order: MSB at address
         int shiftStart = (numBytes - 1) * 8;
         for (int i = 0; i < numBytes; i++) {
-            memory[address + i] = (byte) ((intValue >> (shiftStart - i * 8)) & 0xFF);
+            write(address + i, (byte) ((intValue >> (shiftStart - i * 8)) & 0xFF));
         }
 
-        // Print bytes in order
-        for (int i = 0; i < numBytes; i++) {
-            System.out.printf("0x%02X ", memory[address + i] & 0xFF);
+        if (trace) {
+            System.out.printf("STORE: Address=%d, Value=%.0f (0x%016X), Bytes[%d]: ",
+                    address, value, intValue, numBytes);
+            // Print bytes in order
+            for (int i = 0; i < numBytes; i++) {
+                System.out.printf("0x%02X ", read(address + i) & 0xFF);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Value a load of numBytes at address reads back after value was stored
+     * there (store-to-load forwarding): truncated to an integer and to the
+     * access size like a store, 0 outside memory like a load.
+     */
+    public double forwardedValue(int address, double value, int numBytes) {
+        if (address < 0 || address + numBytes - 1 >= MEMORY_SIZE) {
+            return 0.0;
+        }
+        long intValue = (long) value;
+        if (numBytes < 8) {
+            intValue &= (1L << (numBytes * 8)) - 1;
         }
-        System.out.println();
+        return (double) intValue;
     }
 
     /**
@@ -101,7 +171,7 @@ public class Memory {
         if (address < 0 || address >= MEMORY_SIZE) {
             return 0;
         }
-        return memory[address];
+        return read(address);
     }
 
     /**
@@ -109,12 +179,15 @@ public class Memory {
      */
     public void setByte(int address, byte value) {
         if (address >= 0 && address < MEMORY_SIZE) {
-            memory[address] = value;
+            write(address, value);
         }
     }
 
     public void reset() {
-        Arrays.fill(memory, (byte) 0);
+        for (int page = 0; page < pages.length; page++) {
+            pages[page] = new byte[PAGE_SIZE];
+            shared[page] = false;
+        }
     }
 
     public Map<Integer, Double> getSnapshot() {
@@ -124,7 +197,7 @@ public class Memory {
             // Check if any byte in this 8-byte chunk is non-zero
             boolean hasData = false;
             for (int j = 0; j < 8; j++) {
-                if (memory[i + j] != 0) {
+                if (read(i + j) != 0) {
                     hasData = true;
                     break;
                 }
@@ -149,8 +222,10 @@ public class Memory {
         // Calculate how many blocks we can fill with test data
         int numTestBlocks = Math.min(64, MEMORY_SIZE / blockSize); // Up to 64 test values
         
-        System.out.printf("Preloading memory: blockSize=%d bytes, %d test blocks\n", 
-                         blockSize, numTestBlocks);
+        if (trace) {
+            System.out.printf("Preloading memory: blockSize=%d bytes, %d test blocks\n", 
+                             blockSize, numTestBlocks);
+        }
         
         // Fill each block with a sequential value (10, 20, 30, 40, ...)
         for (int blockNum = 0; blockNum < numTestBlocks; blockNum++) {
@@ -160,12 +235,14 @@ public class Memory {
             // Store value using the block size as the data size
             store(address, value, blockSize);
             
-            if (blockNum < 8) { // Print first few for verification
+            if (trace && blockNum < 8) { // Print first few for verification
                 System.out.printf("  Block %d (addr %d-%d): value %d\n", 
                                  blockNum, address, address + blockSize - 1, value);
             }
         }
-        System.out.println("Memory preload complete.\n");
+        if (trace) {
+            System.out.println("Memory preload complete.\n");
+        }
     }
     
     /**
@@ -187,7 +264,7 @@ public class Memory {
         boolean[] processed = new boolean[MEMORY_SIZE];
 
         for (int i = 0; i < MEMORY_SIZE; i++) {
-            if (processed[i] || memory[i] == 0)
+            if (processed[i] || read(i) == 0)
                 continue;
 
             // Check if this starts an 8-byte value (all 8 bytes have some data pattern)
@@ -195,7 +272,7 @@ public class Memory {
             if (i % 8 == 0 && i + 7 < MEMORY_SIZE) {
                 // Check if at least one byte in next 8 is non-zero
                 for (int j = 0; j < 8; j++) {
-                    if (memory[i + j] != 0) {
+                    if (read(i + j) != 0) {
                         is8ByteValue = true;
                         break;
                     }
@@ -207,7 +284,7 @@ public class Memory {
             if (!is8ByteValue && i % 4 == 0 && i + 3 < MEMORY_SIZE) {
                 // Check if at least one byte in next 4 is non-zero
                 for (int j = 0; j < 4; j++) {
-                    if (memory[i + j] != 0) {
+                    if (read(i + j) != 0) {
                         is4ByteValue = true;
                         break;
                     }
@@ -218,7 +295,7 @@ public class Memory {
                 // Print 8-byte value
                 System.out.printf("Address %3d-%3d: [", i, i + 7);
                 for (int j = 0; j < 8; j++) {
-                    System.out.printf("0x%02X", memory[i + j] & 0xFF);
+                    System.out.printf("0x%02X", read(i + j) & 0xFF);
                     if (j < 7)
                         System.out.print(", ");
                     processed[i + j] = true;
@@ -229,7 +306,7 @@ public class Memory {
                 // Print 4-byte value
                 System.out.printf("Address %3d-%3d: [", i, i + 3);
                 for (int j = 0; j < 4; j++) {
-                    System.out.printf("0x%02X", memory[i + j] & 0xFF);
+                    System.out.printf("0x%02X", read(i + j) & 0xFF);
                     if (j < 3)
                         System.out.print(", ");
                     processed[i + j] = true;
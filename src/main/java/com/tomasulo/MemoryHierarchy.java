@@ -0,0 +1,94 @@
+package com.tomasulo;
+
+import java.util.List;
+
+/**
+ * The caches between the load/store buffers and Memory.
+ *
+ * The engine asks it how many cycles each access takes; values always come
+ * from Memory, the caches only model where the data would be found. The
+ * first level is the Cache shown in the GUI.
+ */
+public interface MemoryHierarchy {
+
+    /**
+     * Cycles for a load of 4 (word) or 8 bytes at address. Every level that
+     * misses is filled on the way.
+     */
+    int checkLoadLatency(int address, boolean isWordLoad);
+
+    /**
+     * Cycles for a store of 4 (word) or 8 bytes at address; the value is
+     * written by writeStoreValue once the store retires.
+     */
+    int checkStoreLatency(int address, boolean isWordStore);
+
+    /**
+     * Retire a store checked by checkStoreLatency: write its value into L1,
+     * then mark the line dirty (write-back) or send the bytes on to memory
+     * (write-through). Returns the cycles the store waits for the write buffer.
+     */
+    int writeStoreValue(int address, double value, boolean isWordStore);
+
+    /**
+     * Cycles checkStoreLatency would charge now, without filling, counting or
+     * marking anything. Used for stores that may still be squashed.
+     */
+    int peekStoreLatency(int address, boolean isWordStore);
+
+    /**
+     * Tell the hierarchy the current cycle; the write buffer drains in the
+     * background against it.
+     */
+    void setCycle(int cycle);
+
+    /**
+     * Cycles of an access that hits the first level.
+     */
+    int getHitLatency();
+
+    /**
+     * Cache levels, L1 first.
+     */
+    List<Cache> getLevels();
+
+    /**
+     * Inclusion policy of a level relative to the levels above it; "nine"
+     * for L1.
+     */
+    String getInclusion(int level);
+
+    boolean isWriteBack();
+
+    boolean isWriteAllocate();
+
+    /**
+     * The buffer in front of memory, null when writes to memory are free.
+     */
+    WriteBuffer getWriteBuffer();
+
+    /**
+     * Bytes written to memory: write-through stores and dirty lines written
+     * back from the last level, including those written by writeBackDirty.
+     */
+    long getMemoryWriteBytes();
+
+    /**
+     * Write back every line still dirty, level by level, as if the caches
+     * were flushed when the run completes. Counts the traffic, takes no time.
+     */
+    void writeBackDirty();
+
+    void reset();
+
+    void saveState(Checkpoint.Writer out);
+
+    void restoreState(Checkpoint.Reader in);
+
+    /**
+     * Build the L1 (cache* fields) and the L2 and L3 configured by config.
+     */
+    static MemoryHierarchy create(Config config, Memory memory, EventLog events) {
+        return new CacheHierarchy(config, memory, events);
+    }
+}
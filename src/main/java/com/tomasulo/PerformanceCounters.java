@@ -0,0 +1,139 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Where the cycles go: station occupancy per unit class, CDB requests against
+ * grants, and the cycles issue stopped for each stall reason (EventLog.STALL_*).
+ *
+ * The engine updates the counters once per cycle with plain increments; cycles
+ * skipped by fast-forward are added in one step, multiplied by the number of
+ * cycles skipped, since nothing changes during them. snapshot() copies the
+ * counters together with the engine totals for reporting.
+ */
+public class PerformanceCounters {
+    private static final int UNITS = Instruction.UnitClass.values().length;
+    public static final int STALL_REASONS = EventLog.STALL_ROB_FULL + 1;
+    // Report keys of the stall reasons, indexed by EventLog.STALL_*
+    private static final String[] STALL_KEYS = { "branch", "structural", "operand", "memory", "pendingWrite",
+            "robFull" };
+
+    private final long[] busyEntryCycles = new long[UNITS]; // Busy stations/buffers summed over cycles
+    private final long[] stallCycles = new long[STALL_REASONS];
+    private long cdbRequests; // Results waiting for a bus, summed over cycles
+    private long cdbGrants; // Results broadcast
+    private int lastStall = EventLog.STALL_NONE; // Why issue stopped in the last cycle
+
+    public static String stallKey(int reason) {
+        return STALL_KEYS[reason];
+    }
+
+    /**
+     * Account one executed cycle: why issue stopped (EventLog.STALL_NONE if it
+     * did not), how many results wanted a bus and how many got one.
+     */
+    void recordCycle(int stall, int requests, int grants, Scheduler scheduler) {
+        if (stall != EventLog.STALL_NONE) {
+            stallCycles[stall]++;
+        }
+        lastStall = stall;
+        cdbRequests += requests;
+        cdbGrants += grants;
+        for (int u = 0; u < UNITS; u++) {
+            busyEntryCycles[u] += scheduler.getBusy(u);
+        }
+    }
+
+    /**
+     * Account cycles skipped by fast-forward. They repeat the last executed
+     * cycle with no bus traffic.
+     */
+    void recordSkippedCycles(int cycles, Scheduler scheduler) {
+        if (lastStall != EventLog.STALL_NONE) {
+            stallCycles[lastStall] += cycles;
+        }
+        for (int u = 0; u < UNITS; u++) {
+            busyEntryCycles[u] += (long) scheduler.getBusy(u) * cycles;
+        }
+    }
+
+    public void reset() {
+        Arrays.fill(busyEntryCycles, 0);
+        Arrays.fill(stallCycles, 0);
+        cdbRequests = 0;
+        cdbGrants = 0;
+        lastStall = EventLog.STALL_NONE;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putLongs(busyEntryCycles);
+        out.putLongs(stallCycles);
+        out.putLong(cdbRequests);
+        out.putLong(cdbGrants);
+        out.putInt(lastStall);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.getLongs(busyEntryCycles);
+        in.getLongs(stallCycles);
+        cdbRequests = in.getLong();
+        cdbGrants = in.getLong();
+        lastStall = in.getInt();
+    }
+
+    Snapshot snapshot(int cycles, long committed, int[] entries, Cache cache) {
+        return new Snapshot(cycles, committed, busyEntryCycles.clone(), entries, cdbRequests, cdbGrants,
+                stallCycles.clone(), cache.getHits(), cache.getMisses());
+    }
+
+    /**
+     * Counter values at one point of a run.
+     */
+    public static class Snapshot {
+        public final int cycles;
+        public final long committed; // Instructions written back (committed with a reorder buffer)
+        public final double ipc;
+        public final long[] busyEntryCycles; // Per unit class (ordinal)
+        public final int[] entries; // Stations or buffers per unit class
+        public final long cdbRequests;
+        public final long cdbGrants;
+        public final long[] stallCycles; // Per EventLog.STALL_* reason
+        public final long cacheHits;
+        public final long cacheMisses;
+
+        Snapshot(int cycles, long committed, long[] busyEntryCycles, int[] entries, long cdbRequests,
+                long cdbGrants, long[] stallCycles, long cacheHits, long cacheMisses) {
+            this.cycles = cycles;
+            this.committed = committed;
+            this.ipc = cycles == 0 ? 0.0 : (double) committed / cycles;
+            this.busyEntryCycles = busyEntryCycles;
+            this.entries = entries;
+            this.cdbRequests = cdbRequests;
+            this.cdbGrants = cdbGrants;
+            this.stallCycles = stallCycles;
+            this.cacheHits = cacheHits;
+            this.cacheMisses = cacheMisses;
+        }
+
+        /**
+         * Average fraction of a unit class's stations (or buffers) in use.
+         */
+        public double getOccupancy(Instruction.UnitClass unit) {
+            int count = entries[unit.ordinal()];
+            return cycles == 0 || count == 0 ? 0.0
+                    : (double) busyEntryCycles[unit.ordinal()] / ((double) cycles * count);
+        }
+
+        /**
+         * Cycles in which issue stopped for reason (EventLog.STALL_*).
+         */
+        public long getStallCycles(int reason) {
+            return stallCycles[reason];
+        }
+
+        public double getCacheHitRate() {
+            long accesses = cacheHits + cacheMisses;
+            return accesses == 0 ? 0.0 : (double) cacheHits / accesses;
+        }
+    }
+}
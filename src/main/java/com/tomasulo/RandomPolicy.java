@@ -0,0 +1,56 @@
+package com.tomasulo;
+
+/**
+ * Evicts a pseudo-random way. The generator (SplitMix64) is seeded from
+ * Config.cacheRandomSeed and restarts on reset, so runs are repeatable and its
+ * single word of state is saved in checkpoints.
+ */
+public class RandomPolicy implements ReplacementPolicy {
+    private final int ways;
+    private final long seed;
+    private long state;
+
+    public RandomPolicy(int ways, long seed) {
+        this.ways = ways;
+        this.seed = seed;
+        state = seed;
+    }
+
+    @Override
+    public void touch(int set, int way) {
+    }
+
+    @Override
+    public void fill(int set, int way) {
+    }
+
+    @Override
+    public int victim(int set) {
+        state += 0x9E3779B97F4A7C15L;
+        long z = state;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        return (int) ((z >>> 1) % ways);
+    }
+
+    @Override
+    public String getName() {
+        return "random";
+    }
+
+    @Override
+    public void reset() {
+        state = seed;
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        out.putLong(state);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        state = in.getLong();
+    }
+}
@@ -1,94 +1,281 @@
 package com.tomasulo;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+/**
+ * Register file backed by primitive arrays.
+ *
+ * Registers are addressed by a register number decoded once by the parser
+ * (see indexOf): Rn is n and Fn is FLOAT_BASE + n. Values and status tags live
+ * in arrays indexed by that number, so the engine never hashes a register name.
+ * The name-based methods are kept as a compatibility layer for the GUI.
+ *
+ * A reverse index links every register to the other registers waiting on the
+ * same producer tag, so a CDB write only visits the registers it updates.
+ */
 public class RegisterFile {
-    private Map<String, Double> integerRegisters;
-    private Map<String, Double> floatRegisters;
-    private Map<String, String> registerStatus; // Maps register to producing reservation station
+    public static final int FLOAT_BASE = 128; // Register number of F0
+    public static final int NO_REGISTER = -1;
+
+    private final int numIntRegs;
+    private final int numFloatRegs;
+    private final double[] values; // Indexed by register number
+    private final int[] status; // Producing station tag (Qi), TagTable.NONE if ready
+    private final TagTable tags; // For showing Qi by station name
+
+    // Reverse index: waitHead[tag] is the first register whose status is tag,
+    // waitNext[reg] the next register with the same status (NO_REGISTER ends the chain)
+    private int[] waitHead;
+    private final int[] waitNext;
+    private final int[] waitPrev;
 
     public RegisterFile(int numIntRegs, int numFloatRegs) {
-        integerRegisters = new HashMap<>();
-        floatRegisters = new HashMap<>();
-        registerStatus = new HashMap<>();
+        this(numIntRegs, numFloatRegs, new TagTable());
+    }
 
-        // Initialize integer registers R0-R31
-        for (int i = 0; i < numIntRegs; i++) {
-            integerRegisters.put("R" + i, 0.0);
-            registerStatus.put("R" + i, "");
-        }
-        // Initialize floating point registers F0-F31
-        for (int i = 0; i < numFloatRegs; i++) {
-            floatRegisters.put("F" + i, 0.0);
-            registerStatus.put("F" + i, "");
+    public RegisterFile(int numIntRegs, int numFloatRegs, TagTable tags) {
+        if (numIntRegs > FLOAT_BASE || numFloatRegs > FLOAT_BASE) {
+            throw new IllegalArgumentException("At most " + FLOAT_BASE + " registers of each kind are supported");
         }
+        this.numIntRegs = numIntRegs;
+        this.numFloatRegs = numFloatRegs;
+        this.tags = tags;
+
+        int size = FLOAT_BASE + numFloatRegs;
+        values = new double[size];
+        status = new int[size];
+        waitNext = new int[size];
+        waitPrev = new int[size];
+        Arrays.fill(waitNext, NO_REGISTER);
+        Arrays.fill(waitPrev, NO_REGISTER);
+        waitHead = new int[Math.max(16, tags.size())];
+        Arrays.fill(waitHead, NO_REGISTER);
     }
 
-    public double getValue(String register) {
-        if (register.startsWith("F")) {
-            return floatRegisters.getOrDefault(register, 0.0);
-        } else {
-            return integerRegisters.getOrDefault(register, 0.0);
+    /**
+     * Decode a register name ("R3", "F10") into its register number, or
+     * NO_REGISTER if the name is not a register.
+     */
+    public static int indexOf(String register) {
+        if (register == null || register.length() < 2) {
+            return NO_REGISTER;
+        }
+        char kind = Character.toUpperCase(register.charAt(0));
+        if (kind != 'R' && kind != 'F') {
+            return NO_REGISTER;
         }
+        int n = 0;
+        for (int i = 1; i < register.length(); i++) {
+            char c = register.charAt(i);
+            if (c < '0' || c > '9') {
+                return NO_REGISTER;
+            }
+            n = n * 10 + (c - '0');
+            if (n >= FLOAT_BASE) {
+                return NO_REGISTER;
+            }
+        }
+        return kind == 'F' ? FLOAT_BASE + n : n;
     }
 
-    public void setValue(String register, double value) {
+    /**
+     * Name of a register number ("R3", "F10").
+     */
+    public static String nameOf(int reg) {
+        return reg >= FLOAT_BASE ? "F" + (reg - FLOAT_BASE) : "R" + reg;
+    }
+
+    public static boolean isFloat(int reg) {
+        return reg >= FLOAT_BASE;
+    }
+
+    private boolean valid(int reg) {
+        return reg >= 0 && reg < values.length;
+    }
+
+    // ---- Index-based access (used by the engine) ----
+
+    public double getValue(int reg) {
+        return valid(reg) ? values[reg] : 0.0;
+    }
+
+    public void setValue(int reg, double value) {
         // R0 is always 0 and cannot be changed
-        if (register.equals("R0")) {
+        if (reg <= 0 || reg >= values.length) {
+            return;
+        }
+        values[reg] = value;
+    }
+
+    /**
+     * Producing station tag for a register, TagTable.NONE if the value is available.
+     */
+    public int getStatusTag(int reg) {
+        return valid(reg) ? status[reg] : TagTable.NONE;
+    }
+
+    public void setStatusTag(int reg, int tag) {
+        // R0 is always 0 and cannot have a status tag
+        if (reg <= 0 || reg >= values.length) {
+            return;
+        }
+        unlink(reg);
+        status[reg] = tag;
+        if (tag != TagTable.NONE) {
+            link(reg, tag);
+        }
+    }
+
+    public void clearStatus(int reg) {
+        if (!valid(reg)) {
             return;
         }
-        
-        if (register.startsWith("F")) {
-            floatRegisters.put(register, value);
+        unlink(reg);
+        status[reg] = TagTable.NONE;
+    }
+
+    /**
+     * First register whose status is tag, or NO_REGISTER. Together with
+     * nextWaitingOn this walks only the registers a CDB write must update.
+     */
+    public int firstWaitingOn(int tag) {
+        return tag > TagTable.NONE && tag < waitHead.length ? waitHead[tag] : NO_REGISTER;
+    }
+
+    /**
+     * Next register waiting on the same tag as reg, or NO_REGISTER. Read it
+     * before clearing reg's status.
+     */
+    public int nextWaitingOn(int reg) {
+        return valid(reg) ? waitNext[reg] : NO_REGISTER;
+    }
+
+    private void link(int reg, int tag) {
+        if (tag >= waitHead.length) {
+            int oldLength = waitHead.length;
+            waitHead = Arrays.copyOf(waitHead, Math.max(tag + 1, oldLength * 2));
+            Arrays.fill(waitHead, oldLength, waitHead.length, NO_REGISTER);
+        }
+        int head = waitHead[tag];
+        waitNext[reg] = head;
+        waitPrev[reg] = NO_REGISTER;
+        if (head != NO_REGISTER) {
+            waitPrev[head] = reg;
+        }
+        waitHead[tag] = reg;
+    }
+
+    private void unlink(int reg) {
+        int tag = status[reg];
+        if (tag == TagTable.NONE) {
+            return;
+        }
+        int prev = waitPrev[reg];
+        int next = waitNext[reg];
+        if (prev != NO_REGISTER) {
+            waitNext[prev] = next;
         } else {
-            integerRegisters.put(register, value);
+            waitHead[tag] = next;
         }
+        if (next != NO_REGISTER) {
+            waitPrev[next] = prev;
+        }
+        waitNext[reg] = NO_REGISTER;
+        waitPrev[reg] = NO_REGISTER;
+    }
+
+    // ---- Name-based compatibility layer ----
+
+    public double getValue(String register) {
+        return getValue(indexOf(register));
+    }
+
+    public void setValue(String register, double value) {
+        setValue(indexOf(register), value);
     }
 
     public String getStatus(String register) {
-        return registerStatus.getOrDefault(register, "");
+        return tags.nameOf(getStatusTag(indexOf(register)));
     }
 
     public void setStatus(String register, String tag) {
-        // R0 is always 0 and cannot have a status tag
-        if (register.equals("R0")) {
-            return;
-        }
-        
-        registerStatus.put(register, tag);
+        setStatusTag(indexOf(register), tags.tagOf(tag));
+    }
+
+    public int getStatusTag(String register) {
+        return getStatusTag(indexOf(register));
+    }
+
+    public void setStatusTag(String register, int tag) {
+        setStatusTag(indexOf(register), tag);
     }
 
     public void clearStatus(String register) {
-        registerStatus.put(register, "");
+        clearStatus(indexOf(register));
     }
 
     public void clearAllStatus() {
-        for (String reg : registerStatus.keySet()) {
-            registerStatus.put(reg, "");
-        }
+        Arrays.fill(status, TagTable.NONE);
+        Arrays.fill(waitHead, NO_REGISTER);
+        Arrays.fill(waitNext, NO_REGISTER);
+        Arrays.fill(waitPrev, NO_REGISTER);
     }
 
     public Map<String, Double> getIntegerRegisters() {
-        return new HashMap<>(integerRegisters);
+        Map<String, Double> regs = new HashMap<>();
+        for (int i = 0; i < numIntRegs; i++) {
+            regs.put(nameOf(i), values[i]);
+        }
+        return regs;
     }
 
     public Map<String, Double> getFloatRegisters() {
-        return new HashMap<>(floatRegisters);
+        Map<String, Double> regs = new HashMap<>();
+        for (int i = 0; i < numFloatRegs; i++) {
+            regs.put(nameOf(FLOAT_BASE + i), values[FLOAT_BASE + i]);
+        }
+        return regs;
     }
 
     public Map<String, String> getRegisterStatus() {
-        return new HashMap<>(registerStatus);
+        Map<String, String> result = new HashMap<>();
+        for (int i = 0; i < numIntRegs; i++) {
+            result.put(nameOf(i), tags.nameOf(status[i]));
+        }
+        for (int i = 0; i < numFloatRegs; i++) {
+            result.put(nameOf(FLOAT_BASE + i), tags.nameOf(status[FLOAT_BASE + i]));
+        }
+        return result;
+    }
+
+    public int getNumIntegerRegisters() {
+        return numIntRegs;
+    }
+
+    public int getNumFloatRegisters() {
+        return numFloatRegs;
     }
 
     public void reset() {
-        for (String reg : integerRegisters.keySet()) {
-            integerRegisters.put(reg, 0.0);
-            registerStatus.put(reg, "");
-        }
-        for (String reg : floatRegisters.keySet()) {
-            floatRegisters.put(reg, 0.0);
-            registerStatus.put(reg, "");
-        }
+        Arrays.fill(values, 0.0);
+        clearAllStatus();
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putDoubles(values);
+        out.putInts(status);
+        out.putInts(waitHead);
+        out.putInts(waitNext);
+        out.putInts(waitPrev);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.getDoubles(values);
+        in.getInts(status);
+        waitHead = in.getInts(); // May have grown since construction
+        in.getInts(waitNext);
+        in.getInts(waitPrev);
     }
 }
@@ -0,0 +1,195 @@
+package com.tomasulo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reorder buffer for speculative execution (Config.robSize > 0).
+ *
+ * Entries are allocated at issue in program order and retire from the head
+ * once their result has been written on the CDB. Each entry has its own tag
+ * ("ROB1", "ROB2", ...) which renames the destination register, so the
+ * register file and memory only change at commit and a mispredicted path is
+ * discarded by flushing the buffer.
+ */
+public class ReorderBuffer {
+
+    public static class Entry {
+        private final String name;
+        private final int tag;
+        private boolean busy;
+        private Instruction instruction;
+        private int stationTag; // Station or buffer executing the instruction
+        private double value;
+        private boolean ready; // Result written on the CDB, waiting to commit
+
+        Entry(String name, TagTable tags) {
+            this.name = name;
+            this.tag = tags.register(name);
+        }
+
+        void clear() {
+            busy = false;
+            instruction = null;
+            stationTag = TagTable.NONE;
+            value = 0;
+            ready = false;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getTag() {
+            return tag;
+        }
+
+        public boolean isBusy() {
+            return busy;
+        }
+
+        public Instruction getInstruction() {
+            return instruction;
+        }
+
+        public int getStationTag() {
+            return stationTag;
+        }
+
+        public void setStationTag(int stationTag) {
+            this.stationTag = stationTag;
+        }
+
+        public double getValue() {
+            return value;
+        }
+
+        public boolean isReady() {
+            return ready;
+        }
+
+        public void setResult(double value) {
+            this.value = value;
+            this.ready = true;
+        }
+    }
+
+    private final Entry[] entries;
+    private final int firstTag;
+    private int head; // Oldest entry
+    private int count;
+
+    public ReorderBuffer(int size, TagTable tags) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Reorder buffer size must be positive");
+        }
+        entries = new Entry[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = new Entry("ROB" + (i + 1), tags);
+        }
+        firstTag = entries[0].getTag();
+    }
+
+    public boolean isFull() {
+        return count == entries.length;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCapacity() {
+        return entries.length;
+    }
+
+    /**
+     * Take the tail entry for an instruction being issued. The caller checks isFull first.
+     */
+    public Entry allocate(Instruction inst) {
+        Entry entry = entries[(head + count) % entries.length];
+        entry.clear();
+        entry.busy = true;
+        entry.instruction = inst;
+        count++;
+        return entry;
+    }
+
+    /**
+     * Oldest entry, or null if the buffer is empty.
+     */
+    public Entry head() {
+        return count == 0 ? null : entries[head];
+    }
+
+    /**
+     * Free the head entry after it has committed.
+     */
+    public void retireHead() {
+        entries[head].clear();
+        head = (head + 1) % entries.length;
+        count--;
+    }
+
+    /**
+     * Entry owning tag, or null if tag is not a reorder buffer tag.
+     */
+    public Entry entryOf(int tag) {
+        int index = tag - firstTag;
+        return index >= 0 && index < entries.length ? entries[index] : null;
+    }
+
+    /**
+     * Discard every entry (mispredict recovery). Their instructions are marked
+     * squashed; returns how many there were.
+     */
+    public int flush() {
+        int flushed = count;
+        while (count > 0) {
+            entries[head].instruction.setSquashed(true);
+            retireHead();
+        }
+        head = 0;
+        return flushed;
+    }
+
+    /**
+     * Busy entries from oldest to youngest (for display).
+     */
+    public List<Entry> getEntries() {
+        List<Entry> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            list.add(entries[(head + i) % entries.length]);
+        }
+        return list;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInt(entries.length);
+        out.putInt(head);
+        out.putInt(count);
+        for (Entry entry : entries) {
+            out.putBoolean(entry.busy);
+            out.putInstruction(entry.instruction);
+            out.putInt(entry.stationTag);
+            out.putDouble(entry.value);
+            out.putBoolean(entry.ready);
+        }
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.expect(in.getInt(), entries.length);
+        head = in.getInt();
+        count = in.getInt();
+        for (Entry entry : entries) {
+            entry.busy = in.getBoolean();
+            entry.instruction = in.getInstruction();
+            entry.stationTag = in.getInt();
+            entry.value = in.getDouble();
+            entry.ready = in.getBoolean();
+        }
+    }
+}
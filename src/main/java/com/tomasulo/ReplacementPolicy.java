@@ -0,0 +1,60 @@
+package com.tomasulo;
+
+/**
+ * Chooses the line a set-associative Cache evicts on a miss
+ * (Config.cacheReplacement).
+ *
+ * Lines are numbered set * ways + way. The cache reports every hit and fill
+ * and only asks for a victim when the set has no invalid way left. Each
+ * policy keeps its state in flat arrays sized for the whole cache.
+ */
+public interface ReplacementPolicy {
+
+    /**
+     * The line (set, way) was hit.
+     */
+    void touch(int set, int way);
+
+    /**
+     * The line (set, way) was filled on a miss.
+     */
+    void fill(int set, int way);
+
+    /**
+     * Way of a full set to evict next.
+     */
+    int victim(int set);
+
+    String getName();
+
+    /**
+     * Forget all history (simulation reset).
+     */
+    void reset();
+
+    void saveState(Checkpoint.Writer out);
+
+    void restoreState(Checkpoint.Reader in);
+
+    /**
+     * Build the policy named name for a cache of sets sets with ways ways each.
+     * seed only matters for random replacement.
+     */
+    static ReplacementPolicy create(String name, int sets, int ways, long seed) {
+        switch (name.trim().toLowerCase()) {
+            case "lru":
+                return new LruPolicy(sets, ways, false);
+            case "fifo":
+                return new LruPolicy(sets, ways, true);
+            case "plru":
+                return new TreePlruPolicy(sets, ways);
+            case "random":
+                return new RandomPolicy(ways, seed);
+            case "srrip":
+                return new SrripPolicy(sets, ways);
+            default:
+                throw new IllegalArgumentException("Unknown cache replacement policy: " + name
+                        + " (use lru, plru, fifo, random or srrip)");
+        }
+    }
+}
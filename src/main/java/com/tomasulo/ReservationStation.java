@@ -1,22 +1,31 @@
 package com.tomasulo;
 
 public class ReservationStation {
+    // Bits of the pending-operand mask
+    private static final int PENDING_J = 1;
+    private static final int PENDING_K = 2;
+
     private String name;
+    private final int tag; // This station's tag, broadcast with its result
+    private final TagTable tags; // For showing Qj/Qk by name
     private boolean busy;
     private String op;
     private double vj;
     private double vk;
-    private String qj;
-    private String qk;
+    private int qj; // Producer tags, TagTable.NONE when the operand is available
+    private int qk;
+    private int pending; // PENDING_J | PENDING_K for operands still waiting on the CDB
     private int remainingCycles;
     private Instruction instruction;
     private int address; // For load/store
 
-    public ReservationStation(String name) {
+    public ReservationStation(String name, TagTable tags) {
         this.name = name;
+        this.tags = tags;
+        this.tag = tags.register(name);
         this.busy = false;
-        this.qj = "";
-        this.qk = "";
+        this.qj = TagTable.NONE;
+        this.qk = TagTable.NONE;
     }
 
     public void clear() {
@@ -24,15 +33,42 @@ public class ReservationStation {
         op = null;
         vj = 0;
         vk = 0;
-        qj = "";
-        qk = "";
+        qj = TagTable.NONE;
+        qk = TagTable.NONE;
+        pending = 0;
         remainingCycles = 0;
         instruction = null;
         address = 0;
     }
 
+    void saveState(Checkpoint.Writer out) {
+        out.putBoolean(busy);
+        out.putString(op);
+        out.putDouble(vj);
+        out.putDouble(vk);
+        out.putInt(qj);
+        out.putInt(qk);
+        out.putInt(pending);
+        out.putInt(remainingCycles);
+        out.putInstruction(instruction);
+        out.putInt(address);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        busy = in.getBoolean();
+        op = in.getString();
+        vj = in.getDouble();
+        vk = in.getDouble();
+        qj = in.getInt();
+        qk = in.getInt();
+        pending = in.getInt();
+        remainingCycles = in.getInt();
+        instruction = in.getInstruction();
+        address = in.getInt();
+    }
+
     public void setInstruction(Instruction inst, String operation,
-            double vj, double vk, String qj, String qk, int latency) {
+            double vj, double vk, int qj, int qk, int latency) {
         this.busy = true;
         this.instruction = inst;
         this.op = operation;
@@ -40,11 +76,12 @@ public class ReservationStation {
         this.vk = vk;
         this.qj = qj;
         this.qk = qk;
+        this.pending = (qj != TagTable.NONE ? PENDING_J : 0) | (qk != TagTable.NONE ? PENDING_K : 0);
         this.remainingCycles = latency;
     }
 
     public boolean isReady() {
-        return busy && qj.isEmpty() && qk.isEmpty();
+        return busy && pending == 0;
     }
 
     public void decrementCycles() {
@@ -57,36 +94,38 @@ public class ReservationStation {
         return busy && remainingCycles == 0;
     }
 
-    public void updateOperand(String tag, double value) {
-        if (qj.equals(tag)) {
+    public void updateOperand(int tag, double value) {
+        if (pending == 0) {
+            return;
+        }
+        if (qj == tag) {
             vj = value;
-            qj = "";
+            qj = TagTable.NONE;
+            pending &= ~PENDING_J;
         }
-        if (qk.equals(tag)) {
+        if (qk == tag) {
             vk = value;
-            qk = "";
+            qk = TagTable.NONE;
+            pending &= ~PENDING_K;
         }
     }
 
     public double executeOperation() {
-        switch (op) {
-            case "ADD":
-            case "ADD.D":
-            case "ADD.S":
-            case "DADDI":
+        // Switch on the decoded instruction type rather than the op string
+        switch (instruction.getType()) {
+            case ADD_D:
+            case ADD_S:
+            case DADDI:
                 return vj + vk;
-            case "SUB":
-            case "SUB.D":
-            case "SUB.S":
-            case "DSUBI":
+            case SUB_D:
+            case SUB_S:
+            case DSUBI:
                 return vj - vk;
-            case "MUL":
-            case "MUL.D":
-            case "MUL.S":
+            case MUL_D:
+            case MUL_S:
                 return vj * vk;
-            case "DIV":
-            case "DIV.D":
-            case "DIV.S":
+            case DIV_D:
+            case DIV_S:
                 return vj / vk;
             default:
                 return 0;
@@ -98,6 +137,10 @@ public class ReservationStation {
         return name;
     }
 
+    public int getTag() {
+        return tag;
+    }
+
     public boolean isBusy() {
         return busy;
     }
@@ -131,19 +174,37 @@ public class ReservationStation {
     }
 
     public String getQj() {
-        return qj;
+        return tags.nameOf(qj);
     }
 
     public void setQj(String qj) {
-        this.qj = qj;
+        setQjTag(tags.tagOf(qj));
     }
 
     public String getQk() {
-        return qk;
+        return tags.nameOf(qk);
     }
 
     public void setQk(String qk) {
+        setQkTag(tags.tagOf(qk));
+    }
+
+    public int getQjTag() {
+        return qj;
+    }
+
+    public void setQjTag(int qj) {
+        this.qj = qj;
+        this.pending = qj != TagTable.NONE ? pending | PENDING_J : pending & ~PENDING_J;
+    }
+
+    public int getQkTag() {
+        return qk;
+    }
+
+    public void setQkTag(int qk) {
         this.qk = qk;
+        this.pending = qk != TagTable.NONE ? pending | PENDING_K : pending & ~PENDING_K;
     }
 
     public int getRemainingCycles() {
@@ -0,0 +1,295 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Wakeup/select bookkeeping for the reservation stations and load/store buffers.
+ *
+ * Each unit class keeps a ready list (a bit per station, in station order) of
+ * the entries whose operands are available and that still have cycles left to
+ * execute, so the execute stage only visits in-flight work. A wakeup index
+ * links every waiting operand to the tag it is waiting on, so a CDB broadcast
+ * only visits the consumers of that tag.
+ *
+ * Stations are registered in the engine's list order; the index passed to
+ * nextReady is the index into that list.
+ */
+public class Scheduler {
+    private static final int NONE = -1;
+    private static final int UNITS = Instruction.UnitClass.values().length;
+
+    // Per-tag lookup of the entry that owns the tag
+    private ReservationStation[] stationByTag;
+    private LoadStoreBuffer[] bufferByTag;
+    private int[] unitByTag;
+    private int[] indexByTag;
+
+    private final BitSet[] ready; // Ready list per unit class, indexed by station index
+    private final int[] registered; // Stations registered per unit class
+    private int busyCount; // Entries dispatched and not yet released
+    private final int[] busy; // The same, per unit class
+
+    // Wakeup index. A consumer slot is (consumer tag * 2 + operand), operand 0 = Qj
+    // (or a store buffer's Q), 1 = Qk. waitHead[tag] is the first slot waiting on
+    // tag, waitNext/waitPrev chain the other slots waiting on the same tag.
+    private int[] waitHead;
+    private int[] waitNext;
+    private int[] waitPrev;
+    private int[] waitTag;
+
+    public Scheduler() {
+        ready = new BitSet[UNITS];
+        for (int i = 0; i < UNITS; i++) {
+            ready[i] = new BitSet();
+        }
+        registered = new int[UNITS];
+        busy = new int[UNITS];
+        stationByTag = new ReservationStation[16];
+        bufferByTag = new LoadStoreBuffer[16];
+        unitByTag = new int[16];
+        indexByTag = new int[16];
+        waitHead = new int[16];
+        waitNext = new int[32];
+        waitPrev = new int[32];
+        waitTag = new int[32];
+        Arrays.fill(waitHead, NONE);
+        Arrays.fill(waitNext, NONE);
+        Arrays.fill(waitPrev, NONE);
+    }
+
+    public void register(Instruction.UnitClass unit, ReservationStation rs) {
+        int tag = rs.getTag();
+        ensureCapacity(tag);
+        stationByTag[tag] = rs;
+        unitByTag[tag] = unit.ordinal();
+        indexByTag[tag] = registered[unit.ordinal()]++;
+    }
+
+    public void register(Instruction.UnitClass unit, LoadStoreBuffer buf) {
+        int tag = buf.getTag();
+        ensureCapacity(tag);
+        bufferByTag[tag] = buf;
+        unitByTag[tag] = unit.ordinal();
+        indexByTag[tag] = registered[unit.ordinal()]++;
+    }
+
+    /**
+     * Reservation station that owns tag, or null if tag belongs to a buffer.
+     */
+    public ReservationStation stationOf(int tag) {
+        return tag > TagTable.NONE && tag < stationByTag.length ? stationByTag[tag] : null;
+    }
+
+    /**
+     * Load/store buffer that owns tag, or null if tag belongs to a station.
+     */
+    public LoadStoreBuffer bufferOf(int tag) {
+        return tag > TagTable.NONE && tag < bufferByTag.length ? bufferByTag[tag] : null;
+    }
+
+    /**
+     * Track a station that was just filled at issue: link its pending operands
+     * into the wakeup index, or put it on the ready list if nothing is pending.
+     */
+    public void dispatch(ReservationStation rs) {
+        busyCount++;
+        int tag = rs.getTag();
+        busy[unitByTag[tag]]++;
+        if (rs.getQjTag() != TagTable.NONE) {
+            link(tag * 2, rs.getQjTag());
+        }
+        if (rs.getQkTag() != TagTable.NONE) {
+            link(tag * 2 + 1, rs.getQkTag());
+        }
+        if (rs.isReady() && rs.getRemainingCycles() > 0) {
+            ready[unitByTag[tag]].set(indexByTag[tag]);
+        }
+    }
+
+    public void dispatch(LoadStoreBuffer buf) {
+        busyCount++;
+        int tag = buf.getTag();
+        busy[unitByTag[tag]]++;
+        if (buf.getQTag() != TagTable.NONE) {
+            link(tag * 2, buf.getQTag());
+        }
+        if (buf.isReady() && buf.getRemainingCycles() > 0) {
+            ready[unitByTag[tag]].set(indexByTag[tag]);
+        }
+    }
+
+    /**
+     * Next ready station index of a unit class at or after from, or -1.
+     */
+    public int nextReady(Instruction.UnitClass unit, int from) {
+        return ready[unit.ordinal()].nextSetBit(from);
+    }
+
+    /**
+     * Take a station off its ready list once it has finished executing.
+     */
+    public void finish(int tag) {
+        ready[unitByTag[tag]].clear(indexByTag[tag]);
+    }
+
+    /**
+     * Deliver a CDB broadcast to the operands waiting on tag. Consumers whose
+     * last operand arrives move onto their ready list.
+     */
+    public void wakeup(int tag, double value) {
+        if (tag <= TagTable.NONE || tag >= waitHead.length) {
+            return;
+        }
+        int slot = waitHead[tag];
+        waitHead[tag] = NONE;
+        while (slot != NONE) {
+            int next = waitNext[slot];
+            waitNext[slot] = NONE;
+            waitPrev[slot] = NONE;
+            waitTag[slot] = TagTable.NONE;
+
+            int consumer = slot >> 1;
+            if (stationByTag[consumer] != null) {
+                ReservationStation rs = stationByTag[consumer];
+                rs.updateOperand(tag, value);
+                if (rs.isReady() && rs.getRemainingCycles() > 0) {
+                    ready[unitByTag[consumer]].set(indexByTag[consumer]);
+                }
+            } else if (bufferByTag[consumer] != null) {
+                LoadStoreBuffer buf = bufferByTag[consumer];
+                buf.updateValue(tag, value);
+                if (buf.isReady() && buf.getRemainingCycles() > 0) {
+                    ready[unitByTag[consumer]].set(indexByTag[consumer]);
+                }
+            }
+            slot = next;
+        }
+    }
+
+    /**
+     * Forget an entry that is being cleared (written back or flushed).
+     */
+    public void release(int tag) {
+        if (tag <= TagTable.NONE || tag >= unitByTag.length) {
+            return;
+        }
+        boolean wasBusy = stationByTag[tag] != null ? stationByTag[tag].isBusy()
+                : bufferByTag[tag] != null && bufferByTag[tag].isBusy();
+        if (wasBusy) {
+            busyCount--;
+            busy[unitByTag[tag]]--;
+        }
+        ready[unitByTag[tag]].clear(indexByTag[tag]);
+        unlink(tag * 2);
+        unlink(tag * 2 + 1);
+    }
+
+    /**
+     * True when no dispatched entry is still waiting, executing or writing back.
+     */
+    public boolean isIdle() {
+        return busyCount == 0;
+    }
+
+    /**
+     * Entries of a unit class (by ordinal) dispatched and not yet released.
+     */
+    int getBusy(int unit) {
+        return busy[unit];
+    }
+
+    public void reset() {
+        for (BitSet list : ready) {
+            list.clear();
+        }
+        busyCount = 0;
+        Arrays.fill(busy, 0);
+        Arrays.fill(waitHead, NONE);
+        Arrays.fill(waitNext, NONE);
+        Arrays.fill(waitPrev, NONE);
+        Arrays.fill(waitTag, TagTable.NONE);
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        for (BitSet list : ready) {
+            out.putLongs(list.toLongArray());
+        }
+        out.putInt(busyCount);
+        out.putInts(busy);
+        out.putInts(waitHead);
+        out.putInts(waitNext);
+        out.putInts(waitPrev);
+        out.putInts(waitTag);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        for (int i = 0; i < UNITS; i++) {
+            ready[i] = BitSet.valueOf(in.getLongs());
+        }
+        busyCount = in.getInt();
+        in.getInts(busy);
+        waitHead = in.getInts();
+        waitNext = in.getInts();
+        waitPrev = in.getInts();
+        waitTag = in.getInts();
+        // Back to the capacity at the checkpoint; tags beyond it were not registered then
+        int length = waitHead.length;
+        stationByTag = Arrays.copyOf(stationByTag, length);
+        bufferByTag = Arrays.copyOf(bufferByTag, length);
+        unitByTag = Arrays.copyOf(unitByTag, length);
+        indexByTag = Arrays.copyOf(indexByTag, length);
+    }
+
+    private void link(int slot, int tag) {
+        ensureCapacity(tag);
+        int head = waitHead[tag];
+        waitNext[slot] = head;
+        waitPrev[slot] = NONE;
+        waitTag[slot] = tag;
+        if (head != NONE) {
+            waitPrev[head] = slot;
+        }
+        waitHead[tag] = slot;
+    }
+
+    private void unlink(int slot) {
+        int tag = waitTag[slot];
+        if (tag == TagTable.NONE) {
+            return;
+        }
+        int prev = waitPrev[slot];
+        int next = waitNext[slot];
+        if (prev != NONE) {
+            waitNext[prev] = next;
+        } else {
+            waitHead[tag] = next;
+        }
+        if (next != NONE) {
+            waitPrev[next] = prev;
+        }
+        waitNext[slot] = NONE;
+        waitPrev[slot] = NONE;
+        waitTag[slot] = TagTable.NONE;
+    }
+
+    private void ensureCapacity(int tag) {
+        if (tag < waitHead.length) {
+            return;
+        }
+        int oldLength = waitHead.length;
+        int length = Math.max(tag + 1, oldLength * 2);
+        stationByTag = Arrays.copyOf(stationByTag, length);
+        bufferByTag = Arrays.copyOf(bufferByTag, length);
+        unitByTag = Arrays.copyOf(unitByTag, length);
+        indexByTag = Arrays.copyOf(indexByTag, length);
+        waitHead = Arrays.copyOf(waitHead, length);
+        Arrays.fill(waitHead, oldLength, length, NONE);
+        int oldSlots = waitNext.length;
+        waitNext = Arrays.copyOf(waitNext, length * 2);
+        waitPrev = Arrays.copyOf(waitPrev, length * 2);
+        waitTag = Arrays.copyOf(waitTag, length * 2);
+        Arrays.fill(waitNext, oldSlots, length * 2, NONE);
+        Arrays.fill(waitPrev, oldSlots, length * 2, NONE);
+    }
+}
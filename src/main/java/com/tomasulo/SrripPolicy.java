@@ -0,0 +1,69 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Static re-reference interval prediction with 2-bit values per line. Fills
+ * predict a long interval (2), hits a near one (0). The victim is the first
+ * way predicted distant (3); if there is none, every way of the set ages by
+ * one until there is. Lines streamed through once are evicted before lines
+ * that were reused.
+ */
+public class SrripPolicy implements ReplacementPolicy {
+    private static final byte DISTANT = 3;
+    private static final byte LONG = 2;
+
+    private final int ways;
+    private final byte[] rrpv; // Per line
+
+    public SrripPolicy(int sets, int ways) {
+        this.ways = ways;
+        rrpv = new byte[sets * ways];
+        reset();
+    }
+
+    @Override
+    public void touch(int set, int way) {
+        rrpv[set * ways + way] = 0;
+    }
+
+    @Override
+    public void fill(int set, int way) {
+        rrpv[set * ways + way] = LONG;
+    }
+
+    @Override
+    public int victim(int set) {
+        int base = set * ways;
+        while (true) {
+            for (int w = 0; w < ways; w++) {
+                if (rrpv[base + w] == DISTANT) {
+                    return w;
+                }
+            }
+            for (int w = 0; w < ways; w++) {
+                rrpv[base + w]++;
+            }
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "srrip";
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(rrpv, DISTANT);
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        out.putBytes(rrpv);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        in.getBytes(rrpv);
+    }
+}
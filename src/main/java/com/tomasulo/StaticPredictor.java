@@ -0,0 +1,39 @@
+package com.tomasulo;
+
+/**
+ * Fixed prediction with no history: every branch taken, or backward branches
+ * (loops) taken and forward branches not taken (BTFN).
+ */
+public class StaticPredictor implements BranchPredictor {
+    private final boolean backwardOnly;
+
+    public StaticPredictor(boolean backwardOnly) {
+        this.backwardOnly = backwardOnly;
+    }
+
+    @Override
+    public boolean predict(Instruction branch) {
+        return !backwardOnly || branch.getTargetPc() <= branch.getPc();
+    }
+
+    @Override
+    public void update(Instruction branch, boolean taken) {
+    }
+
+    @Override
+    public String getName() {
+        return backwardOnly ? "btfn" : "taken";
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+    }
+}
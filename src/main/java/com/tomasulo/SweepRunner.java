@@ -0,0 +1,531 @@
+package com.tomasulo;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless design-space sweep.
+ * Runs every program under every point of the cross product of the given
+ * Config parameter values on a fork-join pool and prints one CSV or JSON table.
+ *
+ * Each point gets its own Config.copy(), freshly parsed instructions and
+ * ExecutionEngine (and so its own Memory and Cache). Workers share only the
+ * base configuration and program sources, which are read-only once the sweep
+ * starts, and write their row into their own slot of the result array.
+ *
+ * Usage:
+ * java -cp target/classes com.tomasulo.SweepRunner [options] --param KEY=VALUES ... program.asm [more.asm ...]
+ */
+public class SweepRunner {
+
+    private static final long DEFAULT_MAX_CYCLES = 1_000_000L;
+
+    private final Config config = new Config();
+    private final Map<String, String[]> parameters = new LinkedHashMap<>();
+    private final Map<String, Double> registerInit = new LinkedHashMap<>();
+    private final Map<Integer, Double> memoryInit = new LinkedHashMap<>();
+    private final List<File> programs = new ArrayList<>();
+    private final List<String> sources = new ArrayList<>();
+    private long maxCycles = DEFAULT_MAX_CYCLES;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private boolean json = false;
+    private File outputFile;
+
+    /**
+     * Metrics of one program at one sweep point.
+     */
+    public static class Row {
+        public final String program;
+        public final String[] values; // Parameter values, in --param order
+        public final boolean completed;
+        public final int cycles;
+        public final long instructions;
+        public final double ipc;
+        public final long branches;
+        public final long mispredictions;
+        public final long cdbConflicts; // Summed over all buses
+        public final long forwardedLoads;
+        public final long[] stallCycles; // Per EventLog.STALL_* reason
+        public final long cacheHits;
+        public final long cacheMisses;
+        public final long l2Hits; // 0 without an L2
+        public final long l2Misses;
+        public final long l3Hits;
+        public final long l3Misses;
+        public final long writeBackBytes; // Summed over all levels
+        public final long memoryWriteBytes;
+        public final long writeBufferStalls;
+        public final String error; // Null unless the point could not be built or run
+
+        Row(String program, String[] values, ExecutionEngine engine, boolean completed) {
+            this.program = program;
+            this.values = values;
+            this.completed = completed;
+            this.cycles = engine.getCurrentCycle();
+            this.instructions = engine.getCompletedInstructions();
+            this.ipc = engine.getIpc();
+            this.branches = engine.getPredictedBranches();
+            this.mispredictions = engine.getMispredictions();
+            long conflicts = 0;
+            CommonDataBus cdb = engine.getCommonDataBus();
+            for (int bus = 0; bus < cdb.getNumBuses(); bus++) {
+                conflicts += cdb.getConflicts(bus);
+            }
+            this.cdbConflicts = conflicts;
+            this.forwardedLoads = engine.getForwardedLoads();
+            PerformanceCounters.Snapshot counters = engine.getPerformanceSnapshot();
+            this.stallCycles = counters.stallCycles;
+            this.cacheHits = counters.cacheHits;
+            this.cacheMisses = counters.cacheMisses;
+            List<Cache> levels = engine.getMemoryHierarchy().getLevels();
+            this.l2Hits = levels.size() > 1 ? levels.get(1).getHits() : 0;
+            this.l2Misses = levels.size() > 1 ? levels.get(1).getMisses() : 0;
+            this.l3Hits = levels.size() > 2 ? levels.get(2).getHits() : 0;
+            this.l3Misses = levels.size() > 2 ? levels.get(2).getMisses() : 0;
+            long writeBacks = 0;
+            for (Cache level : levels) {
+                writeBacks += level.getWriteBackBytes();
+            }
+            this.writeBackBytes = writeBacks;
+            this.memoryWriteBytes = engine.getMemoryHierarchy().getMemoryWriteBytes();
+            WriteBuffer writeBuffer = engine.getMemoryHierarchy().getWriteBuffer();
+            this.writeBufferStalls = writeBuffer != null ? writeBuffer.getStallCycles() : 0;
+            this.error = null;
+        }
+
+        Row(String program, String[] values, String error) {
+            this.program = program;
+            this.values = values;
+            this.completed = false;
+            this.cycles = 0;
+            this.instructions = 0;
+            this.ipc = 0.0;
+            this.branches = 0;
+            this.mispredictions = 0;
+            this.cdbConflicts = 0;
+            this.forwardedLoads = 0;
+            this.stallCycles = new long[PerformanceCounters.STALL_REASONS];
+            this.cacheHits = 0;
+            this.cacheMisses = 0;
+            this.l2Hits = 0;
+            this.l2Misses = 0;
+            this.l3Hits = 0;
+            this.l3Misses = 0;
+            this.writeBackBytes = 0;
+            this.memoryWriteBytes = 0;
+            this.writeBufferStalls = 0;
+            this.error = error;
+        }
+    }
+
+    /**
+     * Runs the rows in [from, to), splitting until each task holds one row so
+     * idle workers can steal the rest.
+     */
+    private class SweepTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Row[] rows;
+        private final int from;
+        private final int to;
+
+        SweepTask(Row[] rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                rows[from] = runPoint(from);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new SweepTask(rows, from, mid), new SweepTask(rows, mid, to));
+        }
+    }
+
+    public static void main(String[] args) {
+        SweepRunner runner = new SweepRunner();
+        try {
+            runner.parseArgs(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage());
+            printUsage(System.err);
+            System.exit(1);
+        }
+
+        Row[] rows = runner.run();
+        boolean failed = false;
+        try (Writer writer = runner.outputFile != null
+                ? new FileWriter(runner.outputFile, StandardCharsets.UTF_8)
+                : new PrintWriter(System.out)) {
+            writer.write(runner.json ? runner.toJson(rows) : runner.toCsv(rows));
+        } catch (IOException e) {
+            System.err.println("Error writing " + runner.outputFile + ": " + e.getMessage());
+            failed = true;
+        }
+        for (Row row : rows) {
+            if (row.error != null) {
+                System.err.println("Error running " + row.program + " at " + String.join(",", row.values) + ": "
+                        + row.error);
+                failed = true;
+            }
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+
+    private void parseArgs(String[] args) {
+        List<String> overrides = new ArrayList<>();
+        File configFile = null;
+
+        // Headless defaults, as in BatchRunner
+        config.fastForward = true;
+        config.eventLogMode = "off";
+        config.checkpointInterval = 0;
+
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            switch (arg) {
+                case "--config":
+                    configFile = new File(BatchRunner.requireValue(args, ++i, arg));
+                    break;
+                case "--set":
+                    overrides.add(BatchRunner.requireValue(args, ++i, arg));
+                    break;
+                case "--param": {
+                    String[] kv = BatchRunner.splitPair(BatchRunner.requireValue(args, ++i, arg));
+                    if (parameters.containsKey(kv[0])) {
+                        throw new IllegalArgumentException("Parameter given twice: " + kv[0]);
+                    }
+                    parameters.put(kv[0], parseValues(kv[0], kv[1]));
+                    break;
+                }
+                case "--reg": {
+                    String[] kv = BatchRunner.splitPair(BatchRunner.requireValue(args, ++i, arg));
+                    registerInit.put(kv[0].toUpperCase(), BatchRunner.parseDouble(kv[1], arg));
+                    break;
+                }
+                case "--mem": {
+                    String[] kv = BatchRunner.splitPair(BatchRunner.requireValue(args, ++i, arg));
+                    memoryInit.put(BatchRunner.parseAddress(kv[0]), BatchRunner.parseDouble(kv[1], arg));
+                    break;
+                }
+                case "--max-cycles":
+                    try {
+                        maxCycles = Long.parseLong(BatchRunner.requireValue(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid --max-cycles value");
+                    }
+                    break;
+                case "--threads":
+                    try {
+                        threads = Integer.parseInt(BatchRunner.requireValue(args, ++i, arg));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid --threads value");
+                    }
+                    if (threads < 1) {
+                        throw new IllegalArgumentException("--threads must be at least 1");
+                    }
+                    break;
+                case "--format": {
+                    String format = BatchRunner.requireValue(args, ++i, arg);
+                    if (format.equalsIgnoreCase("json")) {
+                        json = true;
+                    } else if (format.equalsIgnoreCase("csv")) {
+                        json = false;
+                    } else {
+                        throw new IllegalArgumentException("Unknown format: " + format);
+                    }
+                    break;
+                }
+                case "--out":
+                    outputFile = new File(BatchRunner.requireValue(args, ++i, arg));
+                    break;
+                case "-h":
+                case "--help":
+                    printUsage(System.out);
+                    System.exit(0);
+                    break;
+                default:
+                    if (arg.startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                    }
+                    programs.add(new File(arg));
+            }
+        }
+
+        if (programs.isEmpty()) {
+            throw new IllegalArgumentException("No program given");
+        }
+
+        if (configFile != null) {
+            try {
+                config.load(configFile);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Cannot read config file " + configFile + ": " + e.getMessage());
+            }
+        }
+        for (String override : overrides) {
+            String[] kv = BatchRunner.splitPair(override);
+            config.set(kv[0], kv[1]);
+        }
+        config.traceMemory = false;
+        config.recordIssueHistory = false;
+        EventLog.Mode.parse(config.eventLogMode);
+
+        // Reject unknown keys and unparsable values before starting any worker
+        Config scratch = config.copy();
+        for (Map.Entry<String, String[]> entry : parameters.entrySet()) {
+            for (String value : entry.getValue()) {
+                scratch.set(entry.getKey(), value);
+            }
+        }
+
+        // Read each program once; workers parse their own copy of the instructions
+        for (File file : programs) {
+            try {
+                String source = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+                InstructionParser.parse(source);
+                sources.add(source);
+            } catch (Exception e) {
+                throw new IllegalArgumentException("Cannot load " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Values of one parameter: a comma list (4,8,16), an arithmetic range
+     * (1..8 or 1..8:2) or a geometric one (64..1024*2).
+     */
+    static String[] parseValues(String key, String spec) {
+        int dots = spec.indexOf("..");
+        if (dots < 0) {
+            String[] values = spec.split(",");
+            for (int i = 0; i < values.length; i++) {
+                values[i] = values[i].trim();
+                if (values[i].isEmpty()) {
+                    throw new IllegalArgumentException("Empty value for " + key);
+                }
+            }
+            return values;
+        }
+
+        String rest = spec.substring(dots + 2);
+        boolean geometric = rest.contains("*");
+        int stepAt = geometric ? rest.indexOf('*') : rest.indexOf(':');
+        long low;
+        long high;
+        long step;
+        try {
+            low = Long.parseLong(spec.substring(0, dots).trim());
+            high = Long.parseLong((stepAt < 0 ? rest : rest.substring(0, stepAt)).trim());
+            step = stepAt < 0 ? 1 : Long.parseLong(rest.substring(stepAt + 1).trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid range for " + key + ": " + spec);
+        }
+        if (high < low || (geometric ? step < 2 || low < 1 : step < 1)) {
+            throw new IllegalArgumentException("Invalid range for " + key + ": " + spec);
+        }
+        List<String> values = new ArrayList<>();
+        for (long v = low; v <= high; v = geometric ? v * step : v + step) {
+            values.add(String.valueOf(v));
+        }
+        return values.toArray(new String[0]);
+    }
+
+    /**
+     * Number of rows: programs times the size of the cross product.
+     */
+    public int getPointCount() {
+        long count = programs.size();
+        for (String[] values : parameters.values()) {
+            count *= values.length;
+        }
+        if (count > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Sweep has too many points: " + count);
+        }
+        return (int) count;
+    }
+
+    /**
+     * Run every row on a pool of the configured size. Rows come back in
+     * point order whatever order the workers finished in.
+     */
+    public Row[] run() {
+        Row[] rows = new Row[getPointCount()];
+        if (rows.length == 0) {
+            return rows;
+        }
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            pool.invoke(new SweepTask(rows, 0, rows.length));
+        } finally {
+            pool.shutdown();
+        }
+        return rows;
+    }
+
+    /**
+     * Decode a row index into its program and parameter values (the last
+     * parameter varies fastest, the program slowest) and run it.
+     */
+    private Row runPoint(int index) {
+        String[] values = new String[parameters.size()];
+        int rest = index;
+        int p = values.length;
+        List<String[]> ranges = new ArrayList<>(parameters.values());
+        for (int k = ranges.size() - 1; k >= 0; k--) {
+            String[] range = ranges.get(k);
+            values[--p] = range[rest % range.length];
+            rest /= range.length;
+        }
+        String program = programs.get(rest).getPath();
+
+        try {
+            Config pointConfig = config.copy();
+            int k = 0;
+            for (String key : parameters.keySet()) {
+                pointConfig.set(key, values[k++]);
+            }
+            ExecutionEngine engine = new ExecutionEngine(pointConfig);
+            engine.loadProgram(InstructionParser.parse(sources.get(rest)));
+            for (Map.Entry<String, Double> entry : registerInit.entrySet()) {
+                engine.getRegisterFile().setValue(entry.getKey(), entry.getValue());
+            }
+            for (Map.Entry<Integer, Double> entry : memoryInit.entrySet()) {
+                engine.getMemory().initialize(entry.getKey(), entry.getValue());
+            }
+            boolean completed = engine.runToCompletion(maxCycles);
+            return new Row(program, values, engine, completed);
+        } catch (Exception e) {
+            return new Row(program, values, String.valueOf(e.getMessage()));
+        }
+    }
+
+    String toCsv(Row[] rows) {
+        StringBuilder sb = new StringBuilder("program");
+        for (String key : parameters.keySet()) {
+            sb.append(',').append(key);
+        }
+        sb.append(",completed,cycles,instructions,ipc,branches,mispredictions,cdbConflicts,forwardedLoads");
+        for (int reason = 0; reason < PerformanceCounters.STALL_REASONS; reason++) {
+            sb.append(',').append(stallColumn(reason));
+        }
+        sb.append(",cacheHits,cacheMisses,l2Hits,l2Misses,l3Hits,l3Misses,writeBackBytes,memoryWriteBytes,writeBufferStalls,error\n");
+        for (Row r : rows) {
+            sb.append(csvField(r.program));
+            for (String value : r.values) {
+                sb.append(',').append(csvField(value));
+            }
+            sb.append(',').append(r.completed);
+            sb.append(',').append(r.cycles);
+            sb.append(',').append(r.instructions);
+            sb.append(',').append(String.format("%.4f", r.ipc));
+            sb.append(',').append(r.branches);
+            sb.append(',').append(r.mispredictions);
+            sb.append(',').append(r.cdbConflicts);
+            sb.append(',').append(r.forwardedLoads);
+            for (long stalls : r.stallCycles) {
+                sb.append(',').append(stalls);
+            }
+            sb.append(',').append(r.cacheHits);
+            sb.append(',').append(r.cacheMisses);
+            sb.append(',').append(r.l2Hits);
+            sb.append(',').append(r.l2Misses);
+            sb.append(',').append(r.l3Hits);
+            sb.append(',').append(r.l3Misses);
+            sb.append(',').append(r.writeBackBytes);
+            sb.append(',').append(r.memoryWriteBytes);
+            sb.append(',').append(r.writeBufferStalls);
+            sb.append(',').append(r.error != null ? csvField(r.error) : "");
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    String toJson(Row[] rows) {
+        StringBuilder sb = new StringBuilder("[\n");
+        for (int i = 0; i < rows.length; i++) {
+            Row r = rows[i];
+            sb.append("{\"program\":").append(BatchRunner.jsonString(r.program));
+            sb.append(",\"parameters\":{");
+            int k = 0;
+            for (String key : parameters.keySet()) {
+                sb.append(k > 0 ? "," : "").append(BatchRunner.jsonString(key)).append(":")
+                        .append(BatchRunner.jsonString(r.values[k]));
+                k++;
+            }
+            sb.append("}");
+            sb.append(",\"completed\":").append(r.completed);
+            sb.append(",\"cycles\":").append(r.cycles);
+            sb.append(",\"instructions\":").append(r.instructions);
+            sb.append(",\"ipc\":").append(BatchRunner.jsonNumber(r.ipc));
+            sb.append(",\"branches\":").append(r.branches);
+            sb.append(",\"mispredictions\":").append(r.mispredictions);
+            sb.append(",\"cdbConflicts\":").append(r.cdbConflicts);
+            sb.append(",\"forwardedLoads\":").append(r.forwardedLoads);
+            for (int reason = 0; reason < PerformanceCounters.STALL_REASONS; reason++) {
+                sb.append(",\"").append(stallColumn(reason)).append("\":").append(r.stallCycles[reason]);
+            }
+            sb.append(",\"cacheHits\":").append(r.cacheHits);
+            sb.append(",\"cacheMisses\":").append(r.cacheMisses);
+            sb.append(",\"l2Hits\":").append(r.l2Hits);
+            sb.append(",\"l2Misses\":").append(r.l2Misses);
+            sb.append(",\"l3Hits\":").append(r.l3Hits);
+            sb.append(",\"l3Misses\":").append(r.l3Misses);
+            sb.append(",\"writeBackBytes\":").append(r.writeBackBytes);
+            sb.append(",\"memoryWriteBytes\":").append(r.memoryWriteBytes);
+            sb.append(",\"writeBufferStalls\":").append(r.writeBufferStalls);
+            sb.append(",\"error\":").append(r.error != null ? BatchRunner.jsonString(r.error) : "null");
+            sb.append("}").append(i < rows.length - 1 ? "," : "").append("\n");
+        }
+        return sb.append("]\n").toString();
+    }
+
+    /**
+     * Column of a stall reason, e.g. stallStructural.
+     */
+    private static String stallColumn(int reason) {
+        String key = PerformanceCounters.stallKey(reason);
+        return "stall" + Character.toUpperCase(key.charAt(0)) + key.substring(1);
+    }
+
+    private static String csvField(String s) {
+        if (s.indexOf(',') < 0 && s.indexOf('"') < 0 && s.indexOf('\n') < 0) {
+            return s;
+        }
+        return "\"" + s.replace("\"", "\"\"") + "\"";
+    }
+
+    private static void printUsage(PrintStream out) {
+        out.println("Usage: java -cp target/classes com.tomasulo.SweepRunner [options] --param KEY=VALUES ...");
+        out.println("                                                         program.asm [more.asm ...]");
+        out.println("Options:");
+        out.println("  --param KEY=VALUES Config field to sweep (repeatable); VALUES is a list (4,8,16),");
+        out.println("                     a range (1..8 or 1..8:2) or a geometric range (64..1024*2)");
+        out.println("  --config FILE      Properties file with the fixed Config fields");
+        out.println("  --set KEY=VALUE    Override one fixed Config field (repeatable)");
+        out.println("  --reg NAME=VALUE   Initial register value, e.g. --reg R2=100 (repeatable)");
+        out.println("  --mem ADDR=VALUE   Initial 8-byte memory value, e.g. --mem 0x40=7 (repeatable)");
+        out.println("  --max-cycles N     Stop a point after N cycles (default " + DEFAULT_MAX_CYCLES + ")");
+        out.println("  --threads N        Worker threads (default: one per available core)");
+        out.println("  --format csv|json  Output format (default csv)");
+        out.println("  --out FILE         Write the table to FILE instead of standard output");
+    }
+}
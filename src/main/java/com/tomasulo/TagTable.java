@@ -0,0 +1,68 @@
+package com.tomasulo;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps reservation station / buffer names ("Add1", "Load2", ...) to small int tags.
+ * Tag 0 (NONE) means "no producer": the value is available.
+ *
+ * Qj/Qk/Q and register status are stored as tags, so a CDB broadcast is an
+ * integer compare. Names are only looked up when something is displayed.
+ */
+public class TagTable {
+    public static final int NONE = 0;
+
+    private final List<String> names;
+    private final Map<String, Integer> ids;
+
+    public TagTable() {
+        names = new ArrayList<>();
+        ids = new HashMap<>();
+        names.add(""); // Tag 0 = NONE
+    }
+
+    /**
+     * Assign the next tag to a station name. Registering a name twice returns the
+     * existing tag.
+     */
+    public int register(String name) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int tag = names.size();
+        names.add(name);
+        ids.put(name, tag);
+        return tag;
+    }
+
+    /**
+     * Name for a tag, or "" for NONE / unknown tags.
+     */
+    public String nameOf(int tag) {
+        if (tag <= NONE || tag >= names.size()) {
+            return "";
+        }
+        return names.get(tag);
+    }
+
+    /**
+     * Tag for a name, or NONE for "" / unknown names.
+     */
+    public int tagOf(String name) {
+        if (name == null || name.isEmpty()) {
+            return NONE;
+        }
+        return ids.getOrDefault(name, NONE);
+    }
+
+    /**
+     * Number of tags in use, including NONE. Valid tags are 1..size()-1.
+     */
+    public int size() {
+        return names.size();
+    }
+}
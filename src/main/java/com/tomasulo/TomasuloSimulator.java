@@ -14,6 +14,7 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Button;
+import javafx.scene.control.CheckMenuItem;
 import javafx.scene.control.Label;
 import javafx.scene.control.Menu;
 import javafx.scene.control.MenuBar;
@@ -56,8 +57,10 @@ public class TomasuloSimulator extends Application {
     private TableView<RegisterTableRow> fpRegTable;
     private TableView<InstructionTableRow> instructionTable;
     private TableView<CacheTableRow> cacheTable;
+    private TableView<ROBTableRow> robTable;
 
     private Button stepButton;
+    private Button stepBackButton;
     private Button runButton;
     private Button resetButton;
     private Button loadButton;
@@ -123,7 +126,12 @@ public class TomasuloSimulator extends Application {
         cacheTab.setClosable(false);
         cacheTab.setContent(createCacheView());
 
-        mainTabs.getTabs().addAll(codeTab, rsTab, lsTab, regTab, instTab, cacheTab);
+        // Tab 7: Reorder Buffer
+        Tab robTab = new Tab("Reorder Buffer");
+        robTab.setClosable(false);
+        robTab.setContent(createReorderBufferView());
+
+        mainTabs.getTabs().addAll(codeTab, rsTab, lsTab, regTab, instTab, cacheTab, robTab);
         root.setCenter(mainTabs);
 
         // Bottom: Log area
@@ -168,10 +176,18 @@ public class TomasuloSimulator extends Application {
         MenuItem stationItem = new MenuItem("Set Station Sizes...");
         stationItem.setOnAction(e -> showStationDialog());
 
+        MenuItem unitItem = new MenuItem("Set Functional Units...");
+        unitItem.setOnAction(e -> showUnitDialog());
+
         MenuItem registerItem = new MenuItem("Initialize Registers...");
         registerItem.setOnAction(e -> showRegisterDialog());
 
-        configMenu.getItems().addAll(latencyItem, cacheItem, stationItem, registerItem);
+        CheckMenuItem fastForwardItem = new CheckMenuItem("Fast-Forward Idle Cycles");
+        fastForwardItem.setSelected(config.fastForward);
+        fastForwardItem.setOnAction(e -> config.fastForward = fastForwardItem.isSelected());
+
+        configMenu.getItems().addAll(latencyItem, cacheItem, stationItem, unitItem, registerItem,
+                new SeparatorMenuItem(), fastForwardItem);
         // configMenu.getItems().addAll(new SeparatorMenuItem(), memoryInitItem);
 
         // Samples Menu
@@ -194,8 +210,11 @@ public class TomasuloSimulator extends Application {
         MenuItem sample6 = new MenuItem("Cache Simple Demo");
         sample6.setOnAction(e -> loadSampleFile("sample6_cache_simple.asm"));
 
+        MenuItem sample7 = new MenuItem("Wrong-Path Stores (reorder buffer)");
+        sample7.setOnAction(e -> loadSampleFile("sample7_wrong_path_stores.asm"));
+
         samplesMenu.getItems().addAll(sample1, sample2, sample3, sample4,
-                new SeparatorMenuItem(), sample5, sample6);
+                new SeparatorMenuItem(), sample5, sample6, sample7);
 
         // Help Menu
         Menu helpMenu = new Menu("Help");
@@ -232,6 +251,10 @@ public class TomasuloSimulator extends Application {
         stepButton.setOnAction(e -> executeStep());
         stepButton.setDisable(true);
 
+        stepBackButton = new Button("Step Back");
+        stepBackButton.setOnAction(e -> stepBack());
+        stepBackButton.setDisable(true);
+
         runButton = new Button("Run to Completion");
         runButton.setOnAction(e -> runToCompletion());
         runButton.setDisable(true);
@@ -241,7 +264,7 @@ public class TomasuloSimulator extends Application {
         resetButton.setDisable(true);
 
         panel.getChildren().addAll(cycleLabel, pcLabel, currentInstructionLabel, new Separator(),
-                loadButton, stepButton, runButton, resetButton);
+                loadButton, stepButton, stepBackButton, runButton, resetButton);
 
         return panel;
     }
@@ -481,13 +504,54 @@ public class TomasuloSimulator extends Application {
         writeCol.setCellValueFactory(new PropertyValueFactory<>("write"));
         writeCol.setPrefWidth(80);
 
-        instructionTable.getColumns().addAll(iterCol, instCol, issueCol, execStartCol, execEndCol, writeCol);
+        TableColumn<InstructionTableRow, String> commitCol = new TableColumn<>("Commit");
+        commitCol.setCellValueFactory(new PropertyValueFactory<>("commit"));
+        commitCol.setPrefWidth(80);
+
+        instructionTable.getColumns().addAll(iterCol, instCol, issueCol, execStartCol, execEndCol, writeCol,
+                commitCol);
 
         box.getChildren().addAll(label, instructionTable);
 
         return box;
     }
 
+    private VBox createReorderBufferView() {
+        VBox box = new VBox(10);
+        box.setPadding(new Insets(10));
+
+        Label label = new Label("Reorder Buffer (oldest first):");
+        label.setStyle("-fx-font-weight: bold;");
+
+        robTable = new TableView<>();
+        robTable.setPlaceholder(new Label("Empty (set the reorder buffer size in the station sizes dialog)"));
+
+        TableColumn<ROBTableRow, String> entryCol = new TableColumn<>("Entry");
+        entryCol.setCellValueFactory(new PropertyValueFactory<>("entry"));
+        entryCol.setPrefWidth(70);
+
+        TableColumn<ROBTableRow, String> instCol = new TableColumn<>("Instruction");
+        instCol.setCellValueFactory(new PropertyValueFactory<>("instruction"));
+        instCol.setPrefWidth(220);
+
+        TableColumn<ROBTableRow, String> stateCol = new TableColumn<>("State");
+        stateCol.setCellValueFactory(new PropertyValueFactory<>("state"));
+        stateCol.setPrefWidth(100);
+
+        TableColumn<ROBTableRow, String> destCol = new TableColumn<>("Destination");
+        destCol.setCellValueFactory(new PropertyValueFactory<>("destination"));
+        destCol.setPrefWidth(100);
+
+        TableColumn<ROBTableRow, String> valueCol = new TableColumn<>("Value");
+        valueCol.setCellValueFactory(new PropertyValueFactory<>("value"));
+        valueCol.setPrefWidth(120);
+
+        robTable.getColumns().addAll(entryCol, instCol, stateCol, destCol, valueCol);
+
+        box.getChildren().addAll(label, robTable);
+        return box;
+    }
+
     private VBox createCacheView() {
         VBox box = new VBox(10);
         box.setPadding(new Insets(10));
@@ -563,6 +627,7 @@ public class TomasuloSimulator extends Application {
             updateAllViews();
 
             stepButton.setDisable(false);
+            stepBackButton.setDisable(true);
             runButton.setDisable(false);
             resetButton.setDisable(false);
 
@@ -623,13 +688,14 @@ public class TomasuloSimulator extends Application {
     private void executeStep() {
         boolean hasMore = engine.executeCycle();
         updateAllViews();
+        stepBackButton.setDisable(engine.getCheckpoints() == null);
 
         cycleLabel.setText("Cycle: " + engine.getCurrentCycle());
 
-        // Update log
-        List<String> log = engine.getCycleLog();
-        if (!log.isEmpty()) {
-            logArea.appendText(log.get(log.size() - 1) + "\n");
+        // Update log (only the last event is rendered)
+        String lastEvent = engine.getEventLog().renderLast();
+        if (!lastEvent.isEmpty()) {
+            logArea.appendText(lastEvent + "\n");
         }
 
         if (!hasMore) {
@@ -661,9 +727,27 @@ public class TomasuloSimulator extends Application {
         engine.getMemory().printMemory();
 
         stepButton.setDisable(true);
+        stepBackButton.setDisable(engine.getCheckpoints() == null);
         runButton.setDisable(true);
     }
 
+    /**
+     * Undo one cycle: restore the nearest checkpoint and replay up to the previous cycle.
+     */
+    private void stepBack() {
+        if (!engine.stepBack()) {
+            showAlert("Step Back", "There is no earlier cycle to go back to.");
+            return;
+        }
+        updateAllViews();
+        cycleLabel.setText("Cycle: " + engine.getCurrentCycle());
+        logArea.appendText("<< Stepped back to cycle " + engine.getCurrentCycle() + "\n");
+
+        stepButton.setDisable(false);
+        runButton.setDisable(false);
+        stepBackButton.setDisable(engine.getCurrentCycle() == 0);
+    }
+
     private void resetSimulation() {
         engine.reset();
         updateAllViews();
@@ -671,6 +755,7 @@ public class TomasuloSimulator extends Application {
         logArea.clear();
 
         stepButton.setDisable(true);
+        stepBackButton.setDisable(true);
         runButton.setDisable(true);
         resetButton.setDisable(true);
     }
@@ -681,6 +766,7 @@ public class TomasuloSimulator extends Application {
         updateRegisterTables();
         updateInstructionTable();
         updateCacheTable();
+        updateReorderBufferTable();
         updatePcAndCurrentInstruction();
     }
 
@@ -802,6 +888,17 @@ public class TomasuloSimulator extends Application {
         instructionTable.setItems(data);
     }
 
+    private void updateReorderBufferTable() {
+        ObservableList<ROBTableRow> data = FXCollections.observableArrayList();
+        ReorderBuffer rob = engine.getReorderBuffer();
+        if (rob != null) {
+            for (ReorderBuffer.Entry entry : rob.getEntries()) {
+                data.add(new ROBTableRow(entry));
+            }
+        }
+        robTable.setItems(data);
+    }
+
     private void updateCacheTable() {
         ObservableList<CacheTableRow> data = FXCollections.observableArrayList();
 
@@ -837,6 +934,11 @@ public class TomasuloSimulator extends Application {
         dialog.showAndWait();
     }
 
+    private void showUnitDialog() {
+        ConfigDialog dialog = new ConfigDialog(config, "units");
+        dialog.showAndWait();
+    }
+
     private void showRegisterDialog() {
         RegisterInitDialog dialog = new RegisterInitDialog(engine.getRegisterFile());
         dialog.showAndWait();
@@ -951,7 +1053,9 @@ public class TomasuloSimulator extends Application {
                         "   - Instruction Queue: Shows all instructions and their status\n" +
                         "   - Cache Status: Shows cache blocks and access log\n\n" +
                         "Bus Arbitration: When multiple instructions finish in the same cycle,\n" +
-                        "the oldest instruction (by issue order) writes to the CDB first.");
+                        "the oldest instruction (by issue order) writes to the CDB first.\n" +
+                        "With several buses (Common data buses in the station sizes dialog)\n" +
+                        "the oldest results write back together, one per bus.");
         alert.showAndWait();
     }
 
@@ -1095,8 +1199,47 @@ public class TomasuloSimulator extends Application {
         }
     }
 
+    public static class ROBTableRow {
+        private String entry, instruction, state, destination, value;
+
+        public ROBTableRow(ReorderBuffer.Entry robEntry) {
+            Instruction inst = robEntry.getInstruction();
+            this.entry = robEntry.getName();
+            this.instruction = inst.toString();
+            this.state = robEntry.isReady() ? "Ready to commit" : "Executing";
+            if (inst.isStore()) {
+                this.destination = "Mem[" + inst.getAddress() + "]";
+            } else if (inst.isBranch()) {
+                this.destination = robEntry.getInstruction().isPredictedTaken() ? "Predicted taken" : "Predicted not taken";
+            } else {
+                this.destination = inst.getDest();
+            }
+            this.value = robEntry.isReady() && !inst.isBranch() ? String.valueOf(robEntry.getValue()) : "";
+        }
+
+        public String getEntry() {
+            return entry;
+        }
+
+        public String getInstruction() {
+            return instruction;
+        }
+
+        public String getState() {
+            return state;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+
     public static class InstructionTableRow {
-        private String instruction, issue, execStart, execEnd, write, iteration;
+        private String instruction, issue, execStart, execEnd, write, commit, iteration;
         private boolean separator = false;
 
         // Regular row for an issued instruction instance
@@ -1106,6 +1249,8 @@ public class TomasuloSimulator extends Application {
             this.execStart = inst.getExecStartTime() >= 0 ? String.valueOf(inst.getExecStartTime()) : "";
             this.execEnd = inst.getExecEndTime() >= 0 ? String.valueOf(inst.getExecEndTime()) : "";
             this.write = inst.getWriteTime() >= 0 ? String.valueOf(inst.getWriteTime()) : "";
+            this.commit = inst.isSquashed() ? "squashed"
+                    : inst.getCommitTime() >= 0 ? String.valueOf(inst.getCommitTime()) : "";
             this.iteration = inst.getIteration() > 0 ? String.valueOf(inst.getIteration()) : "";
             this.separator = false;
         }
@@ -1117,6 +1262,7 @@ public class TomasuloSimulator extends Application {
             this.execStart = "";
             this.execEnd = "";
             this.write = "";
+            this.commit = "";
             this.iteration = "";
             this.separator = true;
         }
@@ -1148,6 +1294,10 @@ public class TomasuloSimulator extends Application {
         public String getWrite() {
             return write;
         }
+
+        public String getCommit() {
+            return commit;
+        }
     }
 
     public static class CacheTableRow {
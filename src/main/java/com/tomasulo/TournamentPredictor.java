@@ -0,0 +1,89 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Bimodal and gshare side by side, with a per-pc table of 2-bit chooser
+ * counters that learns which of the two to trust for each branch (2 or 3 =
+ * gshare). The chooser only moves when the two disagree. Both predictions are
+ * kept with the branch, above gshare's history in its predictor state, so
+ * the chooser is scored against what the two actually predicted.
+ */
+public class TournamentPredictor implements BranchPredictor {
+    // Component predictions in the predictor state, above the gshare history
+    private static final long LOCAL_TAKEN = 1L << 32;
+    private static final long GLOBAL_TAKEN = 1L << 33;
+
+    private final BimodalPredictor local;
+    private final GsharePredictor global;
+    private final byte[] chooser;
+    private final int mask;
+
+    public TournamentPredictor(int entries, int historyBits) {
+        local = new BimodalPredictor(entries);
+        global = new GsharePredictor(entries, historyBits);
+        chooser = new byte[entries];
+        mask = entries - 1;
+        reset();
+    }
+
+    @Override
+    public boolean predict(Instruction branch) {
+        boolean localTaken = local.predict(branch);
+        boolean globalTaken = global.predict(branch); // Sets the state to the history
+        branch.setPredictorState(branch.getPredictorState() | (localTaken ? LOCAL_TAKEN : 0)
+                | (globalTaken ? GLOBAL_TAKEN : 0));
+        return useGlobal(branch.getPc()) ? globalTaken : localTaken;
+    }
+
+    @Override
+    public void fetched(Instruction branch, boolean taken) {
+        global.fetched(branch, taken);
+    }
+
+    @Override
+    public void update(Instruction branch, boolean taken) {
+        boolean localTaken = (branch.getPredictorState() & LOCAL_TAKEN) != 0;
+        boolean globalTaken = (branch.getPredictorState() & GLOBAL_TAKEN) != 0;
+        if (localTaken != globalTaken) {
+            BimodalPredictor.train(chooser, (branch.getPc() >> 2) & mask, globalTaken == taken);
+        }
+        local.update(branch, taken);
+        global.update(branch, taken);
+    }
+
+    @Override
+    public void recover(Instruction branch, boolean taken) {
+        global.recover(branch, taken);
+    }
+
+    private boolean useGlobal(int pc) {
+        return chooser[(pc >> 2) & mask] >= 2;
+    }
+
+    @Override
+    public String getName() {
+        return "tournament";
+    }
+
+    @Override
+    public void reset() {
+        local.reset();
+        global.reset();
+        Arrays.fill(chooser, (byte) 1); // Weakly prefer bimodal until gshare has history
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        local.saveState(out);
+        global.saveState(out);
+        out.putBytes(chooser);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        local.restoreState(in);
+        global.restoreState(in);
+        in.getBytes(chooser);
+    }
+}
@@ -0,0 +1,85 @@
+package com.tomasulo;
+
+import java.util.Arrays;
+
+/**
+ * Tree pseudo-LRU: each set keeps ways - 1 bits forming a binary tree over
+ * its ways. An access points every node on its path away from the way used;
+ * the victim is found by following the bits from the root.
+ */
+public class TreePlruPolicy implements ReplacementPolicy {
+    private final int ways;
+    private final boolean[] bits; // Per set: ways - 1 nodes in heap order, true = victim on the right
+
+    public TreePlruPolicy(int sets, int ways) {
+        if (Integer.bitCount(ways) != 1) {
+            throw new IllegalArgumentException("plru replacement needs a power-of-two cacheAssociativity");
+        }
+        this.ways = ways;
+        bits = new boolean[sets * (ways - 1)];
+    }
+
+    @Override
+    public void touch(int set, int way) {
+        int base = set * (ways - 1);
+        int node = 0;
+        int lo = 0;
+        int hi = ways;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (way < mid) {
+                bits[base + node] = true;
+                node = 2 * node + 1;
+                hi = mid;
+            } else {
+                bits[base + node] = false;
+                node = 2 * node + 2;
+                lo = mid;
+            }
+        }
+    }
+
+    @Override
+    public void fill(int set, int way) {
+        touch(set, way);
+    }
+
+    @Override
+    public int victim(int set) {
+        int base = set * (ways - 1);
+        int node = 0;
+        int lo = 0;
+        int hi = ways;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (bits[base + node]) {
+                node = 2 * node + 2;
+                lo = mid;
+            } else {
+                node = 2 * node + 1;
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    @Override
+    public String getName() {
+        return "plru";
+    }
+
+    @Override
+    public void reset() {
+        Arrays.fill(bits, false);
+    }
+
+    @Override
+    public void saveState(Checkpoint.Writer out) {
+        out.putBooleans(bits);
+    }
+
+    @Override
+    public void restoreState(Checkpoint.Reader in) {
+        in.getBooleans(bits);
+    }
+}
@@ -0,0 +1,120 @@
+package com.tomasulo;
+
+/**
+ * Write buffer between the last cache level and Memory
+ * (Config.writeBufferEntries).
+ *
+ * Writes to memory (write-through stores, write-backs of dirty lines) wait
+ * here while the buffer drains one entry every drainCycles cycles in the
+ * background. A write to a block that already has an entry that has not
+ * started draining coalesces into it. A write that finds every entry taken
+ * waits for the oldest one to finish. Draining is computed from cycle stamps,
+ * so cycles skipped by fast-forward need no work.
+ */
+public class WriteBuffer {
+    private final int blockSize; // Coalescing granularity in bytes
+    private final int drainCycles;
+    private final int[] blocks; // Ring of entries, oldest at head: address / blockSize
+    private final int[] doneAt; // Cycle each entry finishes draining
+    private int head;
+    private int count;
+    private int lastDoneAt; // Cycle the youngest entry finishes draining
+
+    private long writes; // Entries created (memory write transactions)
+    private long coalesced; // Writes merged into a waiting entry
+    private long stallCycles; // Cycles writers waited for a free entry
+
+    public WriteBuffer(int entries, int blockSize, int drainCycles) {
+        if (entries < 1) {
+            throw new IllegalArgumentException("writeBufferEntries must be positive");
+        }
+        this.blockSize = blockSize;
+        this.drainCycles = Math.max(1, drainCycles);
+        blocks = new int[entries];
+        doneAt = new int[entries];
+    }
+
+    /**
+     * Buffer a write to the block holding address at cycle now. Returns the
+     * cycles the writer waits for a free entry.
+     */
+    int write(int address, int now) {
+        retire(now);
+        int block = address / blockSize;
+        for (int i = 0; i < count; i++) {
+            int slot = (head + i) % blocks.length;
+            if (blocks[slot] == block && doneAt[slot] - drainCycles > now) {
+                coalesced++;
+                return 0;
+            }
+        }
+        int wait = 0;
+        if (count == blocks.length) {
+            wait = doneAt[head] - now;
+            head = (head + 1) % blocks.length;
+            count--;
+            stallCycles += wait;
+        }
+        int slot = (head + count) % blocks.length;
+        blocks[slot] = block;
+        doneAt[slot] = Math.max(now + wait, lastDoneAt) + drainCycles;
+        lastDoneAt = doneAt[slot];
+        count++;
+        writes++;
+        return wait;
+    }
+
+    private void retire(int now) {
+        while (count > 0 && doneAt[head] <= now) {
+            head = (head + 1) % blocks.length;
+            count--;
+        }
+    }
+
+    public int getEntries() {
+        return blocks.length;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getCoalesced() {
+        return coalesced;
+    }
+
+    public long getStallCycles() {
+        return stallCycles;
+    }
+
+    public void reset() {
+        head = 0;
+        count = 0;
+        lastDoneAt = 0;
+        writes = 0;
+        coalesced = 0;
+        stallCycles = 0;
+    }
+
+    void saveState(Checkpoint.Writer out) {
+        out.putInts(blocks);
+        out.putInts(doneAt);
+        out.putInt(head);
+        out.putInt(count);
+        out.putInt(lastDoneAt);
+        out.putLong(writes);
+        out.putLong(coalesced);
+        out.putLong(stallCycles);
+    }
+
+    void restoreState(Checkpoint.Reader in) {
+        in.getInts(blocks);
+        in.getInts(doneAt);
+        head = in.getInt();
+        count = in.getInt();
+        lastDoneAt = in.getInt();
+        writes = in.getLong();
+        coalesced = in.getLong();
+        stallCycles = in.getLong();
+    }
+}